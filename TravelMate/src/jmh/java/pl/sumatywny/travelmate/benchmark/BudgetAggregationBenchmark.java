@@ -0,0 +1,62 @@
+package pl.sumatywny.travelmate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.sumatywny.travelmate.budget.service.BudgetAggregator;
+import pl.sumatywny.travelmate.budget.service.BudgetLedgerService.Contribution;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folding all expenses of a trip into per-participant totals (what a ledger rebuild does).
+ * {@code fixedPoint} is {@link BudgetAggregator}, {@code bigDecimal} the previous fold with
+ * a multiply and an add per share. Run with {@code -prof gc} and compare gc.alloc.rate.norm:
+ * -Djmh.args="BudgetAggregationBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BudgetAggregationBenchmark {
+
+    @Param({"1000", "100000"})
+    private int expenseCount;
+
+    @Param({"8", "50"})
+    private int participantCount;
+
+    private List<Contribution> contributions;
+
+    @Setup
+    public void setUp() {
+        List<UUID> participants = SyntheticTrips.participants(participantCount, 7L);
+        contributions = SyntheticTrips.expenses(UUID.randomUUID(), participants, expenseCount, 42L).stream()
+                .map(Contribution::of)
+                .toList();
+    }
+
+    @Benchmark
+    public Map<UUID, BudgetAggregator.Totals> fixedPoint() {
+        return BudgetAggregator.aggregate(contributions, List.of());
+    }
+
+    @Benchmark
+    public Map<UUID, BigDecimal[]> bigDecimal() {
+        Map<UUID, BigDecimal[]> totals = new HashMap<>();
+        for (Contribution contribution : contributions) {
+            BigDecimal[] payer = totals.computeIfAbsent(contribution.payerId(), id -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+            payer[0] = payer[0].add(contribution.amount());
+            for (Map.Entry<UUID, BigDecimal> entry : contribution.participantShares().entrySet()) {
+                BigDecimal[] participant = totals.computeIfAbsent(entry.getKey(), id -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+                participant[1] = participant[1].add(contribution.amount().multiply(entry.getValue()));
+            }
+        }
+        return totals;
+    }
+}
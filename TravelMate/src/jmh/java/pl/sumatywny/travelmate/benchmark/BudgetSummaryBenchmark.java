@@ -0,0 +1,94 @@
+package pl.sumatywny.travelmate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.sumatywny.travelmate.budget.dto.BudgetSummaryDTO;
+import pl.sumatywny.travelmate.budget.model.BudgetLedgerEntry;
+import pl.sumatywny.travelmate.budget.model.Expense;
+import pl.sumatywny.travelmate.budget.repository.BudgetLedgerRepository;
+import pl.sumatywny.travelmate.budget.repository.ExpenseRepository;
+import pl.sumatywny.travelmate.budget.service.BudgetLedgerService;
+import pl.sumatywny.travelmate.budget.service.ExpenseMapper;
+import pl.sumatywny.travelmate.budget.service.ExpenseService;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Budget summary of synthetic trips from 10 to 100k expenses.
+ * {@code summaryFromLedger} is what /budget-summary does per request,
+ * {@code rebuildLedger} is the full fold over expenses done by a manual ledger rebuild,
+ * {@code recomputeFromExpenses} is the per-request fold used before the ledger existed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BudgetSummaryBenchmark {
+
+    @Param({"10", "1000", "10000", "100000"})
+    private int expenseCount;
+
+    @Param({"8"})
+    private int participantCount;
+
+    private UUID tripId;
+    private List<Expense> expenses;
+    private List<BudgetLedgerEntry> ledger;
+    private ExpenseService expenseService;
+    private BudgetLedgerService ledgerService;
+
+    @Setup
+    public void setUp() {
+        tripId = UUID.randomUUID();
+        List<UUID> participants = SyntheticTrips.participants(participantCount, 7L);
+        expenses = SyntheticTrips.expenses(tripId, participants, expenseCount, 42L);
+
+        ExpenseRepository expenseRepository = RepositoryStubs.stub(ExpenseRepository.class, Map.of(
+                "findAllWithSharesByTripId", args -> expenses));
+        BudgetLedgerRepository ledgerRepository = RepositoryStubs.stub(BudgetLedgerRepository.class, Map.of(
+                "findAllByTripId", args -> ledger,
+                "deleteAllByTripId", args -> null,
+                "saveAll", args -> args[0]));
+
+        ledgerService = new BudgetLedgerService(ledgerRepository, expenseRepository);
+        expenseService = new ExpenseService(expenseRepository, new ExpenseMapper(), null, null, ledgerService);
+        ledger = ledgerService.rebuild(tripId);
+    }
+
+    @Benchmark
+    public BudgetSummaryDTO summaryFromLedger() {
+        return expenseService.getBudgetSummary(tripId);
+    }
+
+    @Benchmark
+    public List<BudgetLedgerEntry> rebuildLedger() {
+        return ledgerService.rebuild(tripId);
+    }
+
+    @Benchmark
+    public BudgetSummaryDTO recomputeFromExpenses() {
+        BigDecimal total = BigDecimal.ZERO;
+        Map<UUID, BigDecimal> paid = new HashMap<>();
+        Map<UUID, BigDecimal> share = new HashMap<>();
+
+        for (Expense expense : expenses) {
+            total = total.add(expense.getAmount());
+            paid.merge(expense.getPayerId(), expense.getAmount(), BigDecimal::add);
+            for (Map.Entry<UUID, BigDecimal> entry : expense.getParticipantShares().entrySet()) {
+                share.merge(entry.getKey(), expense.getAmount().multiply(entry.getValue()), BigDecimal::add);
+            }
+        }
+
+        Map<UUID, BigDecimal> balance = new HashMap<>();
+        for (UUID participant : share.keySet()) {
+            balance.put(participant, paid.getOrDefault(participant, BigDecimal.ZERO).subtract(share.get(participant)));
+        }
+        return new BudgetSummaryDTO(total, share, paid, balance);
+    }
+}
@@ -0,0 +1,86 @@
+package pl.sumatywny.travelmate.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import pl.sumatywny.travelmate.security.model.AuthenticatedUser;
+import pl.sumatywny.travelmate.security.model.Role;
+import pl.sumatywny.travelmate.security.model.User;
+import pl.sumatywny.travelmate.security.service.JwtService;
+
+import java.security.SecureRandom;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token validation throughput per thread. Run with {@code -t N} to scale over cores.
+ * The {@code legacy*} benchmarks reproduce the previous implementation, which decoded the key
+ * and built a new parser for every parse and parsed each token three times per request.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtServiceBenchmark {
+
+    private String secretKey;
+    private JwtService jwtService;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        secretKey = Encoders.BASE64.encode(secret);
+
+        jwtService = new JwtService(secretKey, TimeUnit.HOURS.toMillis(1));
+        user = User.builder()
+                .id(UUID.randomUUID())
+                .email("benchmark@example.com")
+                .password("hash")
+                .role(Role.USER)
+                .build();
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(user);
+    }
+
+    /** Current filter path: one parse, principal built from claims */
+    @Benchmark
+    public AuthenticatedUser authenticateRequest() {
+        Claims claims = jwtService.extractAllClaims(token);
+        return jwtService.toAuthenticatedUser(claims);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtService.isTokenValid(token, user);
+    }
+
+    /** Previous filter path: extractUsername, then isTokenValid parsing subject and expiration again */
+    @Benchmark
+    public boolean legacyAuthenticateRequest() {
+        String username = legacyParse(token).getSubject();
+        return username.equals(user.getUsername())
+                && legacyParse(token).getSubject().equals(user.getUsername())
+                && !legacyParse(token).getExpiration().before(new Date());
+    }
+
+    private Claims legacyParse(String jwt) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey)))
+                .build()
+                .parseClaimsJws(jwt)
+                .getBody();
+    }
+}
@@ -0,0 +1,77 @@
+package pl.sumatywny.travelmate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.sumatywny.travelmate.budget.dto.ExpenseDTO;
+import pl.sumatywny.travelmate.budget.model.Expense;
+import pl.sumatywny.travelmate.budget.service.ExpenseMapper;
+import pl.sumatywny.travelmate.participant.dto.ParticipantDTO;
+import pl.sumatywny.travelmate.participant.model.InvitationStatus;
+import pl.sumatywny.travelmate.participant.model.Participant;
+import pl.sumatywny.travelmate.participant.model.ParticipantRole;
+import pl.sumatywny.travelmate.participant.service.ParticipantMapper;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity/DTO conversions performed for every expense and participant returned by the API
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MapperBenchmark {
+
+    private final ExpenseMapper expenseMapper = new ExpenseMapper();
+    private final ParticipantMapper participantMapper = new ParticipantMapper();
+
+    private Expense expense;
+    private ExpenseDTO expenseDTO;
+    private Participant participant;
+    private ParticipantDTO participantDTO;
+
+    @Setup
+    public void setUp() {
+        UUID tripId = UUID.randomUUID();
+        List<UUID> participants = SyntheticTrips.participants(8, 7L);
+        expense = SyntheticTrips.expenses(tripId, participants, 1, 42L).get(0);
+        expenseDTO = expenseMapper.toDTO(expense);
+
+        participant = Participant.builder()
+                .id(UUID.randomUUID())
+                .tripId(tripId)
+                .userId(participants.get(0))
+                .role(ParticipantRole.MEMBER)
+                .status(InvitationStatus.ACCEPTED)
+                .email("member@example.com")
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .joinedAt(LocalDateTime.now())
+                .build();
+        participantDTO = participantMapper.toDTO(participant);
+    }
+
+    @Benchmark
+    public ExpenseDTO expenseToDTO() {
+        return expenseMapper.toDTO(expense);
+    }
+
+    @Benchmark
+    public Expense expenseToEntity() {
+        return expenseMapper.toEntity(expenseDTO);
+    }
+
+    @Benchmark
+    public ParticipantDTO participantToDTO() {
+        return participantMapper.toDTO(participant);
+    }
+
+    @Benchmark
+    public Participant participantToEntity() {
+        return participantMapper.toEntity(participantDTO);
+    }
+}
@@ -0,0 +1,34 @@
+package pl.sumatywny.travelmate.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * In-memory stand-ins for Spring Data repositories, so benchmarks measure service code without a database.
+ * Only the methods listed in {@code answers} are supported; default interface methods run as declared.
+ */
+final class RepositoryStubs {
+
+    private RepositoryStubs() {
+    }
+
+    static <T> T stub(Class<T> repositoryType, Map<String, Function<Object[], Object>> answers) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer.apply(args);
+            }
+            if (method.isDefault()) {
+                return InvocationHandler.invokeDefault(proxy, method, args);
+            }
+            if (method.getName().equals("toString")) {
+                return repositoryType.getSimpleName() + " stub";
+            }
+            throw new UnsupportedOperationException(repositoryType.getSimpleName() + "." + method.getName());
+        };
+        return repositoryType.cast(Proxy.newProxyInstance(
+                repositoryType.getClassLoader(), new Class<?>[]{repositoryType}, handler));
+    }
+}
@@ -0,0 +1,53 @@
+package pl.sumatywny.travelmate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.sumatywny.travelmate.budget.dto.TransferDTO;
+import pl.sumatywny.travelmate.budget.service.SettlementCalculator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settle-up of groups from 10 to 1,000 participants. Balances carry the ledger's scale of 10
+ * (shares like 1/3), so the benchmark includes rounding to cents as well as the heap matching.
+ * Target: well under 10 ms for 1,000 participants.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SettlementBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int participantCount;
+
+    private Map<UUID, BigDecimal> balances;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42L);
+        List<UUID> participants = SyntheticTrips.participants(participantCount, 7L);
+        balances = new HashMap<>();
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int i = 1; i < participantCount; i++) {
+            BigDecimal balance = BigDecimal.valueOf(random.nextInt(2_000_001) - 1_000_000, 2)
+                    .divide(BigDecimal.valueOf(3), 10, RoundingMode.HALF_EVEN);
+            balances.put(participants.get(i), balance);
+            sum = sum.add(balance);
+        }
+        balances.put(participants.get(0), sum.negate());
+    }
+
+    @Benchmark
+    public List<TransferDTO> settle() {
+        return SettlementCalculator.transfers(balances);
+    }
+}
@@ -0,0 +1,65 @@
+package pl.sumatywny.travelmate.benchmark;
+
+import pl.sumatywny.travelmate.budget.model.Expense;
+import pl.sumatywny.travelmate.budget.model.ExpenseCategory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Deterministic synthetic trips for benchmarks: amounts with two decimal places
+ * split between a random subset of participants with shares that sum to 1.
+ */
+final class SyntheticTrips {
+
+    private SyntheticTrips() {
+    }
+
+    static List<UUID> participants(int count, long seed) {
+        Random random = new Random(seed);
+        List<UUID> participants = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            participants.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        return participants;
+    }
+
+    static List<Expense> expenses(UUID tripId, List<UUID> participants, int count, long seed) {
+        Random random = new Random(seed);
+        ExpenseCategory[] categories = ExpenseCategory.values();
+        LocalDate start = LocalDate.of(2025, 7, 1);
+        List<Expense> expenses = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            int sharers = 1 + random.nextInt(participants.size());
+            List<UUID> shuffled = new ArrayList<>(participants);
+            Collections.shuffle(shuffled, random);
+
+            Map<UUID, BigDecimal> shares = new HashMap<>();
+            BigDecimal share = BigDecimal.ONE.divide(BigDecimal.valueOf(sharers), 10, RoundingMode.DOWN);
+            BigDecimal remainder = BigDecimal.ONE.subtract(share.multiply(BigDecimal.valueOf(sharers)));
+            for (int s = 0; s < sharers; s++) {
+                shares.put(shuffled.get(s), s == 0 ? share.add(remainder) : share);
+            }
+
+            Map<UUID, Boolean> paymentStatus = new HashMap<>();
+            shares.keySet().forEach(participant -> paymentStatus.put(participant, random.nextBoolean()));
+
+            expenses.add(Expense.builder()
+                    .id(new UUID(random.nextLong(), random.nextLong()))
+                    .name("Expense " + i)
+                    .tripId(tripId)
+                    .amount(BigDecimal.valueOf(100 + random.nextInt(500_000), 2))
+                    .category(categories[random.nextInt(categories.length)])
+                    .description("Synthetic expense " + i)
+                    .date(start.plusDays(random.nextInt(14)))
+                    .payerId(participants.get(random.nextInt(participants.size())))
+                    .participantShares(shares)
+                    .participantPaymentStatus(paymentStatus)
+                    .build());
+        }
+        return expenses;
+    }
+}
@@ -0,0 +1,87 @@
+package pl.sumatywny.travelmate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.sumatywny.travelmate.participant.model.InvitationStatus;
+import pl.sumatywny.travelmate.participant.model.Participant;
+import pl.sumatywny.travelmate.participant.model.ParticipantRole;
+import pl.sumatywny.travelmate.participant.repository.ParticipantRepository;
+import pl.sumatywny.travelmate.participant.service.TripPermissionService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Permission checks done by every trip-scoped request. Run with {@code -t N} to scale over cores.
+ * {@code cachedRole} is a membership cache hit, {@code uncachedRole} evicts the key first, so it pays
+ * the miss and reload. The repository is an in-memory map: the database round trip a hit saves is
+ * not part of either number.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TripPermissionBenchmark {
+
+    @Param({"100"})
+    private int tripCount;
+
+    @Param({"8"})
+    private int participantCount;
+
+    private List<UUID> trips;
+    private List<UUID> users;
+    private TripPermissionService permissionService;
+
+    @Setup
+    public void setUp() {
+        trips = SyntheticTrips.participants(tripCount, 3L);
+        users = SyntheticTrips.participants(participantCount, 7L);
+
+        Map<String, Participant> participants = new HashMap<>();
+        for (UUID tripId : trips) {
+            for (UUID userId : users) {
+                participants.put(tripId + "/" + userId, Participant.builder()
+                        .id(UUID.randomUUID())
+                        .tripId(tripId)
+                        .userId(userId)
+                        .role(ParticipantRole.MEMBER)
+                        .status(InvitationStatus.ACCEPTED)
+                        .build());
+            }
+        }
+
+        ParticipantRepository participantRepository = RepositoryStubs.stub(ParticipantRepository.class, Map.of(
+                "findByTripIdAndUserId", args -> Optional.ofNullable(participants.get(args[0] + "/" + args[1]))));
+        permissionService = new TripPermissionService(participantRepository);
+    }
+
+    @Benchmark
+    public ParticipantRole cachedRole() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return permissionService.getUserRole(
+                trips.get(random.nextInt(tripCount)), users.get(random.nextInt(participantCount)));
+    }
+
+    @Benchmark
+    public ParticipantRole uncachedRole() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID tripId = trips.get(random.nextInt(tripCount));
+        UUID userId = users.get(random.nextInt(participantCount));
+        permissionService.evict(tripId, userId);
+        return permissionService.getUserRole(tripId, userId);
+    }
+
+    @Benchmark
+    public boolean canAddExpenses() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return permissionService.canAddExpensesAsAccepted(
+                trips.get(random.nextInt(tripCount)), users.get(random.nextInt(participantCount)));
+    }
+}
@@ -1,6 +1,7 @@
 package pl.sumatywny.travelmate;
 
 import org.springframework.context.annotation.Configuration;
+import pl.sumatywny.travelmate.config.Pagination;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -15,6 +16,7 @@ public class WebConfig implements WebMvcConfigurer {
                 )
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS")
                 .allowedHeaders("*")
+                .exposedHeaders(Pagination.NEXT_CURSOR_HEADER)
                 .allowCredentials(true)
                 .maxAge(3600);
     }
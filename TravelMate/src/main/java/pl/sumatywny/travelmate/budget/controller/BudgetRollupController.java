@@ -0,0 +1,42 @@
+package pl.sumatywny.travelmate.budget.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import pl.sumatywny.travelmate.budget.dto.UserBudgetSummaryDTO;
+import pl.sumatywny.travelmate.budget.service.BudgetRollupService;
+import pl.sumatywny.travelmate.security.service.UserService;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/budget")
+@RequiredArgsConstructor
+@Tag(name = "Budget", description = "Budget overview of the current user across all trips.")
+public class BudgetRollupController {
+
+    private final BudgetRollupService budgetRollupService;
+    private final UserService userService;
+
+    @Operation(
+            summary = "Get the current user's budget across all trips",
+            description = "Returns how much the current user paid and owes in each of their trips, with totals over all trips. Computed with a single aggregate query."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Budget summary retrieved successfully"),
+            @ApiResponse(responseCode = "401", description = "Not authenticated"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/summary")
+    public ResponseEntity<UserBudgetSummaryDTO> getMyBudgetSummary(Authentication authentication) {
+        UUID currentUserId = userService.getCurrentUserId(authentication);
+        return ResponseEntity.ok(budgetRollupService.getUserSummary(currentUserId));
+    }
+}
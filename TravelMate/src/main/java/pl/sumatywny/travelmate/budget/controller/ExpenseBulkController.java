@@ -0,0 +1,95 @@
+package pl.sumatywny.travelmate.budget.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pl.sumatywny.travelmate.budget.dto.ExpenseImportResultDTO;
+import pl.sumatywny.travelmate.budget.service.ExpenseExportService;
+import pl.sumatywny.travelmate.budget.service.ExpenseImportService;
+import pl.sumatywny.travelmate.security.service.UserService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("api/trips/{tripId}/expenses")
+@RequiredArgsConstructor
+@Tag(name = "Expenses", description = "Operations related to trip expenses: creating, listing, deleting, and summarizing trip-related financial data.")
+public class ExpenseBulkController {
+
+    private final ExpenseImportService expenseImportService;
+    private final ExpenseExportService expenseExportService;
+    private final UserService userService;
+
+    @Operation(
+            summary = "Import many expenses at once",
+            description = "Streams a CSV (text/csv, header: name,amount,category,date,payerId,shares[,paid][,description]; "
+                    + "shares as userId:share;userId:share) or NDJSON (application/x-ndjson, one expense per line) body "
+                    + "and saves it in batches. Invalid rows are skipped and reported with their row number."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished; see failed/errors for rejected rows"),
+            @ApiResponse(responseCode = "400", description = "Unsupported format"),
+            @ApiResponse(responseCode = "403", description = "Insufficient permissions"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ExpenseImportResultDTO> importExpenses(
+            @Parameter(description = "ID of the trip to import the expenses into", required = true)
+            @PathVariable UUID tripId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body,
+            Authentication authentication
+    ) throws IOException {
+        UUID currentUserId = userService.getCurrentUserId(authentication);
+        return ResponseEntity.ok(expenseImportService.importExpenses(tripId, contentType, body, currentUserId));
+    }
+
+    @Operation(
+            summary = "Export all expenses of a trip",
+            description = "Streams the trip expenses in date order as CSV (same columns as the import, plus payerName "
+                    + "and participantNames) or NDJSON (one expense per line). Rows are written straight from a "
+                    + "database cursor, so large trips do not have to fit in memory."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Export streamed"),
+            @ApiResponse(responseCode = "400", description = "Unsupported format"),
+            @ApiResponse(responseCode = "403", description = "Not a participant of the trip"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportExpenses(
+            @Parameter(description = "ID of the trip to export the expenses of", required = true)
+            @PathVariable UUID tripId,
+            @Parameter(description = "csv or ndjson")
+            @RequestParam(defaultValue = "csv") String format,
+            Authentication authentication
+    ) {
+        UUID currentUserId = userService.getCurrentUserId(authentication);
+        MediaType mediaType = switch (format.toLowerCase()) {
+            case "csv" -> ExpenseImportService.TEXT_CSV;
+            case "ndjson" -> ExpenseImportService.APPLICATION_NDJSON;
+            default -> throw new IllegalArgumentException("Unsupported export format: " + format + " (use csv or ndjson)");
+        };
+        // Uprawnienia sprawdzamy przed wysłaniem nagłówków – później nie da się już zwrócić 403
+        expenseExportService.checkCanExport(tripId, currentUserId);
+
+        StreamingResponseBody body = out -> expenseExportService.export(tripId, mediaType, out);
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("expenses-" + tripId + "." + format.toLowerCase()).build().toString())
+                .body(body);
+    }
+}
@@ -11,7 +11,9 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import pl.sumatywny.travelmate.budget.dto.BudgetSummaryDTO;
 import pl.sumatywny.travelmate.budget.dto.ExpenseDTO;
+import pl.sumatywny.travelmate.budget.dto.SettlementDTO;
 import pl.sumatywny.travelmate.budget.service.ExpenseService;
+import pl.sumatywny.travelmate.config.Pagination;
 import pl.sumatywny.travelmate.security.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -41,9 +43,16 @@ public class ExpenseController {
     @GetMapping
     public ResponseEntity<List<ExpenseDTO>> getExpenses(
             @Parameter(description = "ID of the trip to retrieve expenses for", required = true)
-            @PathVariable UUID tripId
+            @PathVariable UUID tripId,
+            @Parameter(description = "Page size (1-500); enables keyset pagination. The next page cursor is returned in the X-Next-Cursor header")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Value of X-Next-Cursor from the previous page")
+            @RequestParam(required = false) String cursor
     ) {
-        return ResponseEntity.ok(expenseService.getExpensesByTrip(tripId));
+        if (!Pagination.isRequested(limit, cursor)) {
+            return ResponseEntity.ok(expenseService.getExpensesByTrip(tripId));
+        }
+        return Pagination.response(expenseService.getExpensesByTrip(tripId, Pagination.checkLimit(limit), cursor));
     }
 
     @Operation(
@@ -110,6 +119,23 @@ public class ExpenseController {
         return ResponseEntity.ok(expenseService.getBudgetSummary(tripId));
     }
 
+    @Operation(
+            summary = "Get settlement transfers for a trip",
+            description = "Returns a near-minimal list of transfers (who pays whom and how much) that brings every participant's balance to zero. " +
+                    "A trip without expenses, or an unknown trip, has no transfers."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Settlement computed successfully"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @GetMapping("/settlement")
+    public ResponseEntity<SettlementDTO> getSettlement(
+            @Parameter(description = "ID of the trip to settle", required = true)
+            @PathVariable UUID tripId
+    ) {
+        return ResponseEntity.ok(expenseService.getSettlement(tripId));
+    }
+
     @Operation(
             summary = "Update an existing expense",
             description = "Replaces the entire expense entry with new data. All fields must be provided."
@@ -0,0 +1,32 @@
+package pl.sumatywny.travelmate.budget.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Outcome of a bulk expense import")
+public class ExpenseImportResultDTO {
+
+    @Schema(description = "Number of data rows read", example = "50000")
+    private long totalRows;
+
+    @Schema(description = "Number of expenses saved", example = "49998")
+    private long imported;
+
+    @Schema(description = "Number of rows rejected", example = "2")
+    private long failed;
+
+    @Schema(description = "Rejected rows (at most the first 1000)")
+    private List<ImportRowErrorDTO> errors;
+
+    @Schema(description = "True if more rows failed than are listed in errors", example = "false")
+    private boolean errorsTruncated;
+}
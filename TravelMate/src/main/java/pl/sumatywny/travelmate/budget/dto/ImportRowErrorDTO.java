@@ -0,0 +1,21 @@
+package pl.sumatywny.travelmate.budget.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Row of an import that was not saved, with the reason")
+public class ImportRowErrorDTO {
+
+    @Schema(description = "1-based number of the data row (the CSV header is not counted)", example = "17")
+    private long row;
+
+    @Schema(description = "Why the row was rejected", example = "Sum of participant shares must equal 1.0")
+    private String message;
+}
@@ -0,0 +1,24 @@
+package pl.sumatywny.travelmate.budget.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Transfers that bring every participant's balance of a trip to zero")
+public class SettlementDTO {
+
+    @Schema(description = "Transfers to make, largest first")
+    private List<TransferDTO> transfers;
+
+    @Schema(description = "Sum of all transfer amounts", example = "49.75")
+    private BigDecimal totalTransferred;
+}
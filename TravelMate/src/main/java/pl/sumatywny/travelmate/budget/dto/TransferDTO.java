@@ -0,0 +1,27 @@
+package pl.sumatywny.travelmate.budget.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Single payment that moves money from an underpaid participant to an overpaid one")
+public class TransferDTO {
+
+    @Schema(description = "ID of the participant who pays", example = "b2c3d4e5-6789-01bc-def1-2345678901bc")
+    private UUID fromParticipantId;
+
+    @Schema(description = "ID of the participant who receives the payment", example = "a1b2c3d4-5678-90ab-cdef-1234567890ab")
+    private UUID toParticipantId;
+
+    @Schema(description = "Amount to transfer, rounded to cents", example = "49.75")
+    private BigDecimal amount;
+}
@@ -0,0 +1,33 @@
+package pl.sumatywny.travelmate.budget.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Budget position of the current user within a single trip")
+public class TripBudgetDTO {
+
+    @Schema(description = "ID of the trip", example = "a1b2c3d4-5678-90ab-cdef-1234567890ab")
+    private UUID tripId;
+
+    @Schema(description = "Name of the trip", example = "Kraków 2025")
+    private String tripName;
+
+    @Schema(description = "Amount the user paid for the trip's expenses", example = "150.00")
+    private BigDecimal paid;
+
+    @Schema(description = "User's share of the trip's expenses", example = "100.25")
+    private BigDecimal owed;
+
+    @Schema(description = "paid - owed (positive = overpaid, negative = underpaid)", example = "49.75")
+    private BigDecimal balance;
+}
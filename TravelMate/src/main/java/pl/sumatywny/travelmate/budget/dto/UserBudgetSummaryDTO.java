@@ -0,0 +1,30 @@
+package pl.sumatywny.travelmate.budget.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Budget position of the current user across all of their trips")
+public class UserBudgetSummaryDTO {
+
+    @Schema(description = "Total amount the user paid in all trips", example = "420.00")
+    private BigDecimal totalPaid;
+
+    @Schema(description = "Total of the user's shares in all trips", example = "380.50")
+    private BigDecimal totalOwed;
+
+    @Schema(description = "totalPaid - totalOwed (positive = overpaid, negative = underpaid)", example = "39.50")
+    private BigDecimal balance;
+
+    @Schema(description = "Position per trip, by trip start date")
+    private List<TripBudgetDTO> trips;
+}
@@ -0,0 +1,63 @@
+package pl.sumatywny.travelmate.budget.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Running budget totals of a single participant within a trip.
+ * Maintained incrementally by {@link pl.sumatywny.travelmate.budget.service.BudgetLedgerService}
+ * whenever an expense is added, changed or removed.
+ */
+@Entity
+@Table(
+        name = "budget_ledger",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_budget_ledger_trip_participant",
+                columnNames = {"trip_id", "participant_id"}
+        )
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BudgetLedgerEntry {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(name = "trip_id", nullable = false)
+    private UUID tripId;
+
+    @Column(name = "participant_id", nullable = false)
+    private UUID participantId;
+
+    // Sum of amounts of expenses paid by the participant
+    @Column(nullable = false, precision = 38, scale = 10)
+    private BigDecimal paid;
+
+    // Sum of the participant's shares in all expenses
+    @Column(nullable = false, precision = 38, scale = 10)
+    private BigDecimal share;
+
+    // paid - share (positive = overpaid, negative = underpaid)
+    @Column(nullable = false, precision = 38, scale = 10)
+    private BigDecimal balance;
+
+    // Number of expenses paid by the participant
+    @Column(name = "payment_count", nullable = false)
+    private int paymentCount;
+
+    // Number of expenses the participant takes part in
+    @Column(name = "share_count", nullable = false)
+    private int shareCount;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
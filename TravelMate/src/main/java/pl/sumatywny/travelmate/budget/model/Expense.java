@@ -13,7 +13,10 @@ import java.util.Map;
 import java.util.UUID;
 
 @Entity
-@Table(name = "expenses")
+@Table(name = "expenses", indexes = {
+        @Index(name = "idx_expenses_trip_date", columnList = "tripId, date, id"),
+        @Index(name = "idx_expenses_payer_trip", columnList = "payerId, tripId, amount")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -47,7 +50,8 @@ public class Expense {
     private UUID payerId;
 
     @ElementCollection
-    @CollectionTable(name = "expense_participant_shares", joinColumns = @JoinColumn(name = "expense_id"))
+    @CollectionTable(name = "expense_participant_shares", joinColumns = @JoinColumn(name = "expense_id"),
+            indexes = @Index(name = "idx_expense_shares_participant", columnList = "participant_id, expense_id, share"))
     @MapKeyColumn(name = "participant_id")
     @Column(name = "share", nullable = false)
 
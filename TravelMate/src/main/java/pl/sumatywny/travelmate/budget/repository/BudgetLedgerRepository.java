@@ -0,0 +1,63 @@
+package pl.sumatywny.travelmate.budget.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import pl.sumatywny.travelmate.budget.model.BudgetLedgerEntry;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface BudgetLedgerRepository extends JpaRepository<BudgetLedgerEntry, UUID> {
+
+    List<BudgetLedgerEntry> findAllByTripId(UUID tripId);
+
+    /**
+     * Loads ledger rows of the given participants and locks them until the end of the transaction,
+     * so concurrent expense changes in the same trip apply their deltas one after another.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM BudgetLedgerEntry l WHERE l.tripId = :tripId AND l.participantId IN :participantIds")
+    List<BudgetLedgerEntry> findAllForUpdate(@Param("tripId") UUID tripId,
+                                             @Param("participantIds") Collection<UUID> participantIds);
+
+    /**
+     * Adds the totals of a participant to its ledger row, inserting the row if it does not exist yet.
+     * A concurrent transaction inserting the same row first makes this one wait on the unique key and then
+     * add to the committed row instead of failing (PostgreSQL {@code ON CONFLICT}).
+     */
+    default void upsert(BudgetLedgerEntry delta) {
+        upsert(UUID.randomUUID(), delta.getTripId(), delta.getParticipantId(), delta.getPaid(), delta.getShare(),
+                delta.getBalance(), delta.getPaymentCount(), delta.getShareCount());
+    }
+
+    @Modifying
+    @Query(value = "INSERT INTO budget_ledger " +
+            "(id, trip_id, participant_id, paid, share, balance, payment_count, share_count, updated_at) " +
+            "VALUES (:id, :tripId, :participantId, :paid, :share, :balance, :paymentCount, :shareCount, now()) " +
+            "ON CONFLICT (trip_id, participant_id) DO UPDATE SET " +
+            "paid = budget_ledger.paid + excluded.paid, " +
+            "share = budget_ledger.share + excluded.share, " +
+            "balance = budget_ledger.balance + excluded.balance, " +
+            "payment_count = budget_ledger.payment_count + excluded.payment_count, " +
+            "share_count = budget_ledger.share_count + excluded.share_count, " +
+            "updated_at = excluded.updated_at",
+            nativeQuery = true)
+    void upsert(@Param("id") UUID id,
+                @Param("tripId") UUID tripId,
+                @Param("participantId") UUID participantId,
+                @Param("paid") BigDecimal paid,
+                @Param("share") BigDecimal share,
+                @Param("balance") BigDecimal balance,
+                @Param("paymentCount") int paymentCount,
+                @Param("shareCount") int shareCount);
+
+    @Modifying
+    @Query("DELETE FROM BudgetLedgerEntry l WHERE l.tripId = :tripId")
+    void deleteAllByTripId(@Param("tripId") UUID tripId);
+}
@@ -1,14 +1,110 @@
 package pl.sumatywny.travelmate.budget.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import pl.sumatywny.travelmate.budget.model.Expense;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface ExpenseRepository extends JpaRepository<Expense, UUID> {
     List<Expense> findAllByTripId(UUID tripId);
 
+    /**
+     * Loads expenses of a trip together with their participant shares in one statement
+     */
+    @Query("SELECT e FROM Expense e LEFT JOIN FETCH e.participantShares WHERE e.tripId = :tripId")
+    List<Expense> findAllWithSharesByTripId(@Param("tripId") UUID tripId);
+
+    /**
+     * Initializes participantPaymentStatus of all expenses of a trip that are already
+     * in the persistence context. Kept separate from the shares fetch to avoid a shares × statuses product.
+     */
+    @Query("SELECT e FROM Expense e LEFT JOIN FETCH e.participantPaymentStatus WHERE e.tripId = :tripId")
+    List<Expense> fetchPaymentStatusByTripId(@Param("tripId") UUID tripId);
+
+    /**
+     * Loads expenses of a trip with both element collections initialized using two statements.
+     * Must run inside a transaction so both queries share the same persistence context.
+     */
+    default List<Expense> findAllWithCollectionsByTripId(UUID tripId) {
+        List<Expense> expenses = findAllWithSharesByTripId(tripId);
+        if (!expenses.isEmpty()) {
+            fetchPaymentStatusByTripId(tripId);
+        }
+        return expenses;
+    }
+
+    /**
+     * First page of the trip expenses in (date, id) order; fetch size taken from the pageable
+     */
+    @Query("SELECT e FROM Expense e WHERE e.tripId = :tripId ORDER BY e.date, e.id")
+    List<Expense> findPageByTripId(@Param("tripId") UUID tripId, Pageable pageable);
+
+    /**
+     * Next page of the trip expenses: rows after the (date, id) position of the previous page
+     */
+    @Query("SELECT e FROM Expense e WHERE e.tripId = :tripId " +
+            "AND (e.date > :date OR (e.date = :date AND e.id > :id)) ORDER BY e.date, e.id")
+    List<Expense> findPageByTripIdAfter(@Param("tripId") UUID tripId,
+                                        @Param("date") LocalDate date,
+                                        @Param("id") UUID id,
+                                        Pageable pageable);
+
+    /**
+     * Streams the trip expenses in (date, id) order from a database cursor, 500 rows per round trip.
+     * Read-only entities without collections; must be consumed (and closed) inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e FROM Expense e WHERE e.tripId = :tripId ORDER BY e.date, e.id")
+    Stream<Expense> streamByTripId(@Param("tripId") UUID tripId);
+
+    @Query("SELECT e FROM Expense e LEFT JOIN FETCH e.participantShares WHERE e IN :expenses")
+    List<Expense> fetchSharesOf(@Param("expenses") Collection<Expense> expenses);
+
+    @Query("SELECT e FROM Expense e LEFT JOIN FETCH e.participantPaymentStatus WHERE e IN :expenses")
+    List<Expense> fetchPaymentStatusOf(@Param("expenses") Collection<Expense> expenses);
+
+    /**
+     * Initializes both element collections of already loaded expenses with two statements.
+     * Must run inside the transaction that loaded them.
+     */
+    default void fetchCollectionsOf(Collection<Expense> expenses) {
+        if (!expenses.isEmpty()) {
+            fetchSharesOf(expenses);
+            fetchPaymentStatusOf(expenses);
+        }
+    }
+
+    /**
+     * Paid and owed totals of a user in every trip they have accepted, aggregated by the database in one statement.
+     * Pending and declined invitations are left out, as they do not give access to the trip budget. Paid and owed are separate aggregate subqueries, so an expense both paid and shared by the user is not
+     * counted twice; trips without any of the user's expenses return zeros.
+     */
+    @Query("""
+            SELECT p.tripId AS tripId, t.name AS tripName,
+                   COALESCE((SELECT SUM(e.amount) FROM Expense e
+                             WHERE e.payerId = :userId AND e.tripId = p.tripId), 0) AS paid,
+                   COALESCE((SELECT SUM(e.amount * VALUE(s)) FROM Expense e JOIN e.participantShares s
+                             WHERE KEY(s) = :userId AND e.tripId = p.tripId), 0) AS owed
+            FROM Participant p JOIN Trip t ON t.id = p.tripId
+            WHERE p.userId = :userId
+              AND p.status = pl.sumatywny.travelmate.participant.model.InvitationStatus.ACCEPTED
+            ORDER BY t.startDate NULLS LAST, t.id
+            """)
+    List<TripBudgetTotals> findBudgetTotalsByUserId(@Param("userId") UUID userId);
+
     // already implemented due to JpaReposiotry:
     //save(S entity)
     //saveAll(Iterable<S>)
@@ -0,0 +1,19 @@
+package pl.sumatywny.travelmate.budget.repository;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Budget totals of one user within one trip, aggregated in the database
+ */
+public interface TripBudgetTotals {
+    UUID getTripId();
+
+    String getTripName();
+
+    // Sum of amounts of expenses paid by the user
+    BigDecimal getPaid();
+
+    // Sum of amount × share of expenses the user takes part in
+    BigDecimal getOwed();
+}
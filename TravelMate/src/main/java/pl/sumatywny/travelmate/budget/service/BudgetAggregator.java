@@ -0,0 +1,179 @@
+package pl.sumatywny.travelmate.budget.service;
+
+import pl.sumatywny.travelmate.budget.service.BudgetLedgerService.Contribution;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * Sumuje wpływ wydatków na uczestników w arytmetyce stałoprzecinkowej na typie long.
+ * Kwoty są liczone w groszach (skala 2), udziały w jednostkach 10^-10 (skala 10), a iloczyny
+ * kwota × udział w skali 12 – dokładnie tyle, ile dałoby {@link BigDecimal#multiply}.
+ * Skala 12 mieści w long tylko ~9 mln, więc sumy udziałów są 128-bitowe (para long: hi/lo).
+ * Sumy trafiają do tablic indeksowanych numerem uczestnika; BigDecimal powstaje dopiero w wyniku.
+ *
+ * <p>Polityka zaokrągleń: silnik niczego nie zaokrągla. Jeśli kwota lub udział ma więcej miejsc
+ * po przecinku niż skala silnika albo suma przekroczy zakres, cała agregacja jest liczona
+ * dokładnie na BigDecimal – wynik jest zawsze identyczny z dotychczasowym.
+ */
+public final class BudgetAggregator {
+
+    static final int AMOUNT_SCALE = 2;
+    static final int SHARE_SCALE = 10;
+    static final int PRODUCT_SCALE = AMOUNT_SCALE + SHARE_SCALE;
+
+    private BudgetAggregator() {
+    }
+
+    /**
+     * Net effect of a set of expenses on a single participant
+     * @param paid Sum of amounts paid
+     * @param share Sum of amount × share
+     * @param paymentCount Number of expenses paid (negative for removed expenses)
+     * @param shareCount Number of expenses shared (negative for removed expenses)
+     */
+    public record Totals(BigDecimal paid, BigDecimal share, int paymentCount, int shareCount) {
+    }
+
+    /**
+     * Sums the contributions of added expenses minus those of removed ones per participant
+     * @param added Contributions to add
+     * @param removed Contributions to subtract
+     * @return Totals per participant who pays or shares any of the expenses
+     */
+    public static Map<UUID, Totals> aggregate(List<Contribution> added, List<Contribution> removed) {
+        try {
+            return new FixedPointFold().fold(added, 1).fold(removed, -1).totals();
+        } catch (ArithmeticException notRepresentable) {
+            return exactFold(added, removed);
+        }
+    }
+
+    // Tablice rosną razem z liczbą uczestników; ordinal nadawany w kolejności pierwszego wystąpienia
+    private static final class FixedPointFold {
+        private final Map<UUID, Integer> ordinals = new HashMap<>();
+        private final Map<BigDecimal, Long> shareUnits = new HashMap<>();
+        private UUID[] participants = new UUID[16];
+        private long[] paid = new long[16];
+        private long[] shareHi = new long[16];
+        private long[] shareLo = new long[16];
+        private int[] paymentCount = new int[16];
+        private int[] shareCount = new int[16];
+
+        private FixedPointFold fold(List<Contribution> contributions, int sign) {
+            for (Contribution contribution : contributions) {
+                long amount = sign * toUnscaled(contribution.amount(), AMOUNT_SCALE);
+
+                int payer = ordinal(contribution.payerId());
+                paid[payer] = Math.addExact(paid[payer], amount);
+                paymentCount[payer] += sign;
+
+                for (Map.Entry<UUID, BigDecimal> entry : contribution.participantShares().entrySet()) {
+                    // Udziałów jest zwykle kilka różnych (0.5, 0.3333333333…) – konwertujemy każdy raz
+                    Long units = shareUnits.get(entry.getValue());
+                    if (units == null) {
+                        units = toUnscaled(entry.getValue(), SHARE_SCALE);
+                        shareUnits.put(entry.getValue(), units);
+                    }
+                    int participant = ordinal(entry.getKey());
+                    addShare(participant, amount, units);
+                    shareCount[participant] += sign;
+                }
+            }
+            return this;
+        }
+
+        // 128-bitowe dodawanie w kodzie uzupełnień do dwóch: przeniesienie z młodszej połowy do starszej
+        private void addShare(int participant, long amount, long units) {
+            long productLo = amount * units;
+            long productHi = Math.multiplyHigh(amount, units);
+            long lo = shareLo[participant] + productLo;
+            long carry = Long.compareUnsigned(lo, productLo) < 0 ? 1 : 0;
+            shareLo[participant] = lo;
+            shareHi[participant] = Math.addExact(Math.addExact(shareHi[participant], productHi), carry);
+        }
+
+        private int ordinal(UUID participantId) {
+            Integer ordinal = ordinals.get(participantId);
+            if (ordinal != null) {
+                return ordinal;
+            }
+            int next = ordinals.size();
+            if (next == participants.length) {
+                int capacity = next * 2;
+                participants = Arrays.copyOf(participants, capacity);
+                paid = Arrays.copyOf(paid, capacity);
+                shareHi = Arrays.copyOf(shareHi, capacity);
+                shareLo = Arrays.copyOf(shareLo, capacity);
+                paymentCount = Arrays.copyOf(paymentCount, capacity);
+                shareCount = Arrays.copyOf(shareCount, capacity);
+            }
+            participants[next] = participantId;
+            ordinals.put(participantId, next);
+            return next;
+        }
+
+        private Map<UUID, Totals> totals() {
+            Map<UUID, Totals> totals = new HashMap<>();
+            for (int i = 0; i < ordinals.size(); i++) {
+                totals.put(participants[i], new Totals(
+                        BigDecimal.valueOf(paid[i], AMOUNT_SCALE),
+                        toDecimal(shareHi[i], shareLo[i]),
+                        paymentCount[i],
+                        shareCount[i]));
+            }
+            return totals;
+        }
+    }
+
+    private static BigDecimal toDecimal(long hi, long lo) {
+        if (hi == (lo >> 63)) {
+            return BigDecimal.valueOf(lo, PRODUCT_SCALE);
+        }
+        BigInteger unsignedLo = BigInteger.valueOf(lo >>> 1).shiftLeft(1).or(BigInteger.valueOf(lo & 1));
+        return new BigDecimal(BigInteger.valueOf(hi).shiftLeft(64).or(unsignedLo), PRODUCT_SCALE);
+    }
+
+    // Wartość w jednostkach 10^-scale; ArithmeticException, jeśli nie da się jej wyrazić dokładnie w long
+    private static long toUnscaled(BigDecimal value, int scale) {
+        return value.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    private static Map<UUID, Totals> exactFold(List<Contribution> added, List<Contribution> removed) {
+        Map<UUID, ExactTotals> totals = new HashMap<>();
+        for (Contribution contribution : added) {
+            accumulate(totals, contribution, 1);
+        }
+        for (Contribution contribution : removed) {
+            accumulate(totals, contribution, -1);
+        }
+
+        Map<UUID, Totals> result = new HashMap<>();
+        totals.forEach((participantId, exact) -> result.put(participantId,
+                new Totals(exact.paid, exact.share, exact.paymentCount, exact.shareCount)));
+        return result;
+    }
+
+    private static void accumulate(Map<UUID, ExactTotals> totals, Contribution contribution, int sign) {
+        BigDecimal amount = sign > 0 ? contribution.amount() : contribution.amount().negate();
+
+        ExactTotals payer = totals.computeIfAbsent(contribution.payerId(), id -> new ExactTotals());
+        payer.paid = payer.paid.add(amount);
+        payer.paymentCount += sign;
+
+        for (Map.Entry<UUID, BigDecimal> entry : contribution.participantShares().entrySet()) {
+            ExactTotals participant = totals.computeIfAbsent(entry.getKey(), id -> new ExactTotals());
+            participant.share = participant.share.add(amount.multiply(entry.getValue()));
+            participant.shareCount += sign;
+        }
+    }
+
+    private static final class ExactTotals {
+        private BigDecimal paid = BigDecimal.ZERO;
+        private BigDecimal share = BigDecimal.ZERO;
+        private int paymentCount;
+        private int shareCount;
+    }
+}
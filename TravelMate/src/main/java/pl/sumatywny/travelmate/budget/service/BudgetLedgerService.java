@@ -0,0 +1,207 @@
+package pl.sumatywny.travelmate.budget.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.sumatywny.travelmate.budget.dto.BudgetSummaryDTO;
+import pl.sumatywny.travelmate.budget.model.BudgetLedgerEntry;
+import pl.sumatywny.travelmate.budget.model.Expense;
+import pl.sumatywny.travelmate.budget.repository.BudgetLedgerRepository;
+import pl.sumatywny.travelmate.budget.repository.ExpenseRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * Utrzymuje tabelę budget_ledger – bieżące sumy (zapłacone, udział, bilans) każdego uczestnika wycieczki.
+ * Zmiany wydatków są nakładane jako delty, więc podsumowanie budżetu to jeden odczyt O(uczestników).
+ * Wiersze wycieczek z wydatkami sprzed ledgera uzupełnia migracja V5__budget_ledger_backfill.
+ */
+@Service
+@RequiredArgsConstructor
+public class BudgetLedgerService {
+
+    private final BudgetLedgerRepository ledgerRepository;
+    private final ExpenseRepository expenseRepository;
+
+    /**
+     * Immutable snapshot of what an expense contributes to the ledger.
+     * Taken before an expense is modified so the old contribution can be reverted afterwards.
+     */
+    public record Contribution(UUID tripId, UUID payerId, BigDecimal amount, Map<UUID, BigDecimal> participantShares) {
+
+        // expenses.amount i expense_participant_shares.share to numeric(38, 2); PostgreSQL zaokrągla połówki w górę
+        static final int STORED_SCALE = 2;
+
+        public static Contribution of(Expense expense) {
+            return stored(expense.getTripId(), expense.getPayerId(), expense.getAmount(),
+                    expense.getParticipantShares());
+        }
+
+        /**
+         * Contribution of an expense as the database stores it: amount and shares rounded to the column scale,
+         * so the incrementally maintained ledger matches a {@link BudgetLedgerService#rebuild(UUID) rebuild} from the same rows
+         */
+        public static Contribution stored(UUID tripId, UUID payerId, BigDecimal amount,
+                                          Map<UUID, BigDecimal> participantShares) {
+            Map<UUID, BigDecimal> shares = new HashMap<>();
+            participantShares.forEach((participantId, share) -> shares.put(participantId, toStoredScale(share)));
+            return new Contribution(tripId, payerId, toStoredScale(amount), Map.copyOf(shares));
+        }
+
+        private static BigDecimal toStoredScale(BigDecimal value) {
+            return value.setScale(STORED_SCALE, RoundingMode.HALF_UP);
+        }
+    }
+
+    /**
+     * Adds the contribution of a newly created expense to the ledger
+     */
+    @Transactional
+    public void record(Contribution contribution) {
+        applyDeltas(contribution.tripId(), List.of(contribution), List.of());
+    }
+
+    /**
+     * Adds the contributions of a batch of new expenses of one trip in a single pass
+     */
+    @Transactional
+    public void recordAll(UUID tripId, List<Contribution> contributions) {
+        applyDeltas(tripId, contributions, List.of());
+    }
+
+    /**
+     * Removes the contribution of a deleted expense from the ledger
+     */
+    @Transactional
+    public void revert(Contribution contribution) {
+        applyDeltas(contribution.tripId(), List.of(), List.of(contribution));
+    }
+
+    /**
+     * Replaces the old contribution of a modified expense with the new one in a single pass
+     */
+    @Transactional
+    public void replace(Contribution previous, Contribution current) {
+        if (!previous.tripId().equals(current.tripId())) {
+            revert(previous);
+            record(current);
+            return;
+        }
+        applyDeltas(current.tripId(), List.of(current), List.of(previous));
+    }
+
+    /**
+     * Builds the budget summary of a trip from its ledger rows
+     */
+    @Transactional(readOnly = true)
+    public BudgetSummaryDTO getSummary(UUID tripId) {
+        List<BudgetLedgerEntry> entries = ledgerRepository.findAllByTripId(tripId);
+
+        BigDecimal total = BigDecimal.ZERO;
+        Map<UUID, BigDecimal> share = new HashMap<>();
+        Map<UUID, BigDecimal> paid = new HashMap<>();
+        Map<UUID, BigDecimal> balance = new HashMap<>();
+
+        for (BudgetLedgerEntry entry : entries) {
+            if (entry.getPaymentCount() > 0) {
+                total = total.add(entry.getPaid());
+                paid.put(entry.getParticipantId(), normalize(entry.getPaid()));
+            }
+            if (entry.getShareCount() > 0) {
+                share.put(entry.getParticipantId(), normalize(entry.getShare()));
+                balance.put(entry.getParticipantId(), normalize(entry.getBalance()));
+            }
+        }
+
+        return new BudgetSummaryDTO(normalize(total), share, paid, balance);
+    }
+
+    /**
+     * Recomputes all ledger rows of a trip from its expenses, e.g. to repair a ledger by hand.
+     * Not safe to run concurrently with expense changes of the same trip.
+     * @param tripId ID of the trip
+     * @return The freshly persisted ledger rows
+     */
+    @Transactional
+    public List<BudgetLedgerEntry> rebuild(UUID tripId) {
+        ledgerRepository.deleteAllByTripId(tripId);
+        List<Contribution> contributions = expenseRepository.findAllWithSharesByTripId(tripId).stream()
+                .map(Contribution::of)
+                .toList();
+
+        List<BudgetLedgerEntry> entries = new ArrayList<>();
+        fold(contributions, List.of()).forEach((participantId, delta) ->
+                entries.add(apply(delta, newEntry(tripId, participantId))));
+        return ledgerRepository.saveAll(entries);
+    }
+
+    private void applyDeltas(UUID tripId, List<Contribution> added, List<Contribution> removed) {
+        Map<UUID, BudgetAggregator.Totals> deltas = fold(added, removed);
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, BudgetLedgerEntry> entries = new HashMap<>();
+        for (BudgetLedgerEntry entry : ledgerRepository.findAllForUpdate(tripId, deltas.keySet())) {
+            entries.put(entry.getParticipantId(), entry);
+        }
+
+        List<BudgetLedgerEntry> toSave = new ArrayList<>();
+        List<BudgetLedgerEntry> toDelete = new ArrayList<>();
+        List<BudgetLedgerEntry> toInsert = new ArrayList<>();
+        deltas.forEach((participantId, delta) -> {
+            BudgetLedgerEntry existing = entries.get(participantId);
+            BudgetLedgerEntry entry = apply(delta, existing != null ? existing : newEntry(tripId, participantId));
+
+            // Uczestnik nie płaci ani nie uczestniczy już w żadnym wydatku – wiersz jest zbędny
+            if (entry.getPaymentCount() <= 0 && entry.getShareCount() <= 0) {
+                if (existing != null) {
+                    toDelete.add(entry);
+                }
+            } else if (existing != null) {
+                toSave.add(entry);
+            } else {
+                toInsert.add(entry);
+            }
+        });
+
+        ledgerRepository.deleteAll(toDelete);
+        ledgerRepository.saveAll(toSave);
+        // Nowych wierszy nic nie blokuje – równoległa transakcja może wstawiać ten sam wiersz, więc upsert.
+        // Stała kolejność, żeby dwie transakcje wstawiające tych samych uczestników się nie zakleszczyły.
+        toInsert.sort(Comparator.comparing(BudgetLedgerEntry::getParticipantId));
+        toInsert.forEach(ledgerRepository::upsert);
+    }
+
+    // Sumuje wpływ dodanych i usuniętych wydatków na każdego uczestnika
+    private static Map<UUID, BudgetAggregator.Totals> fold(List<Contribution> added, List<Contribution> removed) {
+        return BudgetAggregator.aggregate(added, removed);
+    }
+
+    private static BudgetLedgerEntry newEntry(UUID tripId, UUID participantId) {
+        return BudgetLedgerEntry.builder()
+                .tripId(tripId)
+                .participantId(participantId)
+                .paid(BigDecimal.ZERO)
+                .share(BigDecimal.ZERO)
+                .balance(BigDecimal.ZERO)
+                .build();
+    }
+
+    // Ledger columns keep a fixed scale of 10; strip the padding but always show at least cents
+    static BigDecimal normalize(BigDecimal value) {
+        BigDecimal stripped = value.stripTrailingZeros();
+        return stripped.scale() < 2 ? stripped.setScale(2) : stripped;
+    }
+
+    private static BudgetLedgerEntry apply(BudgetAggregator.Totals delta, BudgetLedgerEntry entry) {
+        entry.setPaid(entry.getPaid().add(delta.paid()));
+        entry.setShare(entry.getShare().add(delta.share()));
+        entry.setBalance(entry.getPaid().subtract(entry.getShare()));
+        entry.setPaymentCount(entry.getPaymentCount() + delta.paymentCount());
+        entry.setShareCount(entry.getShareCount() + delta.shareCount());
+        return entry;
+    }
+}
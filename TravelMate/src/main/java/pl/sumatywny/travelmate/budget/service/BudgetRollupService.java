@@ -0,0 +1,49 @@
+package pl.sumatywny.travelmate.budget.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.sumatywny.travelmate.budget.dto.TripBudgetDTO;
+import pl.sumatywny.travelmate.budget.dto.UserBudgetSummaryDTO;
+import pl.sumatywny.travelmate.budget.repository.ExpenseRepository;
+import pl.sumatywny.travelmate.budget.repository.TripBudgetTotals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Podsumowanie budżetu użytkownika we wszystkich jego wycieczkach.
+ * Sumowanie odbywa się w bazie – do JVM trafia jeden wiersz na wycieczkę.
+ */
+@Service
+@RequiredArgsConstructor
+public class BudgetRollupService {
+
+    private final ExpenseRepository expenseRepository;
+
+    @Transactional(readOnly = true)
+    public UserBudgetSummaryDTO getUserSummary(UUID userId) {
+        BigDecimal totalPaid = BigDecimal.ZERO;
+        BigDecimal totalOwed = BigDecimal.ZERO;
+        List<TripBudgetDTO> trips = new ArrayList<>();
+
+        for (TripBudgetTotals totals : expenseRepository.findBudgetTotalsByUserId(userId)) {
+            totalPaid = totalPaid.add(totals.getPaid());
+            totalOwed = totalOwed.add(totals.getOwed());
+            trips.add(new TripBudgetDTO(
+                    totals.getTripId(),
+                    totals.getTripName(),
+                    BudgetLedgerService.normalize(totals.getPaid()),
+                    BudgetLedgerService.normalize(totals.getOwed()),
+                    BudgetLedgerService.normalize(totals.getPaid().subtract(totals.getOwed()))));
+        }
+
+        return new UserBudgetSummaryDTO(
+                BudgetLedgerService.normalize(totalPaid),
+                BudgetLedgerService.normalize(totalOwed),
+                BudgetLedgerService.normalize(totalPaid.subtract(totalOwed)),
+                trips);
+    }
+}
@@ -0,0 +1,197 @@
+package pl.sumatywny.travelmate.budget.service;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.sumatywny.travelmate.budget.dto.ExpenseDTO;
+import pl.sumatywny.travelmate.budget.model.Expense;
+import pl.sumatywny.travelmate.budget.repository.ExpenseRepository;
+import pl.sumatywny.travelmate.participant.model.Participant;
+import pl.sumatywny.travelmate.participant.repository.ParticipantRepository;
+import pl.sumatywny.travelmate.participant.service.TripPermissionService;
+import pl.sumatywny.travelmate.security.service.UserService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Eksport wydatków wycieczki do CSV lub NDJSON prosto z kursora bazy. Wydatki są czytane strumieniowo
+ * i przetwarzane oknami po {@value #WINDOW_SIZE}: dla okna dociągamy udziały i statusy płatności dwoma
+ * zapytaniami, zapisujemy wiersze do odpowiedzi i czyścimy kontekst persystencji. Pamięć zależy więc
+ * od rozmiaru okna i liczby uczestników, a nie od liczby wydatków.
+ *
+ * <p>Format CSV jest zgodny z importem ({@link ExpenseImportService}); kolumny z imionami są dodatkowe.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExpenseExportService {
+
+    static final int WINDOW_SIZE = 500;
+
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseMapper expenseMapper;
+    private final ParticipantRepository participantRepository;
+    private final UserService userService;
+    private final TripPermissionService permissionService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = new CsvMapper();
+
+    /**
+     * Checks whether a user may export the trip expenses; call before the response is committed
+     * @param tripId ID of the trip
+     * @param currentUserId ID of the user
+     */
+    public void checkCanExport(UUID tripId, UUID currentUserId) {
+        if (!permissionService.isParticipant(tripId, currentUserId)) {
+            throw new IllegalStateException("Nie masz uprawnień do eksportu wydatków tej wycieczki.");
+        }
+    }
+
+    /**
+     * Writes all expenses of a trip in (date, id) order
+     * @param tripId ID of the trip
+     * @param format text/csv or application/x-ndjson
+     * @param out Target stream; flushed after every window, not closed
+     */
+    @Transactional(readOnly = true)
+    public void export(UUID tripId, MediaType format, OutputStream out) throws IOException {
+        Map<UUID, String> displayNames = participantNames(tripId);
+
+        try (Stream<Expense> expenses = expenseRepository.streamByTripId(tripId);
+             SequenceWriter writer = writerFor(format, out)) {
+            List<Expense> window = new ArrayList<>(WINDOW_SIZE);
+            Iterator<Expense> iterator = expenses.iterator();
+            while (iterator.hasNext()) {
+                window.add(iterator.next());
+                if (window.size() == WINDOW_SIZE) {
+                    writeWindow(window, displayNames, format, writer);
+                }
+            }
+            writeWindow(window, displayNames, format, writer);
+        }
+    }
+
+    // Domyślnie SequenceWriter robi flush po każdym wierszu – tu flushujemy raz na okno
+    private SequenceWriter writerFor(MediaType format, OutputStream out) throws IOException {
+        if (ExpenseImportService.TEXT_CSV.isCompatibleWith(format)) {
+            CsvSchema schema = csvMapper.schemaFor(CsvRow.class).withHeader();
+            return csvMapper.writer(schema)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .writeValues(out);
+        }
+        if (ExpenseImportService.APPLICATION_NDJSON.isCompatibleWith(format)) {
+            return objectMapper.writerFor(ExpenseDTO.class)
+                    .withRootValueSeparator("\n")
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .writeValues(out);
+        }
+        throw new IllegalArgumentException("Unsupported export format: " + format
+                + " (use " + ExpenseImportService.TEXT_CSV + " or " + ExpenseImportService.APPLICATION_NDJSON + ")");
+    }
+
+    private void writeWindow(List<Expense> window, Map<UUID, String> displayNames, MediaType format,
+                             SequenceWriter writer) throws IOException {
+        if (window.isEmpty()) {
+            return;
+        }
+        expenseRepository.fetchCollectionsOf(window);
+        resolveMissingNames(window, displayNames);
+
+        boolean csv = ExpenseImportService.TEXT_CSV.isCompatibleWith(format);
+        for (Expense expense : window) {
+            if (csv) {
+                writer.write(toCsvRow(expense, displayNames));
+            } else {
+                ExpenseDTO dto = expenseMapper.toDTO(expense);
+                dto.setParticipantNames(names(expense.getParticipantShares().keySet(), displayNames));
+                writer.write(dto);
+            }
+        }
+        writer.flush();
+
+        // Zapisane wydatki nie są już potrzebne – bez tego kontekst rósłby z każdym oknem
+        entityManager.clear();
+        window.clear();
+    }
+
+    // Słownik imion budujemy z góry z uczestników wycieczki – jedno zapytanie o użytkowników
+    private Map<UUID, String> participantNames(UUID tripId) {
+        Set<UUID> userIds = participantRepository.findAllByTripId(tripId).stream()
+                .map(Participant::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<UUID, String> displayNames = new HashMap<>();
+        userService.findAllByIds(userIds)
+                .forEach((userId, user) -> displayNames.put(userId, ExpenseService.getDisplayName(user)));
+        return displayNames;
+    }
+
+    // Byli uczestnicy mogą nadal występować w starych wydatkach; dopytujemy o nich raz na okno
+    private void resolveMissingNames(List<Expense> window, Map<UUID, String> displayNames) {
+        Set<UUID> missing = new HashSet<>();
+        for (Expense expense : window) {
+            if (!displayNames.containsKey(expense.getPayerId())) {
+                missing.add(expense.getPayerId());
+            }
+            for (UUID userId : expense.getParticipantShares().keySet()) {
+                if (!displayNames.containsKey(userId)) {
+                    missing.add(userId);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        userService.findAllByIds(missing)
+                .forEach((userId, user) -> displayNames.put(userId, ExpenseService.getDisplayName(user)));
+        missing.forEach(userId -> displayNames.putIfAbsent(userId, "Unknown"));
+    }
+
+    private static CsvRow toCsvRow(Expense expense, Map<UUID, String> displayNames) {
+        // Stała kolejność uczestników, żeby kolejne eksporty dało się porównać
+        List<UUID> participants = new ArrayList<>(expense.getParticipantShares().keySet());
+        Collections.sort(participants);
+
+        String shares = participants.stream()
+                .map(userId -> userId + ":" + expense.getParticipantShares().get(userId).toPlainString())
+                .collect(Collectors.joining(";"));
+        String paid = participants.stream()
+                .filter(userId -> Boolean.TRUE.equals(expense.getParticipantPaymentStatus().get(userId)))
+                .map(UUID::toString)
+                .collect(Collectors.joining(";"));
+
+        return new CsvRow(expense.getName(), expense.getAmount().toPlainString(), expense.getCategory().name(),
+                expense.getDate().toString(), expense.getPayerId().toString(), shares, paid, expense.getDescription(),
+                displayNames.getOrDefault(expense.getPayerId(), "Unknown"),
+                String.join(";", names(participants, displayNames)));
+    }
+
+    private static List<String> names(Collection<UUID> userIds, Map<UUID, String> displayNames) {
+        List<String> names = new ArrayList<>(userIds.size());
+        for (UUID userId : userIds) {
+            names.add(displayNames.getOrDefault(userId, "Unknown"));
+        }
+        return names;
+    }
+
+    @JsonPropertyOrder({"name", "amount", "category", "date", "payerId", "shares", "paid", "description",
+            "payerName", "participantNames"})
+    record CsvRow(String name, String amount, String category, String date, String payerId, String shares,
+                  String paid, String description, String payerName, String participantNames) {
+    }
+}
@@ -0,0 +1,349 @@
+package pl.sumatywny.travelmate.budget.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.sumatywny.travelmate.budget.dto.ExpenseDTO;
+import pl.sumatywny.travelmate.budget.dto.ExpenseImportResultDTO;
+import pl.sumatywny.travelmate.budget.dto.ImportRowErrorDTO;
+import pl.sumatywny.travelmate.budget.model.ExpenseCategory;
+import pl.sumatywny.travelmate.budget.service.BudgetLedgerService.Contribution;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Import wielu wydatków z CSV lub NDJSON. Wiersze są czytane strumieniowo i zapisywane paczkami:
+ * każda paczka to jedna transakcja z wsadowymi INSERT-ami (JDBC batch) i jedną aktualizacją ledgera,
+ * więc w pamięci jest naraz tylko bieżąca paczka, niezależnie od rozmiaru pliku.
+ *
+ * <p>CSV: nagłówek {@code name,amount,category,date,payerId,shares[,paid][,description]}, gdzie
+ * {@code shares} to {@code userId:udział;userId:udział}, a opcjonalne {@code paid} to lista userId
+ * rozdzielona średnikami (domyślnie zapłacone ma tylko płacący).
+ * NDJSON: jeden obiekt {@link ExpenseDTO} w linii.
+ */
+@Slf4j
+@Service
+public class ExpenseImportService {
+
+    public static final MediaType TEXT_CSV = MediaType.valueOf("text/csv");
+    public static final MediaType APPLICATION_NDJSON = MediaType.valueOf("application/x-ndjson");
+
+    static final int MAX_REPORTED_ERRORS = 1000;
+    static final String BATCH_ROLLED_BACK = "Not saved, batch rolled back";
+
+    private static final String INSERT_EXPENSE = "insert into expenses "
+            + "(id, trip_id, name, amount, category, description, date, payer_id, created_at, updated_at) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SHARE =
+            "insert into expense_participant_shares (expense_id, participant_id, share) values (?, ?, ?)";
+    private static final String INSERT_PAYMENT_STATUS =
+            "insert into expense_participant_payment_status (expense_id, participant_id, is_paid) values (?, ?, ?)";
+
+    private final ExpenseService expenseService;
+    private final BudgetLedgerService budgetLedgerService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+    private final CsvMapper csvMapper = new CsvMapper();
+
+    public ExpenseImportService(ExpenseService expenseService,
+                                BudgetLedgerService budgetLedgerService,
+                                JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                Validator validator,
+                                @Value("${travelmate.import.chunk-size:1000}") int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("travelmate.import.chunk-size must be positive");
+        }
+        this.expenseService = expenseService;
+        this.budgetLedgerService = budgetLedgerService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports expenses into a trip, saving valid rows and reporting the rejected ones
+     * @param tripId ID of the trip
+     * @param contentType text/csv or application/x-ndjson
+     * @param body Request body, read once as a stream
+     * @param currentUserId ID of the importing user (guests may not add expenses)
+     * @return Counts of imported and rejected rows with the reasons
+     */
+    public ExpenseImportResultDTO importExpenses(UUID tripId, MediaType contentType, InputStream body,
+                                                 UUID currentUserId) throws IOException {
+        // Uprawnienia sprawdzamy raz dla całego importu, nie dla każdego wiersza
+        expenseService.checkNotGuest(tripId, currentUserId, "importowania wydatków");
+
+        Import run = new Import(tripId);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        if (contentType != null && TEXT_CSV.isCompatibleWith(contentType)) {
+            readCsv(reader, run);
+        } else if (contentType != null && APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            readNdjson(reader, run);
+        } else {
+            throw new IllegalArgumentException("Unsupported import format: " + contentType
+                    + " (use " + TEXT_CSV + " or " + APPLICATION_NDJSON + ")");
+        }
+        run.flush();
+        return run.result();
+    }
+
+    private void readCsv(BufferedReader reader, Import run) throws IOException {
+        CsvSchema schema = CsvSchema.emptySchema().withHeader();
+        try (MappingIterator<Map<String, String>> rows =
+                     csvMapper.readerForMapOf(String.class).with(schema).readValues(reader)) {
+            while (true) {
+                Map<String, String> row;
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    row = rows.nextValue();
+                } catch (RuntimeJsonMappingException | JsonProcessingException e) {
+                    // Uszkodzona struktura CSV (np. niezamknięty cudzysłów) – dalszych wierszy nie da się wiarygodnie odczytać
+                    run.reject(run.nextRow(), "Malformed CSV, import stopped: " + e.getMessage());
+                    return;
+                }
+                long rowNumber = run.nextRow();
+                try {
+                    run.accept(rowNumber, fromCsv(row));
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    run.reject(rowNumber, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void readNdjson(BufferedReader reader, Import run) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            long rowNumber = run.nextRow();
+            try {
+                run.accept(rowNumber, objectMapper.readValue(line, ExpenseDTO.class));
+            } catch (JsonProcessingException e) {
+                run.reject(rowNumber, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private static ExpenseDTO fromCsv(Map<String, String> row) {
+        String category = blankToNull(row.get("category"));
+        String amount = blankToNull(row.get("amount"));
+        String date = blankToNull(row.get("date"));
+        String payerId = blankToNull(row.get("payerId"));
+        Map<UUID, BigDecimal> shares = parseShares(row.get("shares"));
+
+        Map<UUID, Boolean> paymentStatus = null;
+        String paid = blankToNull(row.get("paid"));
+        if (paid != null) {
+            Set<UUID> paidBy = Arrays.stream(paid.split(";"))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .map(UUID::fromString)
+                    .collect(Collectors.toSet());
+            paymentStatus = new HashMap<>();
+            for (UUID participantId : shares.keySet()) {
+                paymentStatus.put(participantId, paidBy.contains(participantId));
+            }
+        }
+
+        return ExpenseDTO.builder()
+                .name(blankToNull(row.get("name")))
+                .amount(amount == null ? null : new BigDecimal(amount))
+                .category(category == null ? null : ExpenseCategory.valueOf(category.toUpperCase(Locale.ROOT)))
+                .date(date == null ? null : LocalDate.parse(date))
+                .payerId(payerId == null ? null : UUID.fromString(payerId))
+                .participantShares(shares)
+                .participantPaymentStatus(paymentStatus)
+                .description(blankToNull(row.get("description")))
+                .build();
+    }
+
+    // userId:udział;userId:udział
+    private static Map<UUID, BigDecimal> parseShares(String value) {
+        Map<UUID, BigDecimal> shares = new HashMap<>();
+        if (value == null) {
+            return shares;
+        }
+        for (String entry : value.split(";")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid share '" + entry.trim() + "', expected userId:share");
+            }
+            UUID participantId = UUID.fromString(entry.substring(0, separator).trim());
+            if (shares.put(participantId, new BigDecimal(entry.substring(separator + 1).trim())) != null) {
+                throw new IllegalArgumentException("Duplicate share for participant " + participantId);
+            }
+        }
+        return shares;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private record Row(long number, UUID id, ExpenseDTO expense) {
+    }
+
+    // Stan jednego importu: bieżąca paczka wierszy, liczniki i (ograniczona) lista błędów
+    private final class Import {
+        private final UUID tripId;
+        private final List<Row> chunk = new ArrayList<>(chunkSize);
+        private final List<ImportRowErrorDTO> errors = new ArrayList<>();
+        private long totalRows;
+        private long imported;
+        private long failed;
+
+        private Import(UUID tripId) {
+            this.tripId = tripId;
+        }
+
+        private long nextRow() {
+            return ++totalRows;
+        }
+
+        private void accept(long rowNumber, ExpenseDTO expense) {
+            expense.setId(null);
+            expense.setTripId(tripId);
+            if (expense.getParticipantPaymentStatus() == null || expense.getParticipantPaymentStatus().isEmpty()) {
+                expense.setParticipantPaymentStatus(defaultPaymentStatus(expense));
+            }
+
+            Set<ConstraintViolation<ExpenseDTO>> violations = validator.validate(expense);
+            if (!violations.isEmpty()) {
+                reject(rowNumber, violations.stream()
+                        .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+            if (expense.getName() == null || expense.getName().isBlank()) {
+                reject(rowNumber, "name must not be blank");
+                return;
+            }
+            try {
+                ExpenseService.checkSharesSum(expense.getParticipantShares());
+            } catch (IllegalArgumentException e) {
+                reject(rowNumber, e.getMessage());
+                return;
+            }
+
+            chunk.add(new Row(rowNumber, UUID.randomUUID(), expense));
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        private void reject(long rowNumber, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(ImportRowErrorDTO.builder().row(rowNumber).message(message).build());
+            }
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(tripId, chunk));
+                imported += chunk.size();
+            } catch (DataAccessException e) {
+                // Paczka została wycofana w całości – zgłaszamy każdy jej wiersz; treść błędu bazy
+                // (SQL, nazwy ograniczeń) zostaje w logu serwera
+                log.warn("Import into trip {} rolled back rows {}-{}", tripId,
+                        chunk.get(0).number(), chunk.get(chunk.size() - 1).number(), e);
+                for (Row row : chunk) {
+                    reject(row.number(), BATCH_ROLLED_BACK);
+                }
+            }
+            chunk.clear();
+        }
+
+        private ExpenseImportResultDTO result() {
+            return ExpenseImportResultDTO.builder()
+                    .totalRows(totalRows)
+                    .imported(imported)
+                    .failed(failed)
+                    .errors(errors)
+                    .errorsTruncated(failed > errors.size())
+                    .build();
+        }
+    }
+
+    private static Map<UUID, Boolean> defaultPaymentStatus(ExpenseDTO expense) {
+        Map<UUID, Boolean> status = new HashMap<>();
+        if (expense.getParticipantShares() != null) {
+            expense.getParticipantShares().keySet()
+                    .forEach(participantId -> status.put(participantId, participantId.equals(expense.getPayerId())));
+        }
+        return status;
+    }
+
+    private void insert(UUID tripId, List<Row> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> expenses = new ArrayList<>(rows.size());
+        List<Object[]> shares = new ArrayList<>();
+        List<Object[]> paymentStatus = new ArrayList<>();
+        List<Contribution> contributions = new ArrayList<>(rows.size());
+
+        // Opis bywa pusty: jawny typ oszczędza pytanie sterownika o metadane parametru przy każdym NULL-u
+        for (Row row : rows) {
+            ExpenseDTO expense = row.expense();
+            expenses.add(new Object[]{row.id(), tripId, expense.getName(), expense.getAmount(),
+                    expense.getCategory().name(), new SqlParameterValue(Types.VARCHAR, expense.getDescription()),
+                    Date.valueOf(expense.getDate()),
+                    expense.getPayerId(), now, now});
+            expense.getParticipantShares().forEach((participantId, share) ->
+                    shares.add(new Object[]{row.id(), participantId, share}));
+            expense.getParticipantPaymentStatus().forEach((participantId, isPaid) ->
+                    paymentStatus.add(new Object[]{row.id(), participantId, isPaid}));
+            contributions.add(Contribution.stored(tripId, expense.getPayerId(), expense.getAmount(),
+                    expense.getParticipantShares()));
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_EXPENSE, expenses);
+        jdbcTemplate.batchUpdate(INSERT_SHARE, shares);
+        jdbcTemplate.batchUpdate(INSERT_PAYMENT_STATUS, paymentStatus);
+        budgetLedgerService.recordAll(tripId, contributions);
+    }
+}
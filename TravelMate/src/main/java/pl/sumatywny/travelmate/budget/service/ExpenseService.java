@@ -1,11 +1,16 @@
 package pl.sumatywny.travelmate.budget.service;
 
 import pl.sumatywny.travelmate.budget.model.ExpenseCategory;
+import pl.sumatywny.travelmate.config.KeysetCursor;
+import pl.sumatywny.travelmate.config.KeysetPage;
 import pl.sumatywny.travelmate.config.NotFoundException;
+import pl.sumatywny.travelmate.config.Pagination;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import pl.sumatywny.travelmate.budget.dto.BudgetSummaryDTO;
 import pl.sumatywny.travelmate.budget.dto.ExpenseDTO;
+import pl.sumatywny.travelmate.budget.dto.SettlementDTO;
 import pl.sumatywny.travelmate.budget.model.Expense;
 import pl.sumatywny.travelmate.budget.repository.ExpenseRepository;
 import pl.sumatywny.travelmate.security.model.User;
@@ -25,35 +30,73 @@ public class ExpenseService {
     private final ExpenseMapper expenseMapper;
     private final UserService userService;
     private final TripPermissionService permissionService;
+    private final BudgetLedgerService budgetLedgerService;
 
+    // Definiujemy tolerancję błędu sumy udziałów
+    private static final BigDecimal SHARE_SUM_TOLERANCE = new BigDecimal("0.0000000001");
+
+    @Transactional(readOnly = true)
     public List<ExpenseDTO> getExpensesByTrip(UUID tripId) {
-        return expenseRepository.findAllByTripId(tripId)
-                .stream()
-                .map(this::enhanceWithParticipantNames)
+        List<Expense> expenses = expenseRepository.findAllWithCollectionsByTripId(tripId);
+        Map<UUID, String> displayNames = resolveDisplayNames(expenses);
+        return expenses.stream()
+                .map(expense -> toDTOWithParticipantNames(expense, displayNames))
                 .toList();
     }
 
+    /**
+     * One page of the trip expenses in (date, id) order
+     * @param tripId ID of the trip
+     * @param limit Page size
+     * @param cursor Cursor returned with the previous page, null for the first page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<ExpenseDTO> getExpensesByTrip(UUID tripId, int limit, String cursor) {
+        List<Expense> fetched;
+        if (cursor == null) {
+            fetched = expenseRepository.findPageByTripId(tripId, Pagination.fetchLimit(limit));
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            fetched = expenseRepository.findPageByTripIdAfter(tripId, after.keyAsDate(), after.idAsUuid(),
+                    Pagination.fetchLimit(limit));
+        }
+        KeysetPage<Expense> page = KeysetPage.of(fetched, limit, e -> KeysetCursor.of(e.getDate(), e.getId()));
+        expenseRepository.fetchCollectionsOf(page.items());
+
+        Map<UUID, String> displayNames = resolveDisplayNames(page.items());
+        return page.map(expense -> toDTOWithParticipantNames(expense, displayNames));
+    }
+
     private ExpenseDTO enhanceWithParticipantNames(Expense expense) {
+        return toDTOWithParticipantNames(expense, resolveDisplayNames(List.of(expense)));
+    }
+
+    // Zbiera ID wszystkich uczestników i pobiera użytkowników jednym zapytaniem
+    private Map<UUID, String> resolveDisplayNames(Collection<Expense> expenses) {
+        Set<UUID> userIds = new HashSet<>();
+        for (Expense expense : expenses) {
+            userIds.addAll(expense.getParticipantShares().keySet());
+        }
+
+        Map<UUID, String> displayNames = new HashMap<>();
+        userService.findAllByIds(userIds)
+                .forEach((userId, user) -> displayNames.put(userId, getDisplayName(user)));
+        return displayNames;
+    }
+
+    private ExpenseDTO toDTOWithParticipantNames(Expense expense, Map<UUID, String> displayNames) {
         ExpenseDTO dto = expenseMapper.toDTO(expense);
 
         List<String> participantNames = new ArrayList<>();
         for (UUID userId : expense.getParticipantShares().keySet()) {
-            try {
-                User user = userService.findById(userId);
-                if (user != null) {
-                    String name = getDisplayName(user);
-                    participantNames.add(name);
-                }
-            } catch (Exception e) {
-                participantNames.add("Unknown");
-            }
+            participantNames.add(displayNames.getOrDefault(userId, "Unknown"));
         }
 
         dto.setParticipantNames(participantNames);
         return dto;
     }
 
-    private String getDisplayName(User user) {
+    static String getDisplayName(User user) {
         if (user.getFirstName() != null && user.getLastName() != null &&
                 !user.getFirstName().trim().isEmpty() && !user.getLastName().trim().isEmpty()) {
             return user.getFirstName() + " " + user.getLastName();
@@ -70,8 +113,18 @@ public class ExpenseService {
         return "Unknown User";
     }
 
+    // Sprawdzamy, czy suma udziałów różni się od 1.0, uwzględniając tolerancję
+    static void checkSharesSum(Map<UUID, BigDecimal> participantShares) {
+        BigDecimal totalShare = participantShares.values().stream()
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        if (totalShare.subtract(BigDecimal.ONE).abs().compareTo(SHARE_SUM_TOLERANCE) > 0) {
+            throw new IllegalArgumentException("Sum of participant shares must equal 1.0");
+        }
+    }
+
     // ✅ PROSTA logika - GUEST nie może nic
-    private void checkNotGuest(UUID tripId, UUID currentUserId, String action) {
+    void checkNotGuest(UUID tripId, UUID currentUserId, String action) {
         ParticipantRole userRole = permissionService.getUserRole(tripId, currentUserId);
         if (userRole == null || userRole == ParticipantRole.GUEST) {
             throw new IllegalStateException("Nie masz uprawnień do " + action + ". Goście mają dostęp tylko do odczytu.");
@@ -86,26 +139,20 @@ public class ExpenseService {
         }
     }
 
+@Transactional
 public ExpenseDTO addExpense(ExpenseDTO expenseDTO, UUID currentUserId) {
     // ✅ MEMBER i ORGANIZER mogą dodawać
     checkNotGuest(expenseDTO.getTripId(), currentUserId, "dodawania wydatków");
 
-    BigDecimal totalShare = expenseDTO.getParticipantShares().values().stream()
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-    // Definiujemy tolerancję błędu
-    BigDecimal tolerance = new BigDecimal("0.0000000001");
-
-    // Sprawdzamy, czy suma udziałów różni się od 1.0, uwzględniając tolerancję
-    if (totalShare.subtract(BigDecimal.ONE).abs().compareTo(tolerance) > 0) {
-        throw new IllegalArgumentException("Sum of participant shares must equal 1.0");
-    }
+    checkSharesSum(expenseDTO.getParticipantShares());
 
     Expense expense = expenseMapper.toEntity(expenseDTO);
     Expense saved = expenseRepository.save(expense);
+    budgetLedgerService.record(BudgetLedgerService.Contribution.of(saved));
     return enhanceWithParticipantNames(saved);
 }
 
+    @Transactional
     public void deleteExpense(UUID id, UUID currentUserId) {
         Expense expense = expenseRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Expense not found"));
@@ -113,44 +160,31 @@ public ExpenseDTO addExpense(ExpenseDTO expenseDTO, UUID currentUserId) {
         // ✅ Tylko ORGANIZER może usuwać
         checkIsOrganizer(expense.getTripId(), currentUserId, "usuwania wydatków");
 
+        budgetLedgerService.revert(BudgetLedgerService.Contribution.of(expense));
         expenseRepository.deleteById(id);
     }
 
     public BudgetSummaryDTO getBudgetSummary(UUID tripId) {
-        List<Expense> expenses = expenseRepository.findAllByTripId(tripId);
-
-        BigDecimal total = BigDecimal.ZERO;
-        Map<UUID, BigDecimal> paid = new HashMap<>();
-        Map<UUID, BigDecimal> share = new HashMap<>();
-
-        for (Expense expense : expenses) {
-            total = total.add(expense.getAmount());
-
-            paid.merge(expense.getPayerId(), expense.getAmount(), BigDecimal::add);
-
-            for (Map.Entry<UUID, BigDecimal> entry : expense.getParticipantShares().entrySet()) {
-                UUID participant = entry.getKey();
-                BigDecimal participantShare = expense.getAmount().multiply(entry.getValue());
-                share.merge(participant, participantShare, BigDecimal::add);
-            }
-        }
-
-        Map<UUID, BigDecimal> balance = new HashMap<>();
-        for (UUID participant : share.keySet()) {
-            BigDecimal paidAmount = paid.getOrDefault(participant, BigDecimal.ZERO);
-            BigDecimal shareAmount = share.get(participant);
-            balance.put(participant, paidAmount.subtract(shareAmount));
-        }
+        return budgetLedgerService.getSummary(tripId);
+    }
 
-        return new BudgetSummaryDTO(total, share, paid, balance);
+    /**
+     * Computes who should pay whom to settle the trip, based on the budget summary
+     * @param tripId ID of the trip
+     * @return Transfers that bring every balance to zero
+     */
+    public SettlementDTO getSettlement(UUID tripId) {
+        return SettlementCalculator.settle(getBudgetSummary(tripId));
     }
 
+    @Transactional
     public ExpenseDTO updateExpense(UUID id, ExpenseDTO dto, UUID currentUserId) {
         Expense existing = expenseRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Expense not found"));
 
         // ✅ MEMBER i ORGANIZER mogą edytować
         checkNotGuest(existing.getTripId(), currentUserId, "edytowania wydatków");
+        BudgetLedgerService.Contribution previous = BudgetLedgerService.Contribution.of(existing);
 
         existing.setAmount(dto.getAmount());
         existing.setCategory(dto.getCategory());
@@ -159,15 +193,19 @@ public ExpenseDTO addExpense(ExpenseDTO expenseDTO, UUID currentUserId) {
         existing.setPayerId(dto.getPayerId());
         existing.setParticipantShares(dto.getParticipantShares());
 
-        return enhanceWithParticipantNames(expenseRepository.save(existing));
+        Expense saved = expenseRepository.save(existing);
+        budgetLedgerService.replace(previous, BudgetLedgerService.Contribution.of(saved));
+        return enhanceWithParticipantNames(saved);
     }
 
+    @Transactional
     public ExpenseDTO patchExpense(UUID id, Map<String, Object> updates, UUID currentUserId) {
         Expense expense = expenseRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Expense not found"));
 
         // ✅ MEMBER i ORGANIZER mogą edytować
         checkNotGuest(expense.getTripId(), currentUserId, "edytowania wydatków");
+        BudgetLedgerService.Contribution previous = BudgetLedgerService.Contribution.of(expense);
 
         updates.forEach((key, value) -> {
             switch (key) {
@@ -219,6 +257,8 @@ public ExpenseDTO addExpense(ExpenseDTO expenseDTO, UUID currentUserId) {
             }
         });
 
-        return enhanceWithParticipantNames(expenseRepository.save(expense));
+        Expense saved = expenseRepository.save(expense);
+        budgetLedgerService.replace(previous, BudgetLedgerService.Contribution.of(saved));
+        return enhanceWithParticipantNames(saved);
     }
 }
\ No newline at end of file
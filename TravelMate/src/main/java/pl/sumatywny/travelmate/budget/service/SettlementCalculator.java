@@ -0,0 +1,146 @@
+package pl.sumatywny.travelmate.budget.service;
+
+import pl.sumatywny.travelmate.budget.dto.BudgetSummaryDTO;
+import pl.sumatywny.travelmate.budget.dto.SettlementDTO;
+import pl.sumatywny.travelmate.budget.dto.TransferDTO;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * Wylicza listę przelewów rozliczających wycieczkę na podstawie bilansów uczestników.
+ * Minimalna liczba przelewów to problem NP-trudny, więc stosujemy zachłanne dopasowanie
+ * (zawsze największy dłużnik płaci największemu wierzycielowi) – daje co najwyżej n-1 przelewów.
+ * Wcześniej łączymy pary o identycznych kwotach, co zwykle oszczędza kilka przelewów.
+ * Obliczenia są prowadzone w groszach na typie long, więc wynik jest dokładny.
+ */
+public final class SettlementCalculator {
+
+    private static final Comparator<Position> LARGEST_FIRST =
+            Comparator.comparingLong(Position::cents).reversed().thenComparing(Position::participantId);
+
+    private SettlementCalculator() {
+    }
+
+    private record Position(UUID participantId, long cents) {
+    }
+
+    /**
+     * Computes the settlement of a trip from its budget summary.
+     * Balances are recomputed as paid - share over all participants, so payers
+     * who do not share any expense are included as well.
+     */
+    public static SettlementDTO settle(BudgetSummaryDTO summary) {
+        Map<UUID, BigDecimal> balances = new HashMap<>();
+        summary.getActualPaid().forEach((id, paid) -> balances.merge(id, paid, BigDecimal::add));
+        summary.getParticipantShare().forEach((id, share) -> balances.merge(id, share.negate(), BigDecimal::add));
+
+        List<TransferDTO> transfers = transfers(balances);
+        long total = 0;
+        for (TransferDTO transfer : transfers) {
+            total += transfer.getAmount().unscaledValue().longValueExact();
+        }
+        return new SettlementDTO(transfers, BigDecimal.valueOf(total, 2));
+    }
+
+    /**
+     * Computes transfers that bring the given balances to zero
+     * @param balances Balance per participant (positive = overpaid, negative = underpaid)
+     * @return Transfers ordered from the largest amount
+     */
+    public static List<TransferDTO> transfers(Map<UUID, BigDecimal> balances) {
+        List<Position> positions = toCents(balances);
+        positions.sort(LARGEST_FIRST);
+
+        List<TransferDTO> transfers = new ArrayList<>();
+        PriorityQueue<Position> creditors = new PriorityQueue<>(LARGEST_FIRST);
+        PriorityQueue<Position> debtors = new PriorityQueue<>(LARGEST_FIRST);
+
+        // Pary o równych kwotach rozliczamy jednym przelewem, zanim zrobi to (lub nie) algorytm zachłanny
+        Map<Long, Deque<Position>> unmatchedCreditors = new HashMap<>();
+        for (Position position : positions) {
+            if (position.cents() > 0) {
+                unmatchedCreditors.computeIfAbsent(position.cents(), cents -> new ArrayDeque<>()).add(position);
+            }
+        }
+        for (Position position : positions) {
+            if (position.cents() >= 0) {
+                continue;
+            }
+            Deque<Position> sameAmount = unmatchedCreditors.get(-position.cents());
+            if (sameAmount != null && !sameAmount.isEmpty()) {
+                transfers.add(transfer(position.participantId(), sameAmount.poll().participantId(), -position.cents()));
+            } else {
+                debtors.add(new Position(position.participantId(), -position.cents()));
+            }
+        }
+        unmatchedCreditors.values().forEach(creditors::addAll);
+
+        while (!creditors.isEmpty() && !debtors.isEmpty()) {
+            Position creditor = creditors.poll();
+            Position debtor = debtors.poll();
+            long amount = Math.min(creditor.cents(), debtor.cents());
+            transfers.add(transfer(debtor.participantId(), creditor.participantId(), amount));
+
+            if (creditor.cents() > amount) {
+                creditors.add(new Position(creditor.participantId(), creditor.cents() - amount));
+            }
+            if (debtor.cents() > amount) {
+                debtors.add(new Position(debtor.participantId(), debtor.cents() - amount));
+            }
+        }
+        transfers.sort(Comparator.comparing(TransferDTO::getAmount).reversed());
+        return transfers;
+    }
+
+    // Zaokrągla bilanse do groszy metodą największych reszt: suma groszy jest równa zaokrąglonej sumie
+    // dokładnych bilansów (czyli 0), nawet gdy udziały typu 1/3 dają ułamki groszy. Każdy bilans jest najpierw
+    // zaokrąglany do najbliższego grosza, więc suma może wyjść za mała albo za duża – brakujące grosze dostają
+    // największe reszty (najmocniej zaokrąglone w dół), nadmiarowe są zabierane najmniejszym (najmocniej w górę)
+    private static List<Position> toCents(Map<UUID, BigDecimal> balances) {
+        List<UUID> ids = new ArrayList<>(balances.size());
+        long[] cents = new long[balances.size()];
+        BigDecimal[] remainders = new BigDecimal[balances.size()];
+        BigDecimal exactTotal = BigDecimal.ZERO;
+        long roundedTotal = 0;
+
+        int i = 0;
+        for (Map.Entry<UUID, BigDecimal> entry : balances.entrySet()) {
+            BigDecimal scaled = entry.getValue().movePointRight(2);
+            BigDecimal rounded = scaled.setScale(0, RoundingMode.HALF_UP);
+            ids.add(entry.getKey());
+            cents[i] = rounded.longValueExact();
+            remainders[i] = scaled.subtract(rounded);
+            exactTotal = exactTotal.add(scaled);
+            roundedTotal += cents[i];
+            i++;
+        }
+
+        long missing = exactTotal.setScale(0, RoundingMode.HALF_EVEN).longValueExact() - roundedTotal;
+        if (missing != 0) {
+            Integer[] order = new Integer[ids.size()];
+            for (int j = 0; j < order.length; j++) {
+                order[j] = j;
+            }
+            Comparator<Integer> byRemainder = Comparator.comparing(j -> remainders[j]);
+            Arrays.sort(order, (missing > 0 ? byRemainder.reversed() : byRemainder).thenComparing(ids::get));
+            long step = Long.signum(missing);
+            for (int j = 0; j < Math.abs(missing); j++) {
+                cents[order[j]] += step;
+            }
+        }
+
+        List<Position> positions = new ArrayList<>(ids.size());
+        for (int j = 0; j < ids.size(); j++) {
+            if (cents[j] != 0) {
+                positions.add(new Position(ids.get(j), cents[j]));
+            }
+        }
+        return positions;
+    }
+
+    private static TransferDTO transfer(UUID from, UUID to, long cents) {
+        return new TransferDTO(from, to, BigDecimal.valueOf(cents, 2));
+    }
+}
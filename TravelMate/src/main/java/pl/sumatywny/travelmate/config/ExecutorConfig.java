@@ -0,0 +1,54 @@
+package pl.sumatywny.travelmate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ExecutorConfig {
+
+    public static final String PLACES_LOOKUP_EXECUTOR = "placesLookupExecutor";
+    public static final String REPORT_EXECUTOR = "reportExecutor";
+
+    /**
+     * Bounded pool for Google Places lookups made while enriching a generated plan.
+     * Shared by all requests, so the number of concurrent calls to Google never exceeds the pool size.
+     */
+    @Bean(name = PLACES_LOOKUP_EXECUTOR, destroyMethod = "shutdown")
+    public ExecutorService placesLookupExecutor(
+            @Value("${travelmate.places.lookup-concurrency:8}") int lookupConcurrency,
+            @Value("${" + VirtualThreadConfig.ENABLED_PROPERTY + ":false}") boolean virtualThreads) {
+        return Executors.newFixedThreadPool(lookupConcurrency, threadFactory("places-lookup-", virtualThreads));
+    }
+
+    /**
+     * Worker pool for PDF trip reports. Both the workers and the queue are bounded;
+     * once the queue is full new jobs are rejected (503) instead of piling up.
+     */
+    @Bean(name = REPORT_EXECUTOR, destroyMethod = "shutdown")
+    public ExecutorService reportExecutor(
+            @Value("${travelmate.reports.workers:2}") int workers,
+            @Value("${travelmate.reports.queue-capacity:20}") int queueCapacity,
+            @Value("${" + VirtualThreadConfig.ENABLED_PROPERTY + ":false}") boolean virtualThreads) {
+        return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory("report-worker-", virtualThreads), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Limity pul zostają te same; w trybie wirtualnym zablokowany wątek nie trzyma wątku platformy
+    private static ThreadFactory threadFactory(String prefix, boolean virtualThreads) {
+        if (virtualThreads) {
+            return VirtualThreadConfig.virtualThreadFactory(prefix);
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+}
@@ -0,0 +1,85 @@
+package pl.sumatywny.travelmate.config;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in a keyset-paginated list: the sort key and the id of the last returned row.
+ * Sent to clients as an opaque base64url token.
+ */
+public record KeysetCursor(String key, String id) {
+
+    private static final String SEPARATOR = "|";
+
+    public static KeysetCursor of(Object key, Object id) {
+        return new KeysetCursor(key != null ? key.toString() : "", id.toString());
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((key + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException when the token wasn't produced by {@link #encode()}
+     */
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw invalid();
+            }
+            return new KeysetCursor(decoded.substring(0, separator), decoded.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+    }
+
+    /**
+     * False when the last row had no sort key (null), which {@link #of} encodes as an empty key
+     */
+    public boolean hasKey() {
+        return !key.isEmpty();
+    }
+
+    public LocalDate keyAsDate() {
+        try {
+            return LocalDate.parse(key);
+        } catch (DateTimeParseException e) {
+            throw invalid();
+        }
+    }
+
+    public LocalDateTime keyAsDateTime() {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (DateTimeParseException e) {
+            throw invalid();
+        }
+    }
+
+    public UUID idAsUuid() {
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+    }
+
+    public Long idAsLong() {
+        try {
+            return Long.valueOf(id);
+        } catch (NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    private static IllegalArgumentException invalid() {
+        return new IllegalArgumentException("Invalid cursor");
+    }
+}
@@ -0,0 +1,30 @@
+package pl.sumatywny.travelmate.config;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated list
+ * @param items Rows of the page
+ * @param nextCursor Cursor of the following page, null on the last page
+ */
+public record KeysetPage<T>(List<T> items, String nextCursor) {
+
+    /**
+     * Builds a page from rows fetched with {@code limit + 1}: the extra row only signals that a next page exists
+     * @param fetched Rows in sort order, at most limit + 1
+     * @param limit Requested page size
+     * @param cursorOf Cursor pointing just after the given row
+     */
+    public static <T> KeysetPage<T> of(List<T> fetched, int limit, Function<T, KeysetCursor> cursorOf) {
+        if (fetched.size() <= limit) {
+            return new KeysetPage<>(fetched, null);
+        }
+        List<T> items = fetched.subList(0, limit);
+        return new KeysetPage<>(items, cursorOf.apply(items.get(limit - 1)).encode());
+    }
+
+    public <R> KeysetPage<R> map(Function<T, R> mapper) {
+        return new KeysetPage<>(items.stream().map(mapper).toList(), nextCursor);
+    }
+}
@@ -0,0 +1,56 @@
+package pl.sumatywny.travelmate.config;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+/**
+ * Shared rules of the {@code limit}/{@code cursor} list parameters
+ */
+public final class Pagination {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private Pagination() {
+    }
+
+    /**
+     * Pagination is opt-in: a request without limit and cursor gets the whole list
+     */
+    public static boolean isRequested(Integer limit, String cursor) {
+        return limit != null || cursor != null;
+    }
+
+    /**
+     * @throws IllegalArgumentException when the limit is outside 1..{@value #MAX_LIMIT}
+     */
+    public static int checkLimit(Integer limit) {
+        int value = limit != null ? limit : DEFAULT_LIMIT;
+        if (value < 1 || value > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        return value;
+    }
+
+    /**
+     * Fetches one row more than the limit, see {@link KeysetPage#of}
+     */
+    public static Pageable fetchLimit(int limit) {
+        return PageRequest.of(0, limit + 1);
+    }
+
+    /**
+     * Page rows as the body, next cursor (if any) in the {@value #NEXT_CURSOR_HEADER} header
+     */
+    public static <T> ResponseEntity<List<T>> response(KeysetPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+}
@@ -0,0 +1,15 @@
+package pl.sumatywny.travelmate.config;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Generating a trip report failed, e.g. OpenAI returned an error or the PDF could not be rendered
+ */
+@ResponseStatus(HttpStatus.BAD_GATEWAY)
+public class ReportGenerationException extends RuntimeException {
+
+    public ReportGenerationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
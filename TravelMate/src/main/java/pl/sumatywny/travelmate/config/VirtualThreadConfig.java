@@ -0,0 +1,67 @@
+package pl.sumatywny.travelmate.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Opcjonalny tryb wirtualnych wątków ({@code travelmate.threads.virtual.enabled=true}).
+ * Żądania Tomcata, zadania asynchroniczne (SSE, StreamingResponseBody, {@code @Async}) i zadania
+ * {@code @Scheduled} działają wtedy na wątkach wirtualnych, więc wywołania {@code .block()} na
+ * WebClientach OpenAI / Google nie zajmują wątków platformy i nie blokują reszty ruchu.
+ * Pule wywołań wychodzących z {@link ExecutorConfig} zachowują swoje limity, ale też dostają wątki wirtualne.
+ *
+ * <p>Spring Boot 3.1 nie ma jeszcze {@code spring.threads.virtual.enabled}, stąd własna konfiguracja.
+ * Połączenia z bazą nadal ogranicza pula Hikari – wątki ponad jej rozmiar czekają na połączenie.
+ */
+@Configuration
+@ConditionalOnProperty(name = VirtualThreadConfig.ENABLED_PROPERTY, havingValue = "true")
+public class VirtualThreadConfig {
+
+    public static final String ENABLED_PROPERTY = "travelmate.threads.virtual.enabled";
+
+    /**
+     * Runs every Tomcat request on its own virtual thread instead of the bounded worker pool
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor("tomcat-handler-"));
+    }
+
+    /**
+     * Replaces Boot's application task executor; also used by Spring MVC for async request processing
+     */
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(virtualThreadExecutor("task-"));
+    }
+
+    /**
+     * Scheduler whose {@code @Scheduled} jobs (cache and report cleanup) run on virtual threads
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadFactory(virtualThreadFactory("scheduling-"));
+        return scheduler;
+    }
+
+    static ThreadFactory virtualThreadFactory(String prefix) {
+        return Thread.ofVirtual().name(prefix, 0).factory();
+    }
+
+    private static ExecutorService virtualThreadExecutor(String prefix) {
+        return Executors.newThreadPerTaskExecutor(virtualThreadFactory(prefix));
+    }
+}
@@ -0,0 +1,114 @@
+package pl.sumatywny.travelmate.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Wspólna konfiguracja wywołań wychodzących (OpenAI, Google Places). Każdy host ma własną pulę połączeń
+ * Reactor Netty z limitem połączeń i kolejki oczekujących, więc zawieszony upstream nie zajmie puli drugiego.
+ * Połączenia mają timeout nawiązania i odczytu, keep-alive, kompresję gzip i HTTP/2 (ALPN) dla adresów https.
+ *
+ * <p>Klienci są budowani z {@link WebClient.Builder} Spring Boota, więc każde wywołanie trafia do metryki
+ * {@code http.client.requests} (opóźnienia); pule raportują {@code reactor.netty.connection.provider.*}
+ * (aktywne, bezczynne i oczekujące połączenia). Limit całego wywołania ustawiają serwisy – strumienie SSE
+ * z OpenAI nie mają stałego czasu trwania.
+ */
+@Configuration
+public class WebClientConfig {
+
+    public static final String OPENAI_WEB_CLIENT = "openAiWebClient";
+    public static final String GOOGLE_PLACES_WEB_CLIENT = "googlePlacesWebClient";
+
+    private static final String OPENAI_POOL = "openAiConnectionProvider";
+    private static final String GOOGLE_PLACES_POOL = "googlePlacesConnectionProvider";
+
+    @Value("${travelmate.http.connect-timeout:PT5S}")
+    private Duration connectTimeout;
+
+    @Value("${travelmate.http.pending-acquire-timeout:PT5S}")
+    private Duration pendingAcquireTimeout;
+
+    @Value("${travelmate.http.max-idle-time:PT30S}")
+    private Duration maxIdleTime;
+
+    @Value("${travelmate.http.max-in-memory-size:2MB}")
+    private DataSize maxInMemorySize;
+
+    @Bean(name = OPENAI_POOL, destroyMethod = "dispose")
+    public ConnectionProvider openAiConnectionProvider(
+            @Value("${travelmate.http.openai.max-connections:50}") int maxConnections) {
+        return connectionProvider("openai", maxConnections);
+    }
+
+    @Bean(name = GOOGLE_PLACES_POOL, destroyMethod = "dispose")
+    public ConnectionProvider googlePlacesConnectionProvider(
+            @Value("${travelmate.http.google.max-connections:50}") int maxConnections) {
+        return connectionProvider("google-places", maxConnections);
+    }
+
+    /**
+     * Client for the OpenAI API. The read timeout is the longest pause between two chunks of a response,
+     * so it also covers streamed completions
+     */
+    @Bean(name = OPENAI_WEB_CLIENT)
+    public WebClient openAiWebClient(WebClient.Builder builder,
+                                     @Qualifier(OPENAI_POOL) ConnectionProvider connectionProvider,
+                                     @Value("${travelmate.http.openai.base-url:https://api.openai.com/v1}") String baseUrl,
+                                     @Value("${travelmate.http.openai.read-timeout:PT60S}") Duration readTimeout) {
+        return webClient(builder, connectionProvider, baseUrl, readTimeout);
+    }
+
+    /**
+     * Client for the Google Maps Places API
+     */
+    @Bean(name = GOOGLE_PLACES_WEB_CLIENT)
+    public WebClient googlePlacesWebClient(WebClient.Builder builder,
+                                           @Qualifier(GOOGLE_PLACES_POOL) ConnectionProvider connectionProvider,
+                                           @Value("${travelmate.http.google.base-url:https://maps.googleapis.com/maps/api}") String baseUrl,
+                                           @Value("${travelmate.http.google.read-timeout:PT10S}") Duration readTimeout) {
+        return webClient(builder, connectionProvider, baseUrl, readTimeout);
+    }
+
+    private ConnectionProvider connectionProvider(String name, int maxConnections) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(maxConnections)
+                // Gdy pula jest pełna, żądania czekają w ograniczonej kolejce, a potem dostają błąd
+                .pendingAcquireMaxCount(maxConnections * 4)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .evictInBackground(maxIdleTime)
+                .metrics(true)
+                .build();
+    }
+
+    private WebClient webClient(WebClient.Builder builder, ConnectionProvider connectionProvider, String baseUrl,
+                                Duration readTimeout) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(readTimeout)
+                .compress(true);
+        // HTTP/2 negocjowane przez ALPN, więc tylko po TLS; w przeciwnym razie zostaje HTTP/1.1
+        if (baseUrl.startsWith("https:")) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+        }
+
+        // Builder Spring Boota (prototyp) ma już podpięte obserwacje i kodeki Jacksona
+        return builder
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize((int) maxInMemorySize.toBytes()))
+                .build();
+    }
+}
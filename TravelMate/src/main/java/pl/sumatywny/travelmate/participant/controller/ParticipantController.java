@@ -15,6 +15,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import pl.sumatywny.travelmate.config.Pagination;
 import pl.sumatywny.travelmate.participant.dto.InvitationResponseDTO;
 import pl.sumatywny.travelmate.participant.dto.ParticipantDTO;
 import pl.sumatywny.travelmate.participant.service.ParticipantService;
@@ -60,10 +61,22 @@ public class ParticipantController {
                     required = true,
                     example = "b7c308ff-4906-4c63-bc8a-27a3ac0aa8f3"
             )
-            @PathVariable UUID tripId
+            @PathVariable UUID tripId,
+            @Parameter(description = "Page size (1-500); enables keyset pagination. The next page cursor is returned in the X-Next-Cursor header")
+            @RequestParam(required = false) Integer limit,
+            @Parameter(description = "Value of X-Next-Cursor from the previous page")
+            @RequestParam(required = false) String cursor
     ) {
         UUID currentUserId = getCurrentUserId();
 
+        if (Pagination.isRequested(limit, cursor)) {
+            int pageLimit = Pagination.checkLimit(limit);
+            if (!participantService.isParticipant(tripId, currentUserId)) {
+                throw new RuntimeException("Access denied: You are not a participant in this trip");
+            }
+            return Pagination.response(participantService.getParticipantsByTrip(tripId, pageLimit, cursor));
+        }
+
         // Check if current user is a participant in this trip
         List<ParticipantDTO> allParticipants = participantService.getParticipantsByTrip(tripId);
         boolean isParticipant = allParticipants.stream()
@@ -12,7 +12,14 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "participants")
+@Table(name = "participants", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_participants_trip_user", columnNames = {"tripId", "userId"})
+}, indexes = {
+        @Index(name = "idx_participants_trip_created", columnList = "tripId, created_at, id"),
+        @Index(name = "idx_participants_user_trip", columnList = "userId, tripId"),
+        @Index(name = "idx_participants_trip_email", columnList = "tripId, email"),
+        @Index(name = "idx_participants_user_status", columnList = "userId, status")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -1,10 +1,14 @@
 package pl.sumatywny.travelmate.participant.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import pl.sumatywny.travelmate.participant.model.InvitationStatus;
 import pl.sumatywny.travelmate.participant.model.Participant;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -69,4 +73,30 @@ public interface ParticipantRepository extends JpaRepository<Participant, UUID>
      */
     boolean existsByTripIdAndEmail(UUID tripId, String email);
     Participant getParticipantByEmail(String email);
+
+    /**
+     * First page of the trip participants in (createdAt, id) order.
+     *
+     * @param tripId The ID of the trip
+     * @param pageable Fetch size (page number is ignored)
+     * @return Participants of the page
+     */
+    @Query("SELECT p FROM Participant p WHERE p.tripId = :tripId ORDER BY p.createdAt, p.id")
+    List<Participant> findPageByTripId(@Param("tripId") UUID tripId, Pageable pageable);
+
+    /**
+     * Next page of the trip participants, after the (createdAt, id) position of the previous one.
+     *
+     * @param tripId The ID of the trip
+     * @param createdAt Creation time of the last participant of the previous page
+     * @param id ID of the last participant of the previous page
+     * @param pageable Fetch size (page number is ignored)
+     * @return Participants of the page
+     */
+    @Query("SELECT p FROM Participant p WHERE p.tripId = :tripId " +
+            "AND (p.createdAt > :createdAt OR (p.createdAt = :createdAt AND p.id > :id)) ORDER BY p.createdAt, p.id")
+    List<Participant> findPageByTripIdAfter(@Param("tripId") UUID tripId,
+                                            @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("id") UUID id,
+                                            Pageable pageable);
 }
\ No newline at end of file
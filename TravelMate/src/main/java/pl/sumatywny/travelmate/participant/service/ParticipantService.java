@@ -2,7 +2,10 @@ package pl.sumatywny.travelmate.participant.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import pl.sumatywny.travelmate.config.KeysetCursor;
+import pl.sumatywny.travelmate.config.KeysetPage;
 import pl.sumatywny.travelmate.config.NotFoundException;
+import pl.sumatywny.travelmate.config.Pagination;
 import pl.sumatywny.travelmate.participant.dto.ParticipantDTO;
 import pl.sumatywny.travelmate.participant.model.InvitationStatus;
 import pl.sumatywny.travelmate.participant.model.Participant;
@@ -13,6 +16,7 @@ import pl.sumatywny.travelmate.security.service.UserService;
 import java.time.LocalDateTime;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -127,6 +131,7 @@ public class ParticipantService {
                     existing.setRole(participantDTO.getRole()); // Update role in case it changed
                     existing.setStatus(InvitationStatus.PENDING); // Reset to pending
                     Participant updated = participantRepository.save(existing);
+                    permissionService.evict(updated.getTripId(), updated.getUserId());
                     return participantMapper.toDTO(updated);
                 }
             }
@@ -145,6 +150,7 @@ public class ParticipantService {
             System.out.println("Saving to repository");
             Participant saved = participantRepository.save(participant);
             System.out.println("Saved entity with ID: " + saved.getId());
+            permissionService.evict(saved.getTripId(), saved.getUserId());
             return participantMapper.toDTO(saved);
         } catch (Exception e) {
             System.err.println("Error in addParticipant: " + e.getClass().getName() + ": " + e.getMessage());
@@ -216,6 +222,7 @@ public class ParticipantService {
 
         // Zapisanie i zwrócenie
         Participant updated = participantRepository.save(existing);
+        permissionService.evict(existing.getTripId(), existing.getUserId());
         return participantMapper.toDTO(updated);
     }
 
@@ -237,6 +244,7 @@ public class ParticipantService {
         }
 
         participantRepository.deleteById(id);
+        permissionService.evict(participant.getTripId(), participant.getUserId());
     }
 
     /**
@@ -264,6 +272,7 @@ public class ParticipantService {
         }
 
         participantRepository.delete(participant);
+        permissionService.evict(participant.getTripId(), participant.getUserId());
     }
 
 // Replace your existing getParticipantsByTrip method with this:
@@ -292,6 +301,53 @@ public class ParticipantService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Zwraca jedną stronę uczestników wycieczki w kolejności (createdAt, id).
+     * Dane użytkowników strony są pobierane jednym zapytaniem.
+     *
+     * @param tripId ID wycieczki
+     * @param limit Rozmiar strony
+     * @param cursor Kursor zwrócony z poprzednią stroną lub null dla pierwszej strony
+     * @return Strona uczestników jako DTO z pełnymi danymi użytkownika
+     * @throws IllegalArgumentException Jeśli kursor jest nieprawidłowy
+     */
+    public KeysetPage<ParticipantDTO> getParticipantsByTrip(UUID tripId, int limit, String cursor) {
+        List<Participant> fetched;
+        if (cursor == null) {
+            fetched = participantRepository.findPageByTripId(tripId, Pagination.fetchLimit(limit));
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            fetched = participantRepository.findPageByTripIdAfter(tripId, after.keyAsDateTime(), after.idAsUuid(),
+                    Pagination.fetchLimit(limit));
+        }
+        KeysetPage<Participant> page = KeysetPage.of(fetched, limit,
+                p -> KeysetCursor.of(p.getCreatedAt(), p.getId()));
+
+        Map<UUID, User> users = userService.findAllByIds(
+                page.items().stream().map(Participant::getUserId).collect(Collectors.toSet()));
+        return page.map(participant -> {
+            ParticipantDTO dto = participantMapper.toDTO(participant);
+            User user = users.get(participant.getUserId());
+            if (user != null) {
+                dto.setEmail(user.getEmail());
+                dto.setFirstName(user.getFirstName());
+                dto.setLastName(user.getLastName());
+            }
+            return dto;
+        });
+    }
+
+    /**
+     * Sprawdza, czy użytkownik jest uczestnikiem wycieczki (niezależnie od statusu zaproszenia).
+     *
+     * @param tripId ID wycieczki
+     * @param userId ID użytkownika
+     * @return true jeśli istnieje rekord uczestnika
+     */
+    public boolean isParticipant(UUID tripId, UUID userId) {
+        return permissionService.isParticipant(tripId, userId);
+    }
+
     /**
      * Przetwarza odpowiedź na zaproszenie do wycieczki używając ID uczestnika.
      *
@@ -332,6 +388,7 @@ public class ParticipantService {
         }
 
         Participant updated = participantRepository.save(participant);
+        permissionService.evict(participant.getTripId(), participant.getUserId());
 
         // Zwrócenie zaktualizowanego DTO
         return participantMapper.toDTO(updated);
@@ -379,6 +436,7 @@ public class ParticipantService {
             participant.setJoinedAt(LocalDateTime.now());
         }
         Participant updated = participantRepository.save(participant);
+        permissionService.evict(participant.getTripId(), participant.getUserId());
 
         // Zwrócenie zaktualizowanego DTO
         return participantMapper.toDTO(updated);
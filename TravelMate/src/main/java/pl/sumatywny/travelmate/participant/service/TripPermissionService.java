@@ -1,19 +1,96 @@
 package pl.sumatywny.travelmate.participant.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import pl.sumatywny.travelmate.participant.model.InvitationStatus;
 import pl.sumatywny.travelmate.participant.model.ParticipantRole;
 import pl.sumatywny.travelmate.participant.repository.ParticipantRepository;
 
+import java.time.Duration;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class TripPermissionService {
 
+    // Krótki TTL ogranicza nieaktualność wpisów, gdy zmiana przyszła z innej instancji aplikacji
+    static final Duration MEMBERSHIP_TTL = Duration.ofSeconds(30);
+    static final long MEMBERSHIP_CACHE_SIZE = 10_000;
+
     private final ParticipantRepository participantRepository;
 
+    /**
+     * Role and invitation status of a user in a trip, keyed by (tripId, userId).
+     * Empty values are cached too, so repeated checks for non-participants don't hit the database.
+     */
+    private final Cache<MembershipKey, Optional<Membership>> memberships = Caffeine.newBuilder()
+            .expireAfterWrite(MEMBERSHIP_TTL)
+            .maximumSize(MEMBERSHIP_CACHE_SIZE)
+            .build();
+
+    private record MembershipKey(UUID tripId, UUID userId) {
+    }
+
+    private record Membership(ParticipantRole role, InvitationStatus status) {
+    }
+
+    private Optional<Membership> getMembership(UUID tripId, UUID userId) {
+        return memberships.get(new MembershipKey(tripId, userId), key ->
+                participantRepository.findByTripIdAndUserId(key.tripId(), key.userId())
+                        .map(participant -> new Membership(participant.getRole(), participant.getStatus())));
+    }
+
+    /**
+     * Usuwa z cache uprawnienia użytkownika w wycieczce – wywoływane po każdej zmianie uczestnika.
+     * W transakcji wpis znika dopiero po commicie
+     *
+     * @param tripId ID wycieczki
+     * @param userId ID użytkownika
+     */
+    public void evict(UUID tripId, UUID userId) {
+        afterCommit(() -> memberships.invalidate(new MembershipKey(tripId, userId)));
+    }
+
+    /**
+     * Usuwa z cache uprawnienia wszystkich użytkowników wycieczki. W transakcji – dopiero po commicie
+     *
+     * @param tripId ID wycieczki
+     */
+    public void evictTrip(UUID tripId) {
+        afterCommit(() -> memberships.asMap().keySet().removeIf(key -> key.tripId().equals(tripId)));
+    }
+
+    // Usunięcie przed commitem pozwoliłoby równoległemu odczytowi wczytać z bazy starą rolę i trzymać ją
+    // przez cały TTL. Po commicie invalidate czeka na trwające ładowanie klucza, więc stary wpis nie wróci.
+    private static void afterCommit(Runnable eviction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eviction.run();
+            }
+        });
+    }
+
+    /**
+     * Sprawdza czy użytkownik jest uczestnikiem wycieczki (niezależnie od statusu zaproszenia)
+     *
+     * @param tripId ID wycieczki
+     * @param userId ID użytkownika
+     * @return true jeśli istnieje rekord uczestnika
+     */
+    public boolean isParticipant(UUID tripId, UUID userId) {
+        return getMembership(tripId, userId).isPresent();
+    }
+
     /**
      * Pobiera rolę użytkownika w wycieczce
      *
@@ -23,8 +100,8 @@ public class TripPermissionService {
      */
     public ParticipantRole getUserRole(UUID tripId, UUID userId) {
 
-        return participantRepository.findByTripIdAndUserId(tripId, userId)
-                .map(participant -> participant.getRole())
+        return getMembership(tripId, userId)
+                .map(Membership::role)
                 .orElse(null);
     }
 
@@ -92,7 +169,9 @@ public class TripPermissionService {
      */
     public boolean canManageParticipant(UUID tripId, UUID userId, UUID participantId) {
 
-        if (participantRepository.findById(participantId).isEmpty()) {
+        Optional<UUID> participantUserId = participantRepository.findById(participantId)
+                .map(participant -> participant.getUserId());
+        if (participantUserId.isEmpty()) {
             return false; // Can't manage a non-existent participant
         }
 
@@ -110,9 +189,7 @@ public class TripPermissionService {
 
         // Pozostali użytkownicy mogą zarządzać tylko sobą
         // Sprawdzamy, czy participantId odpowiada rekordowi z userId użytkownika
-        return participantRepository.findById(participantId)
-                .map(participant -> participant.getUserId().equals(userId))
-                .orElse(false);
+        return participantUserId.get().equals(userId);
     }
 
 
@@ -155,8 +232,8 @@ public class TripPermissionService {
      * @return true jeśli użytkownik ma status ACCEPTED
      */
     public boolean isAcceptedParticipant(UUID tripId, UUID userId) {
-        return participantRepository.findByTripIdAndUserId(tripId, userId)
-                .map(participant -> participant.getStatus() == InvitationStatus.ACCEPTED)
+        return getMembership(tripId, userId)
+                .map(membership -> membership.status() == InvitationStatus.ACCEPTED)
                 .orElse(false);
     }
 
@@ -167,9 +244,9 @@ public class TripPermissionService {
      * @return Rola użytkownika lub null jeśli nie jest zaakceptowanym uczestnikiem
      */
     public ParticipantRole getAcceptedUserRole(UUID tripId, UUID userId) {
-        return participantRepository.findByTripIdAndUserId(tripId, userId)
-                .filter(participant -> participant.getStatus() == InvitationStatus.ACCEPTED)
-                .map(participant -> participant.getRole())
+        return getMembership(tripId, userId)
+                .filter(membership -> membership.status() == InvitationStatus.ACCEPTED)
+                .map(Membership::role)
                 .orElse(null);
     }
 
@@ -4,6 +4,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import pl.sumatywny.travelmate.config.Pagination;
 import pl.sumatywny.travelmate.reports.dto.NoteDTO;
 import pl.sumatywny.travelmate.reports.service.ReportService;
 
@@ -19,9 +20,18 @@ public class ReportController {
         this.reportService = reportService;
     }
 
+    /**
+     * Notes of the trip ordered by (date, id). Without limit/cursor all notes are returned;
+     * otherwise one page, with the cursor of the next one in the X-Next-Cursor header.
+     */
     @GetMapping(value = "/notes/trip/{tripId}")
-    public ResponseEntity<List<NoteDTO>> getTripNotes(@PathVariable("tripId") UUID tripId) {
-        return ResponseEntity.ok(reportService.getTripNotes(tripId));
+    public ResponseEntity<List<NoteDTO>> getTripNotes(@PathVariable("tripId") UUID tripId,
+                                                      @RequestParam(required = false) Integer limit,
+                                                      @RequestParam(required = false) String cursor) {
+        if (!Pagination.isRequested(limit, cursor)) {
+            return ResponseEntity.ok(reportService.getTripNotes(tripId));
+        }
+        return Pagination.response(reportService.getTripNotes(tripId, Pagination.checkLimit(limit), cursor));
     }
 
     @GetMapping(value = "/notes/point/{pointId}")
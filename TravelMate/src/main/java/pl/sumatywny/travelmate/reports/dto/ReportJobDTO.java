@@ -0,0 +1,48 @@
+package pl.sumatywny.travelmate.reports.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pl.sumatywny.travelmate.reports.model.ReportJob;
+import pl.sumatywny.travelmate.reports.model.ReportJobStatus;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "State of a trip report generation job")
+public class ReportJobDTO {
+    private UUID id;
+
+    private UUID tripId;
+
+    @Schema(description = "QUEUED, RUNNING, DONE or FAILED")
+    private ReportJobStatus status;
+
+    @Schema(description = "Failure reason, set only for FAILED jobs")
+    private String error;
+
+    private Instant createdAt;
+
+    private Instant finishedAt;
+
+    @Schema(description = "Where the finished PDF can be downloaded")
+    private String downloadUrl;
+
+    public static ReportJobDTO from(ReportJob job, String downloadUrl) {
+        return ReportJobDTO.builder()
+                .id(job.getId())
+                .tripId(job.getTripId())
+                .status(job.getStatus())
+                .error(job.getError())
+                .createdAt(job.getCreatedAt())
+                .finishedAt(job.getFinishedAt())
+                .downloadUrl(downloadUrl)
+                .build();
+    }
+}
@@ -13,6 +13,10 @@ import java.util.UUID;
 @Setter
 @Getter
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_note_trip_date", columnList = "trip_id, date, id"),
+        @Index(name = "idx_note_point", columnList = "point_id")
+})
 public class Note {
     @Id
     @GeneratedValue()
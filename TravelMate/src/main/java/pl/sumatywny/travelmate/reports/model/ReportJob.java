@@ -0,0 +1,53 @@
+package pl.sumatywny.travelmate.reports.model;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * In-memory state of a single trip-report generation.
+ * Status fields are written by the report worker and read by request threads.
+ */
+@Getter
+public class ReportJob {
+
+    private final UUID id = UUID.randomUUID();
+    private final UUID tripId;
+    // trip + skrót notatek; identyczne zlecenia współdzielą jeden plik
+    private final String cacheKey;
+    private final Instant createdAt = Instant.now();
+    private final CompletableFuture<Path> result = new CompletableFuture<>();
+
+    private volatile ReportJobStatus status = ReportJobStatus.QUEUED;
+    private volatile String error;
+    private volatile Instant finishedAt;
+
+    public ReportJob(UUID tripId, String cacheKey) {
+        this.tripId = tripId;
+        this.cacheKey = cacheKey;
+    }
+
+    public void markRunning() {
+        status = ReportJobStatus.RUNNING;
+    }
+
+    public void complete(Path file) {
+        finishedAt = Instant.now();
+        status = ReportJobStatus.DONE;
+        result.complete(file);
+    }
+
+    public void fail(Throwable cause) {
+        finishedAt = Instant.now();
+        error = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        status = ReportJobStatus.FAILED;
+        result.completeExceptionally(cause);
+    }
+
+    public boolean isFinished() {
+        return status == ReportJobStatus.DONE || status == ReportJobStatus.FAILED;
+    }
+}
@@ -0,0 +1,8 @@
+package pl.sumatywny.travelmate.reports.model;
+
+public enum ReportJobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+}
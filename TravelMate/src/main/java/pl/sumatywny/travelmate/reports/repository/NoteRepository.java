@@ -1,12 +1,15 @@
 package pl.sumatywny.travelmate.reports.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import pl.sumatywny.travelmate.reports.entity.Note;
 import pl.sumatywny.travelmate.trip.model.Point;
 import pl.sumatywny.travelmate.trip.model.Trip;
 
-import java.util.Collection;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
@@ -17,4 +20,44 @@ public interface NoteRepository extends JpaRepository<Note, UUID> {
     Note getNoteById(UUID noteId);
 
     List<Note> getNotesByPoint(Point point);
+
+    String SUMMARY_SELECT = "select n.id as id, n.date as date, n.content as content, " +
+            "p.id as pointId, p.title as pointName, p.date as pointDate " +
+            "from Note n left join n.point p ";
+
+    // note.date bywa null – takie notatki są zawsze na końcu (tak też leżą w indeksie PostgreSQL)
+    String SUMMARY_ORDER = "order by n.date nulls last, n.id";
+
+    /**
+     * Notes of the trip with their point, oldest first and undated last, in a single query
+     */
+    @Query(SUMMARY_SELECT + "where n.trip.id = :tripId " + SUMMARY_ORDER)
+    List<NoteSummary> findSummariesByTripId(@Param("tripId") UUID tripId);
+
+    /**
+     * First page of {@link #findSummariesByTripId(UUID)}; fetch size taken from the pageable
+     */
+    @Query(SUMMARY_SELECT + "where n.trip.id = :tripId " + SUMMARY_ORDER)
+    List<NoteSummary> findSummaryPageByTripId(@Param("tripId") UUID tripId, Pageable pageable);
+
+    /**
+     * Next page after a dated note: later (date, id) positions, then all undated notes
+     */
+    @Query(SUMMARY_SELECT + "where n.trip.id = :tripId " +
+            "and (n.date > :date or (n.date = :date and n.id > :id) or n.date is null) " + SUMMARY_ORDER)
+    List<NoteSummary> findSummaryPageByTripIdAfter(@Param("tripId") UUID tripId,
+                                                   @Param("date") LocalDate date,
+                                                   @Param("id") UUID id,
+                                                   Pageable pageable);
+
+    /**
+     * Next page after an undated note: the remaining undated notes in id order
+     */
+    @Query(SUMMARY_SELECT + "where n.trip.id = :tripId and n.date is null and n.id > :id " + SUMMARY_ORDER)
+    List<NoteSummary> findUndatedSummaryPageByTripIdAfter(@Param("tripId") UUID tripId,
+                                                          @Param("id") UUID id,
+                                                          Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "where p.id = :pointId " + SUMMARY_ORDER)
+    List<NoteSummary> findSummariesByPointId(@Param("pointId") Long pointId);
 }
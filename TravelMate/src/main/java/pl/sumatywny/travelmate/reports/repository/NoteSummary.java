@@ -0,0 +1,21 @@
+package pl.sumatywny.travelmate.reports.repository;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Read-only view of a note joined with its point, used for listings and the trip report
+ */
+public interface NoteSummary {
+    UUID getId();
+
+    LocalDate getDate();
+
+    String getContent();
+
+    Long getPointId();
+
+    String getPointName();
+
+    LocalDate getPointDate();
+}
@@ -0,0 +1,263 @@
+package pl.sumatywny.travelmate.reports.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.sumatywny.travelmate.config.ExecutorConfig;
+import pl.sumatywny.travelmate.config.NotFoundException;
+import pl.sumatywny.travelmate.config.ReportGenerationException;
+import pl.sumatywny.travelmate.reports.model.ReportJob;
+import pl.sumatywny.travelmate.trip.model.Trip;
+import pl.sumatywny.travelmate.trip.service.OpenAiService;
+import pl.sumatywny.travelmate.trip.service.TripService;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * Queued generation of PDF trip reports.
+ * Jobs run on the bounded report executor. A finished PDF is stored on disk under the trip id and
+ * a SHA-256 of its input (trip name + notes), so a report whose notes didn't change is returned without
+ * calling OpenAI again, and identical jobs submitted while one is running share its result.
+ * Older versions of a trip's report are deleted once no retained job points at them.
+ */
+@Slf4j
+@Service
+public class ReportJobService {
+
+    private final ReportService reportService;
+    private final TripService tripService;
+    private final OpenAiService openAiService;
+    private final ReportPdfRenderer pdfRenderer;
+    private final Executor reportExecutor;
+    private final Path storageDir;
+    private final Duration jobRetention;
+
+    private final Map<UUID, ReportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, ReportJob> inFlight = new ConcurrentHashMap<>();
+    // Sprawdzenie zapisanego PDF-u i usuwanie starych wersji nie mogą się przeplatać
+    private final Object storageLock = new Object();
+
+    public ReportJobService(ReportService reportService,
+                            TripService tripService,
+                            OpenAiService openAiService,
+                            ReportPdfRenderer pdfRenderer,
+                            @Qualifier(ExecutorConfig.REPORT_EXECUTOR) Executor reportExecutor,
+                            @Value("${travelmate.reports.storage-dir:${java.io.tmpdir}/travelmate-reports}") Path storageDir,
+                            @Value("${travelmate.reports.job-retention:PT1H}") Duration jobRetention) {
+        this.reportService = reportService;
+        this.tripService = tripService;
+        this.openAiService = openAiService;
+        this.pdfRenderer = pdfRenderer;
+        this.reportExecutor = reportExecutor;
+        this.storageDir = storageDir;
+        this.jobRetention = jobRetention;
+    }
+
+    /**
+     * Enqueues report generation for the trip
+     * @param tripId ID of the trip
+     * @param userId ID of the requesting user
+     * @return The job; already DONE when an up-to-date PDF is stored
+     * @throws IllegalStateException when the user is not a participant of the trip
+     * @throws RejectedExecutionException when the report queue is full
+     */
+    public ReportJob submit(UUID tripId, UUID userId) {
+        checkCanAccess(tripId, userId);
+        Trip trip = tripService.findById(tripId);
+        String prompt = reportService.buildReportPrompt(tripId);
+        String hash = sha256(trip.getName() + "\n" + prompt);
+
+        ReportJob job = new ReportJob(tripId, tripId + "/" + hash);
+        Path file = fileOf(job);
+        synchronized (storageLock) {
+            if (Files.isRegularFile(file)) {
+                job.complete(file);
+                jobs.put(job.getId(), job);
+                return job;
+            }
+        }
+
+        ReportJob running = inFlight.putIfAbsent(job.getCacheKey(), job);
+        if (running != null) {
+            return running;
+        }
+        jobs.put(job.getId(), job);
+        try {
+            reportExecutor.execute(() -> generate(job, trip.getName(), prompt, file));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            inFlight.remove(job.getCacheKey(), job);
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Returns a retained job of a trip the user takes part in
+     * @throws NotFoundException when the job is unknown or already evicted
+     * @throws IllegalStateException when the user is not a participant of the job's trip
+     */
+    public ReportJob getJob(UUID jobId, UUID userId) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new NotFoundException("Report job not found");
+        }
+        checkCanAccess(job.getTripId(), userId);
+        return job;
+    }
+
+    /**
+     * Checks that the user takes part in the trip and so may read its reports
+     * @throws IllegalStateException when the user is not a participant of the trip
+     */
+    public void checkCanAccess(UUID tripId, UUID userId) {
+        if (!tripService.canUserAccessTrip(tripId, userId)) {
+            throw new IllegalStateException("Nie masz dostępu do raportu tej wycieczki.");
+        }
+    }
+
+    /**
+     * Waits for the job to finish
+     * @return Path of the PDF, or null if the job didn't finish within the timeout
+     * @throws ReportGenerationException when the generation failed
+     */
+    public Path awaitReport(ReportJob job, Duration timeout) throws InterruptedException {
+        try {
+            return job.getResult().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (ExecutionException e) {
+            throw new ReportGenerationException("Report generation failed: " + job.getError(), e.getCause());
+        }
+    }
+
+    private void generate(ReportJob job, String tripName, String prompt, Path file) {
+        job.markRunning();
+        Path tmp = null;
+        try {
+            String text = openAiService.askChatGptNote(prompt);
+            Files.createDirectories(file.getParent());
+            tmp = Files.createTempFile(file.getParent(), "report-", ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                pdfRenderer.render(tripName, text, out);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            job.complete(file);
+            deleteStaleVersions(file.getParent(), file);
+        } catch (Exception e) {
+            log.warn("Report generation for trip {} failed", job.getTripId(), e);
+            deleteQuietly(tmp);
+            job.fail(e);
+        } finally {
+            inFlight.remove(job.getCacheKey(), job);
+        }
+    }
+
+    private Path fileOf(ReportJob job) {
+        return storageDir.resolve(job.getCacheKey() + ".pdf");
+    }
+
+    // Starsze wersje raportu nie zostaną już wygenerowane (notatki się zmieniły), ale zadania, które
+    // jeszcze pamiętamy, mogą na nie wskazywać – te pliki zostają do usunięcia zadania
+    private void deleteStaleVersions(Path tripDir, Path current) {
+        synchronized (storageLock) {
+            Set<Path> referenced = new HashSet<>();
+            jobs.values().forEach(job -> referenced.add(fileOf(job)));
+            try (Stream<Path> files = Files.list(tripDir)) {
+                files.filter(f -> f.getFileName().toString().endsWith(".pdf"))
+                        .filter(f -> !f.equals(current) && !referenced.contains(f))
+                        .forEach(this::deleteQuietly);
+            } catch (IOException e) {
+                log.debug("Could not list {}", tripDir, e);
+            }
+        }
+    }
+
+    // Najnowszy PDF wycieczki to jej bieżąca wersja – zostaje, by kolejne zlecenie nie wołało OpenAI
+    private void deleteStaleVersions(Path tripDir) {
+        try (Stream<Path> files = Files.list(tripDir)) {
+            files.filter(f -> f.getFileName().toString().endsWith(".pdf"))
+                    .max(Comparator.comparing(this::lastModified))
+                    .ifPresent(newest -> deleteStaleVersions(tripDir, newest));
+        } catch (IOException e) {
+            log.debug("Could not list {}", tripDir, e);
+        }
+    }
+
+    private FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Could not delete {}", file, e);
+        }
+    }
+
+    /**
+     * Forgets finished jobs older than the retention period and deletes the old report versions
+     * they were the last to point at; the current version of each report stays on disk
+     */
+    @Scheduled(fixedDelayString = "${travelmate.reports.cleanup-interval:PT10M}")
+    public void evictFinishedJobs() {
+        Instant cutoff = Instant.now().minus(jobRetention);
+        Set<UUID> trips = new HashSet<>();
+        jobs.values().removeIf(job -> {
+            boolean expired = job.isFinished() && job.getFinishedAt().isBefore(cutoff);
+            if (expired) {
+                trips.add(job.getTripId());
+            }
+            return expired;
+        });
+        trips.forEach(tripId -> {
+            Path tripDir = storageDir.resolve(tripId.toString());
+            if (Files.isDirectory(tripDir)) {
+                deleteStaleVersions(tripDir);
+            }
+        });
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new ReportGenerationException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package pl.sumatywny.travelmate.reports.service;
+
+import com.lowagie.text.*;
+import com.lowagie.text.pdf.PdfWriter;
+import org.springframework.stereotype.Component;
+
+import java.io.OutputStream;
+
+@Component
+public class ReportPdfRenderer {
+
+    /**
+     * Renders the trip report PDF (logo, title and report text) into the given stream
+     * @param tripName Name of the trip shown in the title
+     * @param text Report text
+     * @param out Destination; not closed by this method
+     */
+    public void render(String tripName, String text, OutputStream out) {
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        writer.setCloseStream(false);
+        document.open();
+        try {
+            Image logo = Image.getInstance(getClass().getResource("/static/logo.png"));
+            logo.scaleToFit(100, 100);
+            logo.setAlignment(Image.ALIGN_CENTER);
+            document.add(logo);
+        } catch (Exception e) {
+        }
+
+        Font titleFont = new Font(Font.HELVETICA, 18, Font.BOLD);
+        Paragraph title = new Paragraph("Raport z wycieczki - " + tripName, titleFont);
+        title.setAlignment(Element.ALIGN_CENTER);
+        title.setSpacingAfter(20f);
+        document.add(title);
+
+        Font textFont = new Font(Font.HELVETICA, 12);
+        Paragraph content = new Paragraph(text, textFont);
+        content.setAlignment(Element.ALIGN_LEFT);
+        content.setLeading(16f);
+        document.add(content);
+
+        document.close();
+    }
+}
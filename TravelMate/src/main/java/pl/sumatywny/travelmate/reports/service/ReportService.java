@@ -2,19 +2,21 @@ package pl.sumatywny.travelmate.reports.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import pl.sumatywny.travelmate.config.KeysetCursor;
+import pl.sumatywny.travelmate.config.KeysetPage;
+import pl.sumatywny.travelmate.config.Pagination;
 import pl.sumatywny.travelmate.participant.model.Participant;
 import pl.sumatywny.travelmate.participant.repository.ParticipantRepository;
 import pl.sumatywny.travelmate.reports.dto.NoteDTO;
 import pl.sumatywny.travelmate.reports.entity.Note;
 import pl.sumatywny.travelmate.reports.repository.NoteRepository;
-import pl.sumatywny.travelmate.trip.model.Point;
+import pl.sumatywny.travelmate.reports.repository.NoteSummary;
 import pl.sumatywny.travelmate.trip.model.Trip;
 import pl.sumatywny.travelmate.trip.repository.PointRepository;
 import pl.sumatywny.travelmate.trip.service.TripService;
 
 import java.time.LocalDate;
-import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -37,29 +39,74 @@ public class ReportService {
     }
 
     public List<NoteDTO> getTripNotes(UUID tripId) {
-        Trip trip = tripService.findById(tripId);
-        List<Note> notes = noteRepository.getNotesByTrip(trip).stream().sorted(Comparator.comparing(Note::getDate)).toList();
-        return getNoteDTOS(notes);
+        List<NoteSummary> notes = noteRepository.findSummariesByTripId(tripId);
+        if (notes.isEmpty()) {
+            // brak notatek – sprawdzamy, czy wycieczka w ogóle istnieje
+            tripService.findById(tripId);
+        }
+        return notes.stream().map(ReportService::toNoteDTO).toList();
     }
 
-    public List<NoteDTO> getPointNotes(Long pointId) {
-        Point point = pointRepository.getPointById(pointId);
-        List<Note> notes = noteRepository.getNotesByPoint(point).stream().sorted(Comparator.comparing(Note::getDate)).toList();
-        return getNoteDTOS(notes);
+    /**
+     * One page of the trip notes in (date, id) order with undated notes last, paginated by the database
+     * @param tripId ID of the trip
+     * @param limit Page size
+     * @param cursor Cursor returned with the previous page, null for the first page
+     */
+    public KeysetPage<NoteDTO> getTripNotes(UUID tripId, int limit, String cursor) {
+        List<NoteSummary> fetched;
+        if (cursor == null) {
+            fetched = noteRepository.findSummaryPageByTripId(tripId, Pagination.fetchLimit(limit));
+            if (fetched.isEmpty()) {
+                tripService.findById(tripId);
+            }
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            // Kursor notatki bez daty ma pusty klucz – jesteśmy już w końcówce bez dat
+            fetched = after.hasKey()
+                    ? noteRepository.findSummaryPageByTripIdAfter(tripId, after.keyAsDate(), after.idAsUuid(),
+                            Pagination.fetchLimit(limit))
+                    : noteRepository.findUndatedSummaryPageByTripIdAfter(tripId, after.idAsUuid(),
+                            Pagination.fetchLimit(limit));
+        }
+        return KeysetPage.of(fetched, limit, n -> KeysetCursor.of(n.getDate(), n.getId()))
+                .map(ReportService::toNoteDTO);
     }
 
-    private List<NoteDTO> getNoteDTOS(List<Note> notes) {
-        List<NoteDTO> noteDTOs = new LinkedList<>();
-        for (Note note : notes) {
-            NoteDTO noteDTO = NoteDTO.builder()
-                    .id(note.getId())
-                    .date(note.getDate().atStartOfDay())
-                    .content(note.getContent())
-                    .pointName(pointRepository.getPointById(note.getPoint().getId()).getTitle())
-                    .build();
-            noteDTOs.add(noteDTO);
+    /**
+     * Builds the prompt for the trip report: one line per note, prefixed with the visit date of its point
+     * @param tripId ID of the trip
+     * @return Notes joined with new lines
+     */
+    public String buildReportPrompt(UUID tripId) {
+        List<String> descriptions = new ArrayList<>();
+
+        for (NoteSummary note : noteRepository.findSummariesByTripId(tripId)) {
+            if (note.getPointDate() != null) {
+                descriptions.add("Data odwiedzin: " + note.getPointDate() +
+                        " | Notatka o " + note.getPointName() + ": " + note.getContent());
+            } else {
+                descriptions.add("Notatka o " + note.getPointName() + ": " + note.getContent());
+            }
         }
-        return noteDTOs;
+
+        return String.join("\n", descriptions);
+    }
+
+    public List<NoteDTO> getPointNotes(Long pointId) {
+        return noteRepository.findSummariesByPointId(pointId).stream()
+                .map(ReportService::toNoteDTO)
+                .toList();
+    }
+
+    private static NoteDTO toNoteDTO(NoteSummary note) {
+        return NoteDTO.builder()
+                .id(note.getId())
+                .date(note.getDate() != null ? note.getDate().atStartOfDay() : null)
+                .content(note.getContent())
+                .pointId(note.getPointId())
+                .pointName(note.getPointName())
+                .build();
     }
 
     public void addNote(String author, String content, UUID tripId, Long pointId) {
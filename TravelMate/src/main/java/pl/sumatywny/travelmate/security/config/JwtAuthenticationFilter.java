@@ -1,5 +1,6 @@
 package pl.sumatywny.travelmate.security.config;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -40,12 +41,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         jwt = authHeader.substring(7);
-        userEmail = jwtService.extractUsername(jwt);
+        final Claims claims = jwtService.extractAllClaims(jwt);
+        userEmail = claims.getSubject();
 
         if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+            // Token został już zweryfikowany – principal budujemy z claimów, bez zapytania do bazy
+            UserDetails userDetails = jwtService.toAuthenticatedUser(claims);
+            boolean valid = userDetails != null;
 
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            // Starsze tokeny nie zawierają ID ani roli – ładujemy użytkownika z bazy jak wcześniej
+            if (!valid) {
+                userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+                valid = jwtService.isTokenValid(claims, userDetails);
+            }
+
+            if (valid) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
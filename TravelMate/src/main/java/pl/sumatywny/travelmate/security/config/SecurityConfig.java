@@ -1,5 +1,6 @@
 package pl.sumatywny.travelmate.security.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -55,6 +56,8 @@ public class SecurityConfig {
                         .frameOptions().disable() // This is essential for H2 console
                 )
                 .authorizeHttpRequests(auth -> auth
+                        // Async dispatch of streamed (SSE) responses – the original request was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Authentication endpoints
                         .requestMatchers("/api/auth/**").permitAll()
                         // Swagger UI endpoints
@@ -10,6 +10,7 @@ import org.springframework.stereotype.Service;
 import pl.sumatywny.travelmate.security.dto.LoginRequest;
 import pl.sumatywny.travelmate.security.dto.LoginResponse;
 import pl.sumatywny.travelmate.security.dto.RegisterRequest;
+import pl.sumatywny.travelmate.security.model.AuthenticatedUser;
 import pl.sumatywny.travelmate.security.model.Role;
 import pl.sumatywny.travelmate.security.model.User;
 import pl.sumatywny.travelmate.security.repository.UserRepository;
@@ -24,6 +25,7 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final UserService userService;
 
     public LoginResponse register(RegisterRequest request) {
         // Check if email already exists
@@ -41,7 +43,7 @@ public class AuthService {
 
         var savedUser = userRepository.save(user);
 
-        var jwtToken = jwtService.generateToken(user);
+        var jwtToken = jwtService.generateToken(savedUser);
 
         return LoginResponse.builder()
                 .token(jwtToken)
@@ -76,6 +78,9 @@ public class AuthService {
 
     public User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return userService.findCachedById(principal.getId());
+        }
         if (authentication != null && authentication.getPrincipal() instanceof User) {
             return (User) authentication.getPrincipal();
         }
@@ -83,6 +88,10 @@ public class AuthService {
     }
 
     public UUID getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.getId();
+        }
         return getCurrentUser().getId();
     }
 }
\ No newline at end of file
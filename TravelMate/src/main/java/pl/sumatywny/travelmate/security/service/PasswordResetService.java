@@ -28,6 +28,7 @@ public class PasswordResetService {
     private final PasswordResetTokenRepository tokenRepository;
     private final EmailService emailService;
     private final PasswordEncoder passwordEncoder;
+    private final UserService userService;
 
     private static final int TOKEN_VALIDITY_MINUTES = 15;
     private static final SecureRandom secureRandom = new SecureRandom();
@@ -100,6 +101,7 @@ public class PasswordResetService {
             // Update password
             user.setPassword(passwordEncoder.encode(request.getNewPassword()));
             userRepository.save(user);
+            userService.evictCachedUser(user.getId());
 
             // Mark all tokens as used for this user (invalidate all reset tokens)
             tokenRepository.markAllAsUsedByUser(user);
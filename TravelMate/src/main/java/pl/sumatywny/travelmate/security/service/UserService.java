@@ -1,23 +1,40 @@
 package pl.sumatywny.travelmate.security.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import pl.sumatywny.travelmate.security.model.AuthenticatedUser;
 import pl.sumatywny.travelmate.security.model.User;
 import pl.sumatywny.travelmate.security.repository.UserRepository;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class UserService implements UserDetailsService {
 
+    static final Duration USER_CACHE_TTL = Duration.ofMinutes(10);
+    static final long USER_CACHE_SIZE = 10_000;
+
     private final UserRepository userRepository;
 
+    // Users needed in full by authenticated requests (e.g. /api/auth/me); evicted on every change of the user
+    private final Cache<UUID, User> userCache = Caffeine.newBuilder()
+            .expireAfterWrite(USER_CACHE_TTL)
+            .maximumSize(USER_CACHE_SIZE)
+            .build();
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         return userRepository.findByEmail(username)
@@ -32,6 +49,37 @@ public class UserService implements UserDetailsService {
         return userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
     }
+
+    /**
+     * Finds user by ID, serving repeated lookups from a bounded cache
+     * @param id The user ID
+     * @return The user
+     * @throws RuntimeException if the user doesn't exist
+     */
+    public User findCachedById(UUID id) {
+        return userCache.get(id, this::findById);
+    }
+
+    /**
+     * Removes the user from the cache; must be called after the user is modified or deleted
+     * @param id The user ID
+     */
+    public void evictCachedUser(UUID id) {
+        userCache.invalidate(id);
+    }
+
+    /**
+     * Loads all users with the given IDs using a single query
+     * @param ids The user IDs to look up
+     * @return Map of user ID to user; IDs without a matching user are absent
+     */
+    public Map<UUID, User> findAllByIds(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return userRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+    }
     /**
      * Finds user ID by email address
      * @param email The email to search for
@@ -74,6 +122,14 @@ public class UserService implements UserDetailsService {
             throw new IllegalStateException("User not authenticated");
         }
 
+        // Principal z tokena JWT ma już ID użytkownika
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.getId();
+        }
+        if (authentication.getPrincipal() instanceof User user && user.getId() != null) {
+            return user.getId();
+        }
+
         String email = authentication.getName();
         return userRepository.findByEmail(email)
                 .map(User::getId)
@@ -1,7 +1,5 @@
 package pl.sumatywny.travelmate.trip.controller;
 
-import com.lowagie.text.*;
-import com.lowagie.text.pdf.PdfWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -11,27 +9,40 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
-import pl.sumatywny.travelmate.reports.dto.NoteDTO;
+import pl.sumatywny.travelmate.reports.dto.ReportJobDTO;
+import pl.sumatywny.travelmate.reports.model.ReportJob;
+import pl.sumatywny.travelmate.reports.model.ReportJobStatus;
+import pl.sumatywny.travelmate.reports.service.ReportJobService;
 import pl.sumatywny.travelmate.reports.service.ReportService;
+import pl.sumatywny.travelmate.security.model.AuthenticatedUser;
+import pl.sumatywny.travelmate.security.model.User;
+import pl.sumatywny.travelmate.security.service.UserService;
 import pl.sumatywny.travelmate.trip.dto.ChatNoteRequestDto;
 import pl.sumatywny.travelmate.trip.dto.ChatRequestDto;
 import pl.sumatywny.travelmate.trip.dto.PlaceVisitDto;
 import pl.sumatywny.travelmate.trip.model.Point;
-import pl.sumatywny.travelmate.trip.model.Trip;
 import pl.sumatywny.travelmate.trip.service.OpenAiService;
 import pl.sumatywny.travelmate.trip.service.PointService;
-import pl.sumatywny.travelmate.trip.service.TripService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 @Slf4j
 @RestController
@@ -42,19 +53,29 @@ public class ChatController {
     private final OpenAiService openAiService;
     private final PointService pointService;
     private final ReportService reportService;
-    private final TripService tripService;
+    private final ReportJobService reportJobService;
+    private final UserService userService;
+
+    // Jak długo synchroniczny endpoint /note czeka na raport, zanim odeśle stan zadania
+    private static final Duration SYNC_REPORT_TIMEOUT = Duration.ofSeconds(60);
+    // Ile punktów planu reaktywnego zapisujemy jednym batchem
+    private static final int PLAN_SAVE_BATCH = 10;
 
     @Autowired
-    public ChatController(OpenAiService openAiService, PointService pointService, ReportService reportService, TripService tripService) {
+    public ChatController(OpenAiService openAiService, PointService pointService, ReportService reportService,
+                          ReportJobService reportJobService, UserService userService) {
         this.openAiService = openAiService;
         this.pointService = pointService;
         this.reportService = reportService;
-        this.tripService = tripService;
+        this.reportJobService = reportJobService;
+        this.userService = userService;
     }
 
     @Operation(
             summary = "Ask the AI for travel recommendations",
-            description = "Sends a user prompt to the OpenAI API and receives a list of recommended places to visit.",
+            description = "Sends a user prompt to the OpenAI API and receives a list of recommended places to visit. " +
+                    "If destination, startDate and endDate are given instead, a plan generated earlier for the same " +
+                    "destination, trip length and locale is reused and re-dated; refresh=true generates a new one.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "List of recommended places returned successfully",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = PlaceVisitDto.class))),
@@ -63,80 +84,185 @@ public class ChatController {
     )
     @PostMapping
     public ResponseEntity<List<PlaceVisitDto>> ask(@RequestBody ChatRequestDto request) {
-        List<PlaceVisitDto> response = openAiService.askChatGpt(request.getPrompt());
-        for (PlaceVisitDto placeVisitDto : response) {
-            Point point = Point.builder()
-                    .title(placeVisitDto.getName())
-                    .date(LocalDate.parse(placeVisitDto.getDate()))
-                    .description(placeVisitDto.getAddress())
-                    .latitude(placeVisitDto.getLat())
-                    .longitude(placeVisitDto.getLng())
-                    .visited(false).build();
-            pointService.create(request.getTripId(), point);
-        }
+        // Miasto i daty pozwalają użyć zapisanego planu; dowolny prompt zawsze idzie do modelu
+        List<PlaceVisitDto> response = request.isStructured()
+                ? openAiService.planTrip(request.getDestination(), request.getStartDate(), request.getEndDate(),
+                        request.getLocale(), request.isRefresh())
+                : openAiService.askChatGpt(request.getPrompt());
+        pointService.createAll(request.getTripId(), response.stream().map(this::toPoint).toList());
         return ResponseEntity.ok(response);
     }
 
-    @PostMapping("/note")
-    public ResponseEntity<byte[]> generateSummerizarOfNotes(@RequestBody ChatNoteRequestDto request) throws IOException {
-        List<NoteDTO> notes = reportService.getTripNotes(request.getTripId());
-        List<Point> points = pointService.findByTripId(request.getTripId());
-        List<String> descriptions = new ArrayList<>();
-
-        for (NoteDTO noteDTO : notes) {
-            String pointName = noteDTO.getPointName();
-            Point matchingPoint = points.stream()
-                    .filter(p -> p.getTitle().equals(pointName))
-                    .findFirst()
-                    .orElse(null);
-            if (matchingPoint != null) {
-                String date = matchingPoint.getDate().toString();
-                descriptions.add("Data odwiedzin: " + date +
-                        " | Notatka o " + pointName + ": " + noteDTO.getContent());
-            } else {
-                descriptions.add("Notatka o " + pointName + ": " + noteDTO.getContent());
+    @Operation(
+            summary = "Stream AI travel recommendations",
+            description = "Same as POST /api/chat, but each place is sent as a server-sent 'place' event as soon as it is " +
+                    "generated and resolved, followed by a final 'done' event. Every place is saved as a trip point.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Stream of recommended places",
+                            content = @Content(mediaType = "text/event-stream", schema = @Schema(implementation = PlaceVisitDto.class)))
             }
-        }
+    )
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<PlaceVisitDto>> askStream(@RequestBody ChatRequestDto request) {
+        return openAiService.streamChatGpt(request.getPrompt())
+                // zapis do bazy jest blokujący – nie wykonujemy go na wątkach wyszukiwania miejsc
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(placeVisitDto -> pointService.create(request.getTripId(), toPoint(placeVisitDto)))
+                .map(placeVisitDto -> ServerSentEvent.builder(placeVisitDto).event("place").build())
+                .concatWith(Flux.just(ServerSentEvent.<PlaceVisitDto>builder().event("done").build()));
+    }
 
-        String userPrompt = String.join("\n", descriptions);
-        Trip trip = tripService.findById(request.getTripId());
-        String tripName = trip.getName();
-        System.out.println(userPrompt);
-        String response = openAiService.askChatGptNote(userPrompt);
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        Document document = new Document();
-        PdfWriter.getInstance(document, out);
-        document.open();
-        try {
-            Image logo = Image.getInstance(getClass().getResource("/static/logo.png"));
-            logo.scaleToFit(100, 100);
-            logo.setAlignment(Image.ALIGN_CENTER);
-            document.add(logo);
-        } catch (Exception e) {
-        }
+    @Operation(
+            summary = "Plan a trip with the AI without blocking request threads",
+            description = "Same result as POST /api/chat, but the OpenAI call, the Google Places lookups and the point " +
+                    "inserts run as one non-blocking pipeline, so many plans can be generated concurrently on a few " +
+                    "threads. Places that can't be resolved in time are skipped.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "List of recommended places, all saved as trip points",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = PlaceVisitDto.class))),
+                    @ApiResponse(responseCode = "500", description = "OpenAI did not return a valid plan in time", content = @Content)
+            }
+    )
+    @PostMapping("/plan")
+    public Mono<List<PlaceVisitDto>> plan(@RequestBody ChatRequestDto request) {
+        return openAiService.planItinerary(request.getPrompt())
+                .buffer(PLAN_SAVE_BATCH)
+                // zapis JPA jest blokujący – idzie na boundedElastic, a concatMap nie pobiera kolejnych
+                // miejsc, dopóki poprzedni batch nie zostanie zapisany
+                .concatMap(batch -> Mono.fromCallable(() ->
+                                pointService.createAll(request.getTripId(), batch.stream().map(this::toPoint).toList()))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .thenReturn(batch))
+                .concatMapIterable(batch -> batch)
+                .collectList();
+    }
 
-        Font titleFont = new Font(Font.HELVETICA, 18, Font.BOLD);
-        Paragraph title = new Paragraph("Raport z wycieczki - " + tripName , titleFont);
-        title.setAlignment(Element.ALIGN_CENTER);
-        title.setSpacingAfter(20f);
-        document.add(title);
+    @Operation(
+            summary = "Stream the AI trip report",
+            description = "Generates the trip report from notes and sends its text as server-sent 'token' events " +
+                    "while it is being written, followed by a final 'done' event.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Stream of report text fragments",
+                            content = @Content(mediaType = "text/event-stream")),
+                    @ApiResponse(responseCode = "403", description = "Not a participant of the trip", content = @Content)
+            }
+    )
+    @PostMapping(value = "/note/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> generateSummaryOfNotesStream(@RequestBody ChatNoteRequestDto request,
+                                                                      Authentication authentication) {
+        reportJobService.checkCanAccess(request.getTripId(), extractUserIdFromAuthentication(authentication));
+        String userPrompt = reportService.buildReportPrompt(request.getTripId());
+        return openAiService.streamChatGptNote(userPrompt)
+                .map(fragment -> ServerSentEvent.builder(fragment).event("token").build())
+                .concatWith(Flux.just(ServerSentEvent.<String>builder().event("done").build()));
+    }
 
-        Font textFont = new Font(Font.HELVETICA, 12);
-        Paragraph content = new Paragraph(response, textFont);
-        content.setAlignment(Element.ALIGN_LEFT);
-        content.setLeading(16f);
-        document.add(content);
+    @Operation(
+            summary = "Generate the trip report PDF",
+            description = "Generates the report on the report worker pool and streams the PDF. An unchanged report is " +
+                    "served from storage. If generation takes too long, 202 with the job state is returned instead.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Report PDF", content = @Content(mediaType = "application/pdf")),
+                    @ApiResponse(responseCode = "202", description = "Still generating; poll the job",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReportJobDTO.class))),
+                    @ApiResponse(responseCode = "403", description = "Not a participant of the trip", content = @Content),
+                    @ApiResponse(responseCode = "502", description = "Generation failed (OpenAI or PDF rendering)", content = @Content),
+                    @ApiResponse(responseCode = "503", description = "Report queue is full", content = @Content)
+            }
+    )
+    @PostMapping("/note")
+    public ResponseEntity<?> generateSummerizarOfNotes(@RequestBody ChatNoteRequestDto request,
+                                                       Authentication authentication) throws InterruptedException {
+        ReportJob job = reportJobService.submit(request.getTripId(), extractUserIdFromAuthentication(authentication));
+        Path pdf = reportJobService.awaitReport(job, SYNC_REPORT_TIMEOUT);
+        if (pdf == null) {
+            return ResponseEntity.accepted()
+                    .location(URI.create(jobUrl(job)))
+                    .body(toDto(job));
+        }
+        return pdfResponse(pdf);
+    }
+
+    @Operation(
+            summary = "Enqueue trip report generation",
+            description = "Queues generation of the trip report PDF and returns the job. " +
+                    "Poll GET /api/chat/note/jobs/{jobId}; when DONE, download from its downloadUrl.",
+            responses = {
+                    @ApiResponse(responseCode = "202", description = "Job accepted",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReportJobDTO.class))),
+                    @ApiResponse(responseCode = "503", description = "Report queue is full", content = @Content)
+            }
+    )
+    @PostMapping("/note/jobs")
+    public ResponseEntity<ReportJobDTO> submitReportJob(@RequestBody ChatNoteRequestDto request,
+                                                        Authentication authentication) {
+        ReportJob job = reportJobService.submit(request.getTripId(), extractUserIdFromAuthentication(authentication));
+        return ResponseEntity.accepted()
+                .location(URI.create(jobUrl(job)))
+                .body(toDto(job));
+    }
 
-        document.close();
+    @Operation(summary = "Get trip report job state")
+    @GetMapping("/note/jobs/{jobId}")
+    public ResponseEntity<ReportJobDTO> getReportJob(@PathVariable UUID jobId, Authentication authentication) {
+        return ResponseEntity.ok(toDto(reportJobService.getJob(jobId, extractUserIdFromAuthentication(authentication))));
+    }
 
-        byte[] pdfBytes = out.toByteArray();
+    @Operation(
+            summary = "Download the generated trip report",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Report PDF", content = @Content(mediaType = "application/pdf")),
+                    @ApiResponse(responseCode = "409", description = "Job is not finished or failed",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReportJobDTO.class))),
+                    @ApiResponse(responseCode = "403", description = "Not a participant of the job's trip", content = @Content),
+                    @ApiResponse(responseCode = "404", description = "Unknown job", content = @Content)
+            }
+    )
+    @GetMapping("/note/jobs/{jobId}/pdf")
+    public ResponseEntity<?> downloadReport(@PathVariable UUID jobId, Authentication authentication) {
+        ReportJob job = reportJobService.getJob(jobId, extractUserIdFromAuthentication(authentication));
+        if (job.getStatus() != ReportJobStatus.DONE) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(toDto(job));
+        }
+        return pdfResponse(job.getResult().join());
+    }
 
+    // PDF jest wysyłany strumieniowo z dysku, bez wczytywania do pamięci
+    private ResponseEntity<Resource> pdfResponse(Path pdf) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
         headers.setContentDisposition(ContentDisposition.attachment().filename("raport-wycieczka.pdf").build());
 
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(pdfBytes);
+                .body(new FileSystemResource(pdf));
+    }
+
+    private ReportJobDTO toDto(ReportJob job) {
+        return ReportJobDTO.from(job, job.getStatus() == ReportJobStatus.DONE ? jobUrl(job) + "/pdf" : null);
+    }
+
+    private String jobUrl(ReportJob job) {
+        return "/api/chat/note/jobs/" + job.getId();
+    }
+
+    private Point toPoint(PlaceVisitDto placeVisitDto) {
+        return Point.builder()
+                .title(placeVisitDto.getName())
+                .date(LocalDate.parse(placeVisitDto.getDate()))
+                .description(placeVisitDto.getAddress())
+                .latitude(placeVisitDto.getLat())
+                .longitude(placeVisitDto.getLng())
+                .visited(false).build();
+    }
+
+    private UUID extractUserIdFromAuthentication(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.getId();
+        }
+        String email = authentication.getName();
+        User user = userService.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
+        return user.getId();
     }
 }
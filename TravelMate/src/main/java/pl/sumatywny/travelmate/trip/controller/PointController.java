@@ -6,12 +6,15 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import pl.sumatywny.travelmate.config.Pagination;
 import pl.sumatywny.travelmate.trip.model.Point;
 import pl.sumatywny.travelmate.trip.service.PointService;
 import pl.sumatywny.travelmate.trip.service.TripService;
 import pl.sumatywny.travelmate.security.service.UserService;
+import pl.sumatywny.travelmate.security.model.AuthenticatedUser;
 import pl.sumatywny.travelmate.security.model.User;
 
 import java.util.List;
@@ -46,14 +49,22 @@ public class PointController {
             }
     )
     @GetMapping
-    public List<Point> getAll(@PathVariable UUID tripId, Authentication authentication) {
+    public ResponseEntity<List<Point>> getAll(@PathVariable UUID tripId,
+                                              @Parameter(description = "Page size (1-500); enables keyset pagination. The next page cursor is returned in the X-Next-Cursor header")
+                                              @RequestParam(required = false) Integer limit,
+                                              @Parameter(description = "Value of X-Next-Cursor from the previous page")
+                                              @RequestParam(required = false) String cursor,
+                                              Authentication authentication) {
         UUID currentUserId = extractUserIdFromAuthentication(authentication);
 
         if (!tripService.canUserAccessTrip(tripId, currentUserId)) {
             throw new RuntimeException("Access denied: You are not a participant in this trip");
         }
 
-        return pointService.findByTripId(tripId);
+        if (!Pagination.isRequested(limit, cursor)) {
+            return ResponseEntity.ok(pointService.findByTripId(tripId));
+        }
+        return Pagination.response(pointService.findByTripId(tripId, Pagination.checkLimit(limit), cursor));
     }
 
     @Operation(
@@ -179,6 +190,9 @@ public class PointController {
     }
 
     private UUID extractUserIdFromAuthentication(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.getId();
+        }
         String email = authentication.getName();
         User user = userService.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
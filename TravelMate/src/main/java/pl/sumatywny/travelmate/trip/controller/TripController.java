@@ -6,11 +6,14 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import pl.sumatywny.travelmate.config.Pagination;
 import pl.sumatywny.travelmate.trip.model.Trip;
 import pl.sumatywny.travelmate.trip.service.TripService;
 import pl.sumatywny.travelmate.security.service.UserService;
+import pl.sumatywny.travelmate.security.model.AuthenticatedUser;
 import pl.sumatywny.travelmate.security.model.User;
 
 import java.util.List;
@@ -39,9 +42,16 @@ public class TripController {
             }
     )
     @GetMapping
-    public List<Trip> getAll(Authentication authentication) {
+    public ResponseEntity<List<Trip>> getAll(@Parameter(description = "Page size (1-500); enables keyset pagination. The next page cursor is returned in the X-Next-Cursor header")
+                                             @RequestParam(required = false) Integer limit,
+                                             @Parameter(description = "Value of X-Next-Cursor from the previous page")
+                                             @RequestParam(required = false) String cursor,
+                                             Authentication authentication) {
         UUID currentUserId = extractUserIdFromAuthentication(authentication);
-        return tripService.findTripsByUserId(currentUserId);
+        if (!Pagination.isRequested(limit, cursor)) {
+            return ResponseEntity.ok(tripService.findTripsByUserId(currentUserId));
+        }
+        return Pagination.response(tripService.findTripsByUserId(currentUserId, Pagination.checkLimit(limit), cursor));
     }
 
     @Operation(
@@ -131,6 +141,9 @@ public class TripController {
     }
 
     private UUID extractUserIdFromAuthentication(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            return principal.getId();
+        }
         String email = authentication.getName();
         User user = userService.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
@@ -0,0 +1,33 @@
+package pl.sumatywny.travelmate.trip.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * Response of the OpenAI chat/completions endpoint. Streamed chunks have the same shape,
+ * with {@code delta} set instead of {@code message}; all other fields are ignored.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ChatCompletionDto(List<Choice> choices) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Choice(Message message, Message delta) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Message(String role, String content) {
+    }
+
+    /**
+     * @return Content of the first choice (its message, or its delta for a streamed chunk), or null if there is none
+     */
+    public String firstContent() {
+        if (choices == null || choices.isEmpty()) {
+            return null;
+        }
+        Choice choice = choices.get(0);
+        Message message = choice.message() != null ? choice.message() : choice.delta();
+        return message != null ? message.content() : null;
+    }
+}
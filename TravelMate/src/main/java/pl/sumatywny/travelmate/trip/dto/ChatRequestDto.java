@@ -1,8 +1,10 @@
 package pl.sumatywny.travelmate.trip.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.LocalDate;
 import java.util.UUID;
 
 @Setter
@@ -10,4 +12,20 @@ import java.util.UUID;
 public class ChatRequestDto {
     private String prompt;
     private UUID tripId;
-}
\ No newline at end of file
+
+    // Opcjonalnie: zamiast dowolnego promptu miasto i daty – wtedy plan może pochodzić z cache
+    private String destination;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private String locale;
+    // Pomija zapisany plan i generuje go od nowa
+    private boolean refresh;
+
+    /**
+     * @return True if the request names a destination and dates, so its plan can be served from the plan cache
+     */
+    @JsonIgnore
+    public boolean isStructured() {
+        return destination != null && !destination.isBlank() && startDate != null && endDate != null;
+    }
+}
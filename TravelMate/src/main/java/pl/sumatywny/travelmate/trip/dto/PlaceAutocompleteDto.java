@@ -0,0 +1,31 @@
+package pl.sumatywny.travelmate.trip.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Response of the Google Places autocomplete endpoint, reduced to the fields TravelMate uses
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record PlaceAutocompleteDto(String status, List<Prediction> predictions) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Prediction(@JsonProperty("place_id") String placeId, String description) {
+    }
+
+    /**
+     * @return True for an OK response with a predictions array; error responses (e.g. OVER_QUERY_LIMIT) are not cached
+     */
+    public boolean isSuccessful() {
+        return (status == null || "OK".equals(status)) && predictions != null;
+    }
+
+    /**
+     * @return The place_id of the best match, or null if there are no predictions
+     */
+    public String firstPlaceId() {
+        return predictions == null || predictions.isEmpty() ? null : predictions.get(0).placeId();
+    }
+}
@@ -0,0 +1,31 @@
+package pl.sumatywny.travelmate.trip.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Response of the Google Places details endpoint for the fields requested by TravelMate
+ * (geometry, name, formatted_address)
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record PlaceDetailsDto(String status, Result result) {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Result(String name, @JsonProperty("formatted_address") String formattedAddress, Geometry geometry) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Geometry(Location location) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Location(double lat, double lng) {
+    }
+
+    /**
+     * @return True for an OK response with a result; error responses are not cached
+     */
+    public boolean isSuccessful() {
+        return (status == null || "OK".equals(status)) && result != null;
+    }
+}
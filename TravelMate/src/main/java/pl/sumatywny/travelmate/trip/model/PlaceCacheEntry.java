@@ -0,0 +1,48 @@
+package pl.sumatywny.travelmate.trip.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Second, persistent tier of the Google Places cache; survives application restarts
+ */
+@Entity
+@Table(
+        name = "place_cache",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_place_cache_kind_key",
+                columnNames = {"kind", "cache_key"}
+        ),
+        indexes = @Index(name = "idx_place_cache_created_at", columnList = "created_at")
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlaceCacheEntry {
+
+    public static final int MAX_KEY_LENGTH = 512;
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PlaceCacheKind kind;
+
+    @Column(name = "cache_key", nullable = false, length = MAX_KEY_LENGTH)
+    private String cacheKey;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
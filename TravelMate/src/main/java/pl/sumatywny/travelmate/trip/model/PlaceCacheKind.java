@@ -0,0 +1,15 @@
+package pl.sumatywny.travelmate.trip.model;
+
+/**
+ * Type of response stored in the place cache
+ */
+public enum PlaceCacheKind {
+    // Raw autocomplete JSON, keyed by normalized query
+    AUTOCOMPLETE,
+    // place_id of the best autocomplete match, keyed by normalized place name
+    PLACE_ID,
+    // Raw details JSON, keyed by place_id
+    DETAILS,
+    // Itinerary generated by OpenAI and enriched with Places data, keyed by destination, trip length and locale
+    PLAN
+}
@@ -7,13 +7,16 @@ import lombok.*;
 import java.time.LocalDate;
 
 @Entity
+@Table(indexes = @Index(name = "idx_point_trip_id", columnList = "trip_id, id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Point {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sekwencja z pulą 50 identyfikatorów – pozwala Hibernate łączyć INSERT-y w batch (IDENTITY to wyklucza)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "point_seq")
+    @SequenceGenerator(name = "point_seq", sequenceName = "point_seq", allocationSize = 50)
     private Long id;
 
     private String title;
@@ -0,0 +1,30 @@
+package pl.sumatywny.travelmate.trip.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import pl.sumatywny.travelmate.trip.model.PlaceCacheEntry;
+import pl.sumatywny.travelmate.trip.model.PlaceCacheKind;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface PlaceCacheRepository extends JpaRepository<PlaceCacheEntry, UUID> {
+
+    Optional<PlaceCacheEntry> findByKindAndCacheKeyAndExpiresAtAfter(PlaceCacheKind kind, String cacheKey, LocalDateTime now);
+
+    Optional<PlaceCacheEntry> findByKindAndCacheKey(PlaceCacheKind kind, String cacheKey);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PlaceCacheEntry e WHERE e.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    @Query("SELECT e.id FROM PlaceCacheEntry e ORDER BY e.createdAt ASC")
+    List<UUID> findOldestIds(Pageable pageable);
+}
@@ -1,6 +1,9 @@
 package pl.sumatywny.travelmate.trip.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import pl.sumatywny.travelmate.trip.model.Point;
 
 import java.util.List;
@@ -10,4 +13,11 @@ public interface PointRepository extends JpaRepository<Point, Long> {
     List<Point> findByTripId(UUID tripId);  // Changed Long to UUID
 
     Point getPointById(Long id);
+
+    // Punkty stronicowane po id – identyfikatory z sekwencji rosną w kolejności dodawania
+    @Query("SELECT p FROM Point p WHERE p.trip.id = :tripId ORDER BY p.id")
+    List<Point> findPageByTripId(@Param("tripId") UUID tripId, Pageable pageable);
+
+    @Query("SELECT p FROM Point p WHERE p.trip.id = :tripId AND p.id > :id ORDER BY p.id")
+    List<Point> findPageByTripIdAfter(@Param("tripId") UUID tripId, @Param("id") Long id, Pageable pageable);
 }
\ No newline at end of file
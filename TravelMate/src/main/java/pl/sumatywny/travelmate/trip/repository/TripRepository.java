@@ -1,5 +1,6 @@
 package pl.sumatywny.travelmate.trip.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -11,5 +12,13 @@ import java.util.UUID;
 public interface TripRepository extends JpaRepository<Trip, UUID> {
     @Query("SELECT DISTINCT t FROM Trip t JOIN Participant p ON t.id = p.tripId WHERE p.userId = :userId")
     List<Trip> findTripsByParticipantUserId(@Param("userId") UUID userId);
+
+    @Query("SELECT t FROM Trip t WHERE t.id IN (SELECT p.tripId FROM Participant p WHERE p.userId = :userId) " +
+            "ORDER BY t.id")
+    List<Trip> findPageByParticipantUserId(@Param("userId") UUID userId, Pageable pageable);
+
+    @Query("SELECT t FROM Trip t WHERE t.id IN (SELECT p.tripId FROM Participant p WHERE p.userId = :userId) " +
+            "AND t.id > :id ORDER BY t.id")
+    List<Trip> findPageByParticipantUserIdAfter(@Param("userId") UUID userId, @Param("id") UUID id, Pageable pageable);
 }
 
@@ -1,10 +1,20 @@
 package pl.sumatywny.travelmate.trip.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.codec.DecodingException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import pl.sumatywny.travelmate.config.WebClientConfig;
+import pl.sumatywny.travelmate.trip.dto.PlaceAutocompleteDto;
+import pl.sumatywny.travelmate.trip.dto.PlaceDetailsDto;
+import pl.sumatywny.travelmate.trip.model.PlaceCacheKind;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Predicate;
 
 @Service
 public class GooglePlacesService {
@@ -12,48 +22,106 @@ public class GooglePlacesService {
     @Value("${google.api.key}")
     private String apiKey;
 
-    private final WebClient webClient = WebClient.create("https://maps.googleapis.com/maps/api");
+    // Limit całego wywołania Google (łącznie z oczekiwaniem na połączenie z puli)
+    @Value("${travelmate.http.google.call-timeout:PT10S}")
+    private Duration callTimeout = Duration.ofSeconds(10);
+
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+
+    // Odpowiedzi są współdzielone między żądaniami i restartami; odpowiedzi z błędem nie są cache'owane
+    private final PlaceCache placeCache;
 
+    public GooglePlacesService(PlaceCache placeCache,
+                               @Qualifier(WebClientConfig.GOOGLE_PLACES_WEB_CLIENT) WebClient webClient,
+                               ObjectMapper objectMapper) {
+        this.placeCache = placeCache;
+        this.webClient = webClient;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Returns the raw autocomplete JSON, cached per normalized query
+     */
     public String search(String query) {
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/place/autocomplete/json")
-                        .queryParam("input", query)
-                        .queryParam("language", "pl")
-                        .queryParam("key", apiKey)
-                        .build())
-                .retrieve()
-                .bodyToMono(String.class)
-                .block();
+        if (query == null) {
+            return autocomplete(null, String.class).block();
+        }
+        return placeCache.get(PlaceCacheKind.AUTOCOMPLETE, PlaceCache.normalize(query),
+                key -> autocomplete(query, String.class).block(),
+                json -> isSuccessful(json, PlaceAutocompleteDto.class, PlaceAutocompleteDto::isSuccessful));
     }
 
+    /**
+     * Returns the place_id of the best autocomplete match, cached per normalized place name
+     * @param place Name of the place
+     * @return The place_id, or null if Google returned no predictions
+     */
     public String getPlaceId(String place) {
-        String json = webClient.get()
+        if (place == null) {
+            return null;
+        }
+        return placeCache.get(PlaceCacheKind.PLACE_ID, PlaceCache.normalize(place),
+                key -> placeId(place).block(), placeId -> true);
+    }
+
+    /**
+     * Non-blocking variant of {@link #getPlaceId(String)}
+     * @param place Name of the place
+     * @return The place_id, or an empty Mono if Google returned no predictions
+     */
+    public Mono<String> getPlaceIdAsync(String place) {
+        if (place == null) {
+            return Mono.empty();
+        }
+        return placeCache.getAsync(PlaceCacheKind.PLACE_ID, PlaceCache.normalize(place),
+                key -> placeId(place), placeId -> true);
+    }
+
+    // Odpowiedź jest dekodowana wprost z bufora do rekordu – do cache trafia tylko place_id
+    private Mono<String> placeId(String place) {
+        return autocomplete(place, PlaceAutocompleteDto.class)
+                .mapNotNull(PlaceAutocompleteDto::firstPlaceId)
+                .onErrorResume(DecodingException.class, e -> Mono.empty());
+    }
+
+    /**
+     * Returns the raw details JSON of a place, cached per place_id
+     */
+    public String getPlaceDetails(String placeId) {
+        if (placeId == null) {
+            return null;
+        }
+        return placeCache.get(PlaceCacheKind.DETAILS, placeId,
+                key -> placeDetails(key).block(), this::isSuccessfulDetails);
+    }
+
+    /**
+     * Non-blocking variant of {@link #getPlaceDetails(String)}
+     */
+    public Mono<String> getPlaceDetailsAsync(String placeId) {
+        if (placeId == null) {
+            return Mono.empty();
+        }
+        return placeCache.getAsync(PlaceCacheKind.DETAILS, placeId,
+                this::placeDetails, this::isSuccessfulDetails);
+    }
+
+    private <T> Mono<T> autocomplete(String input, Class<T> bodyType) {
+        return webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/place/autocomplete/json")
-                        .queryParam("input", place)
+                        .queryParam("input", input)
                         .queryParam("language", "pl")
                         .queryParam("key", apiKey)
                         .build())
                 .retrieve()
-                .bodyToMono(String.class)
-                .block();
-
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode root = mapper.readTree(json);
-            JsonNode predictions = root.path("predictions");
-            if (predictions.isArray() && predictions.size() > 0) {
-                return predictions.get(0).path("place_id").asText();
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        return null;
+                .bodyToMono(bodyType)
+                .timeout(callTimeout);
     }
 
-    public String getPlaceDetails(String placeId) {
+    // Szczegóły zostają surowym JSON-em: w tej postaci są cache'owane i zwracane przez /api/places/details
+    private Mono<String> placeDetails(String placeId) {
         return webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/place/details/json")
@@ -64,6 +132,19 @@ public class GooglePlacesService {
                         .build())
                 .retrieve()
                 .bodyToMono(String.class)
-                .block();
+                .timeout(callTimeout);
+    }
+
+    private boolean isSuccessfulDetails(String json) {
+        return isSuccessful(json, PlaceDetailsDto.class, PlaceDetailsDto::isSuccessful);
+    }
+
+    // Odpowiedzi z błędem (np. OVER_QUERY_LIMIT) nie trafiają do cache
+    private <T> boolean isSuccessful(String json, Class<T> type, Predicate<T> successful) {
+        try {
+            return successful.test(objectMapper.readValue(json, type));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return false;
+        }
     }
 }
@@ -0,0 +1,61 @@
+package pl.sumatywny.travelmate.trip.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incrementally splits a streamed JSON array of objects into complete top-level object texts.
+ * Text before the array (e.g. a markdown fence) and between elements is ignored.
+ * Not thread-safe; use one instance per stream.
+ */
+public class JsonArrayObjectSplitter {
+
+    private final StringBuilder current = new StringBuilder();
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+
+    /**
+     * Consumes the next fragment of the stream
+     * @param chunk Next piece of text
+     * @return Objects completed by this fragment, in order
+     */
+    public List<String> feed(String chunk) {
+        List<String> completed = new ArrayList<>();
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+
+            if (depth > 0) {
+                current.append(c);
+            }
+
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+
+            if (c == '"' && depth > 0) {
+                inString = true;
+            } else if (c == '{') {
+                if (depth == 0) {
+                    current.setLength(0);
+                    current.append(c);
+                }
+                depth++;
+            } else if (c == '}' && depth > 0) {
+                depth--;
+                if (depth == 0) {
+                    completed.add(current.toString());
+                    current.setLength(0);
+                }
+            }
+        }
+        return completed;
+    }
+}
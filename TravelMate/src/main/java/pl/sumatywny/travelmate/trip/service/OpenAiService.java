@@ -2,23 +2,69 @@ package pl.sumatywny.travelmate.trip.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import pl.sumatywny.travelmate.config.ExecutorConfig;
+import pl.sumatywny.travelmate.config.WebClientConfig;
+import pl.sumatywny.travelmate.trip.dto.ChatCompletionDto;
+import pl.sumatywny.travelmate.trip.dto.PlaceDetailsDto;
 import pl.sumatywny.travelmate.trip.dto.PlaceVisitDto;
-
+import pl.sumatywny.travelmate.trip.model.PlaceCacheKind;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class OpenAiService {
 
     private final GooglePlacesService googlePlacesService;
+    private final PlaceCache placeCache;
+    private final WebClient webClient;
+    private final Executor placesLookupExecutor;
+    private final Scheduler placesLookupScheduler;
+    private final ObjectMapper objectMapper;
+
+    // Maksymalna liczba miejsc wzbogacanych jednocześnie w trybie strumieniowym
+    private static final int STREAM_LOOKUP_CONCURRENCY = 8;
+    private static final String STREAM_DONE = "[DONE]";
+    private static final TypeReference<List<Map<String, Object>>> PLAN_TYPE = new TypeReference<>() {
+    };
+    private static final String DEFAULT_LOCALE = "pl";
 
     @Value("${openai.api.key}")
     private String apiKey;
 
+    // Limity czasu reaktywnego planowania: cała odpowiedź modelu i jedno wyszukiwanie miejsca (Place ID + szczegóły)
+    @Value("${travelmate.ai.plan.completion-timeout:PT90S}")
+    private Duration planCompletionTimeout = Duration.ofSeconds(90);
+
+    @Value("${travelmate.ai.plan.lookup-timeout:PT15S}")
+    private Duration placeLookupTimeout = Duration.ofSeconds(15);
+
+    // Limit zwykłych (niestrumieniowych) wywołań blokujących, żeby zawieszone OpenAI nie trzymało wątku żądania
+    @Value("${travelmate.http.openai.call-timeout:PT120S}")
+    private Duration callTimeout = Duration.ofSeconds(120);
+
     String systemPrompt = """
 Jesteś osobą, która generuje plan wycieczki i zwiedzania danego miasta. 
 Użytkownik przekazuje ci miasto które go interesuje oraz daty, w których ma zaplanowany pobyt. 
@@ -55,136 +101,334 @@ NIE CHCĘ NIC INNEGO W ODPOWIEDZI.
             Twoja odpowiedz ma zawierac tylko i wyłacznie tekst raportu
             """;
 
-    public OpenAiService(GooglePlacesService googlePlacesService) {
+    public OpenAiService(GooglePlacesService googlePlacesService,
+                         @Qualifier(ExecutorConfig.PLACES_LOOKUP_EXECUTOR) Executor placesLookupExecutor,
+                         @Qualifier(WebClientConfig.OPENAI_WEB_CLIENT) WebClient webClient,
+                         ObjectMapper objectMapper,
+                         PlaceCache placeCache) {
         this.googlePlacesService = googlePlacesService;
+        this.placeCache = placeCache;
+        this.webClient = webClient;
+        this.objectMapper = objectMapper;
+        this.placesLookupExecutor = placesLookupExecutor;
+        this.placesLookupScheduler = Schedulers.fromExecutor(placesLookupExecutor);
     }
 
+    public List<PlaceVisitDto> askChatGpt(String userPrompt) {
+        String content = completion(systemPrompt, userPrompt)
+                .timeout(callTimeout)
+                .block();
 
-    private final WebClient webClient = WebClient.builder()
-            .baseUrl("https://api.openai.com/v1")
-            .defaultHeader("Authorization", "Bearer " + System.getenv("OPENAI_API_KEY"))
-            .build();
+        List<Map<String, Object>> result;
+        try {
+            result = objectMapper.readValue(content, PLAN_TYPE);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            e.printStackTrace();
+            return null;
+        }
+        List<PlaceVisitDto> details = getDetails(result);
+        return details;
+    }
 
-    public List<PlaceVisitDto> askChatGpt(String userPrompt) {
-        Map<String, Object> body = new HashMap<>();
-        body.put("model", "gpt-4o");
+    /**
+     * Plans a trip to a destination, reusing a plan generated earlier for the same destination, trip length and locale.
+     * A cached plan is re-dated to the requested start date. Only non-empty plans are cached.
+     *
+     * @param destination City to visit
+     * @param startDate First day of the stay
+     * @param endDate Last day of the stay
+     * @param locale Language of the place names (BCP 47 tag); defaults to Polish
+     * @param refresh Discards the cached plan and asks the model again
+     * @return Places to visit in plan order, possibly empty
+     */
+    public List<PlaceVisitDto> planTrip(String destination, LocalDate startDate, LocalDate endDate, String locale,
+                                        boolean refresh) {
+        if (destination == null || destination.isBlank()) {
+            throw new IllegalArgumentException("Destination is required");
+        }
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+        String language = normalizeLocale(locale);
+        long days = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        String key = PlaceCache.normalize(destination) + "|" + days + "|" + language;
 
-        List<Map<String, String>> messages = new ArrayList<>();
-        messages.add(Map.of(
-                "role", "system",
-                "content", systemPrompt
-        ));
-        messages.add(Map.of(
-                "role", "user",
-                "content", userPrompt
-        ));
+        if (refresh) {
+            placeCache.evict(PlaceCacheKind.PLAN, key);
+        }
+        AtomicReference<List<PlaceVisitDto>> generated = new AtomicReference<>();
+        String cached = placeCache.get(PlaceCacheKind.PLAN, key, k -> {
+            List<PlaceVisitDto> places = askChatGpt(planPrompt(destination, startDate, endDate, language));
+            generated.set(places);
+            return writePlan(startDate, places);
+        }, json -> true);
+        if (generated.get() != null) {
+            // Plan wygenerowany w tym wywołaniu ma już właściwe daty – zwracamy go, nawet jeśli nie trafił do cache
+            return generated.get();
+        }
+        if (cached == null) {
+            return List.of();
+        }
+        CachedPlan plan = readPlan(cached);
+        if (plan == null) {
+            // Uszkodzony wpis nie może psuć planów tego klucza aż do wygaśnięcia – usuwamy go i pytamy model od nowa
+            placeCache.evict(PlaceCacheKind.PLAN, key);
+            return planTrip(destination, startDate, endDate, locale, false);
+        }
+        return redate(plan, startDate);
+    }
 
-        body.put("messages", messages);
+    private static String planPrompt(String destination, LocalDate startDate, LocalDate endDate, String language) {
+        String prompt = "Miasto: " + destination.trim() + ". Pobyt od " + startDate + " do " + endDate + ".";
+        if (!DEFAULT_LOCALE.equals(language)) {
+            prompt += " Nazwy miejsc podaj w języku: " + language + ".";
+        }
+        return prompt;
+    }
 
-        String response = webClient.post()
-                .uri("/chat/completions")
-                .header("Authorization", "Bearer " + apiKey)
-                .bodyValue(body)
-                .retrieve()
-                .bodyToMono(String.class)
-                .block();
+    // "en_GB", "en-gb" i "EN-GB" dają ten sam klucz; nieznany tag oznacza domyślny polski
+    private static String normalizeLocale(String locale) {
+        if (locale == null || locale.isBlank()) {
+            return DEFAULT_LOCALE;
+        }
+        String tag = Locale.forLanguageTag(locale.trim().replace('_', '-')).toLanguageTag();
+        return "und".equals(tag) ? DEFAULT_LOCALE : tag.toLowerCase(Locale.ROOT);
+    }
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        JsonNode root = null;
+    // Pusty, nieudany lub niedający się zapisać plan nie trafia do cache (loader zwraca null)
+    private String writePlan(LocalDate startDate, List<PlaceVisitDto> places) {
+        if (places == null || places.isEmpty()) {
+            return null;
+        }
         try {
-            root = objectMapper.readTree(response);
+            return objectMapper.writeValueAsString(new CachedPlan(startDate.toString(), places));
         } catch (JsonProcessingException e) {
-            e.printStackTrace();
+            log.warn("Could not serialize plan, it won't be cached: {}", e.getMessage());
+            return null;
         }
-        String contentJsonString = root
-                .path("choices")
-                .get(0)
-                .path("message")
-                .path("content")
-                .asText();
+    }
 
-        List<Map<String, Object>> result;
+    // Nieczytelny wpis (zły JSON, brak miejsc lub daty startu) daje null
+    private CachedPlan readPlan(String json) {
         try {
-            result = objectMapper.readValue(contentJsonString, new TypeReference<>() {
-            });
-        } catch (JsonProcessingException e) {
-            e.printStackTrace();
+            CachedPlan plan = objectMapper.readValue(json, CachedPlan.class);
+            if (plan != null && plan.places() != null && plan.startDate() != null) {
+                LocalDate.parse(plan.startDate());
+                return plan;
+            }
+            log.warn("Cached plan is incomplete, discarding it");
+        } catch (JsonProcessingException | DateTimeParseException e) {
+            log.warn("Could not read cached plan, discarding it: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    // Przesuwa daty planu o różnicę między datą startu zapisanego planu a żądaną
+    private static List<PlaceVisitDto> redate(CachedPlan plan, LocalDate startDate) {
+        long shift = ChronoUnit.DAYS.between(LocalDate.parse(plan.startDate()), startDate);
+        return plan.places().stream()
+                .map(place -> new PlaceVisitDto(place.getName(), place.getAddress(), place.getLat(), place.getLng(),
+                        shiftDate(place.getDate(), shift)))
+                .toList();
+    }
+
+    private static String shiftDate(String date, long days) {
+        if (date == null) {
             return null;
         }
-        List<PlaceVisitDto> details = getDetails(result);
-        return details;
+        try {
+            return LocalDate.parse(date).plusDays(days).toString();
+        } catch (DateTimeParseException e) {
+            return date;
+        }
+    }
+
+    // Plan w cache: data startu, względem której liczone są daty miejsc
+    record CachedPlan(String startDate, List<PlaceVisitDto> places) {
     }
 
+    /**
+     * Uzupełnia miejsca z planu o dane z Google Places.
+     * Wyszukiwania działają równolegle na wspólnej, ograniczonej puli wątków; kolejność planu jest zachowana,
+     * a miejsca, których nie udało się znaleźć, są pomijane.
+     */
     public List<PlaceVisitDto> getDetails(List<Map<String, Object>> locations) {
-        List<PlaceVisitDto> result = new ArrayList<>();
+        List<CompletableFuture<PlaceVisitDto>> lookups = locations.stream()
+                .map(loc -> CompletableFuture.supplyAsync(() -> lookupPlace(loc), placesLookupExecutor))
+                .toList();
+
+        return lookups.stream()
+                .map(CompletableFuture::join)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
-        for (Map<String, Object> loc : locations) {
-            String placeName = (String) loc.get("Nazwa miejsca");
-            String visitDate = (String) loc.get("Data odwiedzin");
+    private PlaceVisitDto lookupPlace(Map<String, Object> loc) {
+        String placeName = (String) loc.get("Nazwa miejsca");
+        String visitDate = (String) loc.get("Data odwiedzin");
 
+        try {
             String placeId = googlePlacesService.getPlaceId(placeName);
+            if (placeId == null) {
+                return null;
+            }
             String detailsJson = googlePlacesService.getPlaceDetails(placeId);
+            return toPlaceVisit(detailsJson, visitDate);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
 
-            try {
-                ObjectMapper mapper = new ObjectMapper();
-                JsonNode root = mapper.readTree(detailsJson);
-                JsonNode resultNode = root.path("result");
-                JsonNode location = resultNode.path("geometry").path("location");
+    // Zwraca null, gdy Google nie zwróciło wyniku (np. nieznane place_id)
+    private PlaceVisitDto toPlaceVisit(String detailsJson, String visitDate) throws JsonProcessingException {
+        PlaceDetailsDto details = objectMapper.readValue(detailsJson, PlaceDetailsDto.class);
+        if (details.result() == null) {
+            return null;
+        }
+        PlaceDetailsDto.Result result = details.result();
+        PlaceDetailsDto.Location location = result.geometry() != null ? result.geometry().location() : null;
+
+        PlaceVisitDto dto = new PlaceVisitDto();
+        dto.setName(Objects.requireNonNullElse(result.name(), ""));
+        dto.setAddress(Objects.requireNonNullElse(result.formattedAddress(), ""));
+        dto.setLat(location != null ? location.lat() : 0.0);
+        dto.setLng(location != null ? location.lng() : 0.0);
+        dto.setDate(visitDate);
+        return dto;
+    }
 
-                PlaceVisitDto dto = new PlaceVisitDto();
-                dto.setName(resultNode.path("name").asText());
-                dto.setAddress(resultNode.path("formatted_address").asText());
-                dto.setLat(location.path("lat").asDouble());
-                dto.setLng(location.path("lng").asDouble());
-                dto.setDate(visitDate);
+    /**
+     * Non-blocking variant of {@link #askChatGpt(String)}: the completion, the Google Places lookups and the
+     * cache are chained without blocking any thread, so a few event-loop threads can serve many plans at once.
+     * At most {@value #STREAM_LOOKUP_CONCURRENCY} lookups per plan run concurrently and further plan entries are
+     * requested only as results are consumed. Places are emitted in plan order; a place that can't be resolved
+     * within {@code travelmate.ai.plan.lookup-timeout} is skipped, while a completion slower than
+     * {@code travelmate.ai.plan.completion-timeout} fails the whole plan with a {@link java.util.concurrent.TimeoutException}.
+     */
+    public Flux<PlaceVisitDto> planItinerary(String userPrompt) {
+        return completion(systemPrompt, userPrompt)
+                .timeout(planCompletionTimeout)
+                .flatMapIterable(this::parsePlan)
+                .flatMapSequential(loc -> lookupPlaceAsync(loc)
+                                .timeout(placeLookupTimeout)
+                                .onErrorResume(e -> Mono.empty()),
+                        STREAM_LOOKUP_CONCURRENCY);
+    }
 
-                result.add(dto);
+    private Mono<PlaceVisitDto> lookupPlaceAsync(Map<String, Object> loc) {
+        String placeName = (String) loc.get("Nazwa miejsca");
+        String visitDate = (String) loc.get("Data odwiedzin");
+
+        return googlePlacesService.getPlaceIdAsync(placeName)
+                .flatMap(googlePlacesService::getPlaceDetailsAsync)
+                .handle((detailsJson, sink) -> {
+                    try {
+                        PlaceVisitDto dto = toPlaceVisit(detailsJson, visitDate);
+                        if (dto != null) {
+                            sink.next(dto);
+                        }
+                    } catch (JsonProcessingException e) {
+                        sink.error(e);
+                    }
+                });
+    }
 
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+    private List<Map<String, Object>> parsePlan(String content) {
+        try {
+            return objectMapper.readValue(content, PLAN_TYPE);
+        } catch (JsonProcessingException e) {
+            // Błąd 500 – odpowiedź modelu nie jest tablicą JSON w oczekiwanym formacie
+            throw Exceptions.propagate(e);
         }
-        return result;
     }
 
-    public String askChatGptNote(String userPrompt) {
+    // Zwykłe (niestrumieniowe) zapytanie; zwraca treść odpowiedzi (choices[0].message.content) lub pusty Mono
+    private Mono<String> completion(String system, String userPrompt) {
         Map<String, Object> body = new HashMap<>();
         body.put("model", "gpt-4o");
-
-        List<Map<String, String>> messages = new ArrayList<>();
-        messages.add(Map.of(
-                "role", "system",
-                "content", systemPromptNote
-        ));
-        messages.add(Map.of(
-                "role", "user",
-                "content", userPrompt
+        body.put("messages", List.of(
+                Map.of("role", "system", "content", system),
+                Map.of("role", "user", "content", userPrompt)
         ));
 
-        body.put("messages", messages);
+        return webClient.post()
+                .uri("/chat/completions")
+                .header("Authorization", "Bearer " + apiKey)
+                .bodyValue(body)
+                .retrieve()
+                // dekodowanie wprost z buforów odpowiedzi do rekordu, bez pośredniego String i drzewa JsonNode
+                .bodyToMono(ChatCompletionDto.class)
+                .mapNotNull(ChatCompletionDto::firstContent);
+    }
+
+    /**
+     * Streaming variant of {@link #askChatGpt(String)}.
+     * Each place is enriched with Google Places data as soon as its JSON object is complete in the stream;
+     * places are emitted in plan order and those that can't be resolved are skipped.
+     */
+    public Flux<PlaceVisitDto> streamChatGpt(String userPrompt) {
+        return Flux.defer(() -> {
+            JsonArrayObjectSplitter splitter = new JsonArrayObjectSplitter();
+            return streamCompletion(systemPrompt, userPrompt)
+                    .concatMapIterable(splitter::feed)
+                    .flatMapSequential(json -> Mono.fromCallable(() -> lookupPlace(parseLocation(json)))
+                                    .subscribeOn(placesLookupScheduler)
+                                    .onErrorResume(e -> Mono.empty()),
+                            STREAM_LOOKUP_CONCURRENCY);
+        });
+    }
+
+    /**
+     * Streaming variant of {@link #askChatGptNote(String)}; emits the report text fragment by fragment
+     */
+    public Flux<String> streamChatGptNote(String userPrompt) {
+        return streamCompletion(systemPromptNote, userPrompt);
+    }
 
-        String response = webClient.post()
+    private Map<String, Object> parseLocation(String json) throws JsonProcessingException {
+        return objectMapper.readValue(json, new TypeReference<>() {
+        });
+    }
+
+    // Wysyła zapytanie z "stream": true i zwraca kolejne fragmenty treści odpowiedzi (choices[0].delta.content)
+    private Flux<String> streamCompletion(String system, String userPrompt) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("model", "gpt-4o");
+        body.put("stream", true);
+        body.put("messages", List.of(
+                Map.of("role", "system", "content", system),
+                Map.of("role", "user", "content", userPrompt)
+        ));
+
+        return webClient.post()
                 .uri("/chat/completions")
                 .header("Authorization", "Bearer " + apiKey)
+                .accept(MediaType.TEXT_EVENT_STREAM)
                 .bodyValue(body)
                 .retrieve()
-                .bodyToMono(String.class)
-                .block();
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {
+                })
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> !STREAM_DONE.equals(data.trim()))
+                .mapNotNull(this::extractDelta);
+    }
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        JsonNode root = null;
+    // Znacznik [DONE] nie jest JSON-em, dlatego SSE czytamy jako String i dopiero fragmenty mapujemy na rekord
+    private String extractDelta(String chunkJson) {
         try {
-            root = objectMapper.readTree(response);
+            String delta = objectMapper.readValue(chunkJson, ChatCompletionDto.class).firstContent();
+            return delta != null && !delta.isEmpty() ? delta : null;
         } catch (JsonProcessingException e) {
             e.printStackTrace();
+            return null;
         }
-        String contentJsonString = root
-                .path("choices")
-                .get(0)
-                .path("message")
-                .path("content")
-                .asText();
+    }
 
-        return contentJsonString;
+    public String askChatGptNote(String userPrompt) {
+        return completion(systemPromptNote, userPrompt)
+                .timeout(callTimeout)
+                .block();
     }
 }
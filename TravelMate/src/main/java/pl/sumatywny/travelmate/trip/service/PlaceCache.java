@@ -0,0 +1,343 @@
+package pl.sumatywny.travelmate.trip.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pl.sumatywny.travelmate.trip.model.PlaceCacheEntry;
+import pl.sumatywny.travelmate.trip.model.PlaceCacheKind;
+import pl.sumatywny.travelmate.trip.repository.PlaceCacheRepository;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Dwupoziomowy cache odpowiedzi Google Places (i wzbogaconych planów wycieczek): pamięć (Caffeine, LRU + TTL)
+ * oraz tabela place_cache w bazie. Rodzaje z {@code travelmate.places.cache.memory-only-kinds} nie trafiają do bazy.
+ * Trafienia i chybienia każdego poziomu są raportowane jako metryka {@code travelmate.places.cache}.
+ * Równoległe chybienia tego samego klucza są łączone: bazę i loader wywołuje tylko pierwsze, reszta czeka na wynik.
+ */
+@Slf4j
+@Component
+public class PlaceCache {
+
+    public static final String METRIC_NAME = "travelmate.places.cache";
+
+    private static final Map<PlaceCacheKind, Duration> DATABASE_TTL = Map.of(
+            PlaceCacheKind.AUTOCOMPLETE, Duration.ofDays(1),
+            PlaceCacheKind.PLACE_ID, Duration.ofDays(30),
+            PlaceCacheKind.DETAILS, Duration.ofDays(30),
+            // Plany mogą się zdezaktualizować (zamknięte atrakcje), więc żyją krócej niż dane miejsc
+            PlaceCacheKind.PLAN, Duration.ofDays(7)
+    );
+
+    private final PlaceCacheRepository repository;
+    private final long maxDatabaseEntries;
+    private final Set<PlaceCacheKind> memoryOnlyKinds;
+    private final Map<PlaceCacheKind, Cache<String, String>> memory = new EnumMap<>(PlaceCacheKind.class);
+    private final Map<PlaceCacheKind, Map<String, Counter>> counters = new EnumMap<>(PlaceCacheKind.class);
+    // Chybienia w toku (wspólne dla get i getAsync); wpis znika, gdy wynik jest już w pamięci
+    private final ConcurrentMap<InFlightKey, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private record InFlightKey(PlaceCacheKind kind, String key) {
+    }
+
+    public PlaceCache(PlaceCacheRepository repository,
+                      MeterRegistry meterRegistry,
+                      @Value("${travelmate.places.cache.memory-max-size:10000}") long maxMemoryEntries,
+                      @Value("${travelmate.places.cache.memory-ttl:PT1H}") Duration memoryTtl,
+                      @Value("${travelmate.places.cache.database-max-size:100000}") long maxDatabaseEntries,
+                      @Value("${travelmate.places.cache.memory-only-kinds:}") Set<PlaceCacheKind> memoryOnlyKinds) {
+        this.repository = repository;
+        this.maxDatabaseEntries = maxDatabaseEntries;
+        this.memoryOnlyKinds = memoryOnlyKinds.isEmpty() ? Set.of() : EnumSet.copyOf(memoryOnlyKinds);
+
+        for (PlaceCacheKind kind : PlaceCacheKind.values()) {
+            Cache<String, String> cache = Caffeine.newBuilder()
+                    .maximumSize(maxMemoryEntries)
+                    .expireAfterWrite(memoryTtl)
+                    .build();
+            memory.put(kind, cache);
+
+            Gauge.builder(METRIC_NAME + ".size", cache, Cache::estimatedSize)
+                    .tag("kind", kind.name())
+                    .tag("tier", "memory")
+                    .register(meterRegistry);
+
+            Map<String, Counter> kindCounters = Map.of(
+                    "memory_hit", counter(meterRegistry, kind, "memory", "hit"),
+                    "memory_miss", counter(meterRegistry, kind, "memory", "miss"),
+                    "database_hit", counter(meterRegistry, kind, "database", "hit"),
+                    "database_miss", counter(meterRegistry, kind, "database", "miss")
+            );
+            counters.put(kind, kindCounters);
+        }
+    }
+
+    private static Counter counter(MeterRegistry registry, PlaceCacheKind kind, String tier, String result) {
+        return Counter.builder(METRIC_NAME)
+                .tag("kind", kind.name())
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * Normalizes free-text keys so that "Wawel" and " wawel " share a cache entry
+     */
+    public static String normalize(String key) {
+        return key.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the cached value, checking memory first and the database second, and calls the loader on a miss.
+     * Loaded values are stored in both tiers only if {@code cacheable} accepts them, so error responses are never cached.
+     * Concurrent misses of the same key wait for the first one instead of calling the loader again.
+     *
+     * @param kind Type of the cached response
+     * @param key Normalized key
+     * @param loader Fetches the value from Google on a miss
+     * @param cacheable Decides whether the loaded value may be cached
+     * @return The cached or freshly loaded value (may be null)
+     */
+    public String get(PlaceCacheKind kind, String key, Function<String, String> loader, Predicate<String> cacheable) {
+        Cache<String, String> memoryTier = memory.get(kind);
+        Map<String, Counter> kindCounters = counters.get(kind);
+
+        String value = memoryTier.getIfPresent(key);
+        if (value != null) {
+            kindCounters.get("memory_hit").increment();
+            return value;
+        }
+        kindCounters.get("memory_miss").increment();
+
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> running = join(kind, key, pending);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            value = loadMissing(kind, key, loader, cacheable);
+            finish(kind, key, pending, value, null);
+            return value;
+        } catch (Throwable e) {
+            finish(kind, key, pending, null, e);
+            throw e;
+        }
+    }
+
+    private String loadMissing(PlaceCacheKind kind, String key, Function<String, String> loader,
+                               Predicate<String> cacheable) {
+        Cache<String, String> memoryTier = memory.get(kind);
+        Map<String, Counter> kindCounters = counters.get(kind);
+
+        Optional<String> stored = readDatabase(kind, key);
+        if (stored.isPresent()) {
+            kindCounters.get("database_hit").increment();
+            memoryTier.put(key, stored.get());
+            return stored.get();
+        }
+        kindCounters.get("database_miss").increment();
+
+        String value = loader.apply(key);
+        if (value != null && cacheable.test(value)) {
+            memoryTier.put(key, value);
+            writeDatabase(kind, key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Non-blocking variant of {@link #get}. A memory hit completes immediately; the database tier is read and
+     * written on {@link Schedulers#boundedElastic()}, so the calling (event-loop) thread never waits on JDBC.
+     * Concurrent misses of the same key share one load; cancelling a subscriber does not cancel the shared load.
+     *
+     * @param kind Type of the cached response
+     * @param key Normalized key
+     * @param loader Fetches the value from Google on a miss; an empty Mono means "not found"
+     * @param cacheable Decides whether the loaded value may be cached
+     * @return The cached or freshly loaded value, or an empty Mono
+     */
+    public Mono<String> getAsync(PlaceCacheKind kind, String key, Function<String, Mono<String>> loader,
+                                 Predicate<String> cacheable) {
+        Cache<String, String> memoryTier = memory.get(kind);
+        Map<String, Counter> kindCounters = counters.get(kind);
+
+        String value = memoryTier.getIfPresent(key);
+        if (value != null) {
+            kindCounters.get("memory_hit").increment();
+            return Mono.just(value);
+        }
+        kindCounters.get("memory_miss").increment();
+
+        return Mono.defer(() -> {
+            CompletableFuture<String> pending = new CompletableFuture<>();
+            CompletableFuture<String> running = join(kind, key, pending);
+            if (running != null) {
+                return Mono.fromFuture(running, true);
+            }
+            loadMissingAsync(kind, key, loader, cacheable).subscribe(
+                    loaded -> finish(kind, key, pending, loaded, null),
+                    error -> finish(kind, key, pending, null, error),
+                    () -> finish(kind, key, pending, null, null));
+            return Mono.fromFuture(pending, true);
+        });
+    }
+
+    private Mono<String> loadMissingAsync(PlaceCacheKind kind, String key, Function<String, Mono<String>> loader,
+                                          Predicate<String> cacheable) {
+        Cache<String, String> memoryTier = memory.get(kind);
+        Map<String, Counter> kindCounters = counters.get(kind);
+
+        return Mono.fromCallable(() -> readDatabase(kind, key))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(stored -> {
+                    if (stored.isPresent()) {
+                        kindCounters.get("database_hit").increment();
+                        memoryTier.put(key, stored.get());
+                        return Mono.just(stored.get());
+                    }
+                    kindCounters.get("database_miss").increment();
+
+                    return loader.apply(key).flatMap(loaded -> {
+                        if (!cacheable.test(loaded)) {
+                            return Mono.just(loaded);
+                        }
+                        memoryTier.put(key, loaded);
+                        return Mono.fromRunnable(() -> writeDatabase(kind, key, loaded))
+                                .subscribeOn(Schedulers.boundedElastic())
+                                .thenReturn(loaded);
+                    });
+                });
+    }
+
+    /**
+     * Registers {@code pending} as the load of the key, unless another load of it is already running
+     * @return The running load to wait for, or null when the caller has to load the key itself
+     */
+    private CompletableFuture<String> join(PlaceCacheKind kind, String key, CompletableFuture<String> pending) {
+        return inFlight.putIfAbsent(new InFlightKey(kind, key), pending);
+    }
+
+    // Najpierw wyrejestrowanie, potem wynik – kto dostał błąd, przy ponownej próbie wczyta klucz od nowa
+    private void finish(PlaceCacheKind kind, String key, CompletableFuture<String> pending, String value,
+                        Throwable error) {
+        inFlight.remove(new InFlightKey(kind, key), pending);
+        if (error != null) {
+            pending.completeExceptionally(error);
+        } else {
+            pending.complete(value);
+        }
+    }
+
+    // Awaria bazy nie może blokować wyszukiwania – wtedy działamy tylko na cache w pamięci
+    private Optional<String> readDatabase(PlaceCacheKind kind, String key) {
+        if (!persistent(kind, key)) {
+            return Optional.empty();
+        }
+        try {
+            return repository.findByKindAndCacheKeyAndExpiresAtAfter(kind, key, LocalDateTime.now())
+                    .map(PlaceCacheEntry::getPayload);
+        } catch (RuntimeException e) {
+            log.warn("Place cache read failed for {} '{}': {}", kind, key, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void writeDatabase(PlaceCacheKind kind, String key, String value) {
+        if (!persistent(kind, key)) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            // Wygasły wpis o tym samym kluczu jest nadpisywany zamiast dodawany obok
+            PlaceCacheEntry entry = repository.findByKindAndCacheKey(kind, key)
+                    .orElseGet(() -> PlaceCacheEntry.builder().kind(kind).cacheKey(key).build());
+            entry.setPayload(value);
+            entry.setCreatedAt(now);
+            entry.setExpiresAt(now.plus(DATABASE_TTL.get(kind)));
+            repository.save(entry);
+        } catch (RuntimeException e) {
+            // Np. równoległy zapis tego samego klucza przez inne żądanie
+            log.warn("Place cache write failed for {} '{}': {}", kind, key, e.getMessage());
+        }
+    }
+
+    private boolean persistent(PlaceCacheKind kind, String key) {
+        return !memoryOnlyKinds.contains(kind) && key.length() <= PlaceCacheEntry.MAX_KEY_LENGTH;
+    }
+
+    /**
+     * Removes a single entry from both tiers, so the next lookup calls the loader again
+     */
+    public void evict(PlaceCacheKind kind, String key) {
+        memory.get(kind).invalidate(key);
+        if (!persistent(kind, key)) {
+            return;
+        }
+        try {
+            repository.findByKindAndCacheKey(kind, key).ifPresent(repository::delete);
+        } catch (RuntimeException e) {
+            log.warn("Place cache eviction failed for {} '{}': {}", kind, key, e.getMessage());
+        }
+    }
+
+    /**
+     * Removes expired rows and trims the table to its maximum size, oldest entries first
+     */
+    @Scheduled(fixedDelayString = "${travelmate.places.cache.cleanup-interval:PT1H}")
+    public void evictDatabase() {
+        int expired = repository.deleteExpired(LocalDateTime.now());
+
+        long overflow = repository.count() - maxDatabaseEntries;
+        int trimmed = 0;
+        while (overflow > 0) {
+            int batch = (int) Math.min(overflow, 1_000);
+            List<UUID> oldest = repository.findOldestIds(PageRequest.of(0, batch));
+            if (oldest.isEmpty()) {
+                break;
+            }
+            repository.deleteAllByIdInBatch(oldest);
+            trimmed += oldest.size();
+            overflow -= oldest.size();
+        }
+
+        if (expired > 0 || trimmed > 0) {
+            log.info("Place cache eviction: {} expired, {} over the size limit", expired, trimmed);
+        }
+    }
+
+    /**
+     * Drops the in-memory tier; the database tier is left intact
+     */
+    public void clearMemory() {
+        memory.values().forEach(Cache::invalidateAll);
+    }
+}
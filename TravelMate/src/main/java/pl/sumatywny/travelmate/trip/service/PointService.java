@@ -2,6 +2,9 @@ package pl.sumatywny.travelmate.trip.service;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import pl.sumatywny.travelmate.config.KeysetCursor;
+import pl.sumatywny.travelmate.config.KeysetPage;
+import pl.sumatywny.travelmate.config.Pagination;
 import pl.sumatywny.travelmate.trip.repository.PointRepository;
 import pl.sumatywny.travelmate.trip.model.Point;
 import pl.sumatywny.travelmate.trip.model.Trip;
@@ -27,6 +30,18 @@ public class PointService {
         return pointRepo.findByTripId(tripId);
     }
 
+    /**
+     * One page of the trip points in id (creation) order
+     * @param cursor Cursor returned with the previous page, null for the first page
+     */
+    public KeysetPage<Point> findByTripId(UUID tripId, int limit, String cursor) {
+        verifyTripExists(tripId);
+        List<Point> fetched = cursor == null
+                ? pointRepo.findPageByTripId(tripId, Pagination.fetchLimit(limit))
+                : pointRepo.findPageByTripIdAfter(tripId, KeysetCursor.decode(cursor).idAsLong(), Pagination.fetchLimit(limit));
+        return KeysetPage.of(fetched, limit, p -> KeysetCursor.of(null, p.getId()));
+    }
+
     public Point findById(UUID tripId, Long pointId) {
         verifyTripExists(tripId);
         return pointRepo.findById(pointId)
@@ -41,6 +56,17 @@ public class PointService {
         return pointRepo.save(point);
     }
 
+    /**
+     * Saves many points of one trip at once: the trip is resolved once and the inserts
+     * go out as a single JDBC batch (see hibernate.jdbc.batch_size)
+     */
+    public List<Point> createAll(UUID tripId, List<Point> points) {
+        Trip trip = tripRepo.findById(tripId)
+                .orElseThrow(() -> new RuntimeException());
+        points.forEach(point -> point.setTrip(trip));
+        return pointRepo.saveAll(points);
+    }
+
     public Point update(UUID tripId, Long pointId, Point point) {
         Point existing = findById(tripId, pointId);
         existing.setTitle(point.getTitle());
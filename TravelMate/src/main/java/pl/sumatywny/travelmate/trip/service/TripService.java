@@ -2,8 +2,11 @@ package pl.sumatywny.travelmate.trip.service;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import pl.sumatywny.travelmate.participant.repository.ParticipantRepository;
+import pl.sumatywny.travelmate.config.KeysetCursor;
+import pl.sumatywny.travelmate.config.KeysetPage;
+import pl.sumatywny.travelmate.config.Pagination;
 import pl.sumatywny.travelmate.participant.service.ParticipantService;
+import pl.sumatywny.travelmate.participant.service.TripPermissionService;
 import pl.sumatywny.travelmate.participant.dto.ParticipantDTO;
 import pl.sumatywny.travelmate.trip.repository.TripRepository;
 import pl.sumatywny.travelmate.trip.model.Trip;
@@ -19,14 +22,14 @@ import java.util.UUID;
 public class TripService {
 
     private final TripRepository tripRepo;
-    private final ParticipantRepository participantRepo;
+    private final TripPermissionService permissionService;
     private final UserService userService;
     private final ParticipantService participantService;
 
-    public TripService(TripRepository tripRepo, ParticipantRepository participantRepo,
+    public TripService(TripRepository tripRepo, TripPermissionService permissionService,
                        UserService userService, ParticipantService participantService) {
         this.tripRepo = tripRepo;
-        this.participantRepo = participantRepo;
+        this.permissionService = permissionService;
         this.userService = userService;
         this.participantService = participantService;
     }
@@ -69,13 +72,26 @@ public class TripService {
             throw new RuntimeException("Trip not found");
         }
         tripRepo.deleteById(id);
+        permissionService.evictTrip(id);
     }
 
     public boolean canUserAccessTrip(UUID tripId, UUID userId) {
-        return participantRepo.existsByTripIdAndUserId(tripId, userId);
+        return permissionService.isParticipant(tripId, userId);
     }
 
     public List<Trip> findTripsByUserId(UUID userId) {
         return tripRepo.findTripsByParticipantUserId(userId);
     }
+
+    /**
+     * One page of the user's trips, ordered by trip id
+     * @param cursor Cursor returned with the previous page, null for the first page
+     */
+    public KeysetPage<Trip> findTripsByUserId(UUID userId, int limit, String cursor) {
+        List<Trip> fetched = cursor == null
+                ? tripRepo.findPageByParticipantUserId(userId, Pagination.fetchLimit(limit))
+                : tripRepo.findPageByParticipantUserIdAfter(userId, KeysetCursor.decode(cursor).idAsUuid(),
+                        Pagination.fetchLimit(limit));
+        return KeysetPage.of(fetched, limit, t -> KeysetCursor.of(null, t.getId()));
+    }
 }
\ No newline at end of file
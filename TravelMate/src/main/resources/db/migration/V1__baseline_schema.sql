@@ -0,0 +1,130 @@
+-- Baseline schema: tables, primary keys, unique constraints and foreign keys
+-- (secondary indexes are added in V2)
+
+create sequence point_seq start with 1 increment by 50;
+
+create table users (
+    id uuid not null,
+    email varchar(255) not null,
+    first_name varchar(255),
+    last_name varchar(255),
+    password varchar(255) not null,
+    role varchar(255) check (role in ('USER', 'ADMIN')),
+    constraint pk_users primary key (id),
+    constraint uk_users_email unique (email)
+);
+
+create table password_reset_tokens (
+    id uuid not null,
+    user_id uuid not null,
+    token varchar(255) not null,
+    used boolean not null,
+    created_at timestamp(6) not null,
+    expires_at timestamp(6) not null,
+    constraint pk_password_reset_tokens primary key (id),
+    constraint uk_password_reset_tokens_token unique (token),
+    constraint fk_password_reset_tokens_user foreign key (user_id) references users (id)
+);
+
+create table trip (
+    id uuid not null,
+    name varchar(255),
+    start_date date,
+    end_date date,
+    trip_budget float(53) not null,
+    constraint pk_trip primary key (id)
+);
+
+create table participants (
+    id uuid not null,
+    trip_id uuid not null,
+    user_id uuid not null,
+    email varchar(255),
+    role varchar(255) not null check (role in ('ORGANIZER', 'MEMBER', 'GUEST')),
+    status varchar(255) not null check (status in ('PENDING', 'ACCEPTED', 'DECLINED')),
+    created_at timestamp(6) not null,
+    updated_at timestamp(6) not null,
+    joined_at timestamp(6),
+    constraint pk_participants primary key (id)
+);
+
+create table point (
+    id bigint not null,
+    trip_id uuid,
+    title varchar(255),
+    date date,
+    description varchar(255),
+    latitude float(53) not null,
+    longitude float(53) not null,
+    visited boolean not null,
+    constraint pk_point primary key (id),
+    constraint fk_point_trip foreign key (trip_id) references trip (id)
+);
+
+create table note (
+    id uuid not null,
+    trip_id uuid,
+    point_id bigint,
+    author_id uuid,
+    content varchar(255),
+    date date,
+    constraint pk_note primary key (id),
+    constraint fk_note_trip foreign key (trip_id) references trip (id),
+    constraint fk_note_point foreign key (point_id) references point (id),
+    constraint fk_note_author foreign key (author_id) references participants (id)
+);
+
+create table expenses (
+    id uuid not null,
+    trip_id uuid not null,
+    name varchar(255) not null,
+    amount numeric(38, 2) not null,
+    category varchar(255) not null check (category in ('TRANSPORT', 'FOOD', 'ACCOMMODATION', 'ACTIVITIES', 'OTHER')),
+    description varchar(500),
+    date date not null,
+    payer_id uuid not null,
+    created_at timestamp(6) not null,
+    updated_at timestamp(6) not null,
+    constraint pk_expenses primary key (id)
+);
+
+create table expense_participant_shares (
+    expense_id uuid not null,
+    participant_id uuid not null,
+    share numeric(38, 2) not null,
+    constraint pk_expense_participant_shares primary key (expense_id, participant_id),
+    constraint fk_expense_participant_shares_expense foreign key (expense_id) references expenses (id)
+);
+
+create table expense_participant_payment_status (
+    expense_id uuid not null,
+    participant_id uuid not null,
+    is_paid boolean not null,
+    constraint pk_expense_participant_payment_status primary key (expense_id, participant_id),
+    constraint fk_expense_participant_payment_status_expense foreign key (expense_id) references expenses (id)
+);
+
+create table budget_ledger (
+    id uuid not null,
+    trip_id uuid not null,
+    participant_id uuid not null,
+    paid numeric(38, 10) not null,
+    share numeric(38, 10) not null,
+    balance numeric(38, 10) not null,
+    payment_count integer not null,
+    share_count integer not null,
+    updated_at timestamp(6) not null,
+    constraint pk_budget_ledger primary key (id),
+    constraint uk_budget_ledger_trip_participant unique (trip_id, participant_id)
+);
+
+create table place_cache (
+    id uuid not null,
+    kind varchar(20) not null check (kind in ('AUTOCOMPLETE', 'PLACE_ID', 'DETAILS')),
+    cache_key varchar(512) not null,
+    payload text not null,
+    created_at timestamp(6) not null,
+    expires_at timestamp(6) not null,
+    constraint pk_place_cache primary key (id),
+    constraint uk_place_cache_kind_key unique (kind, cache_key)
+);
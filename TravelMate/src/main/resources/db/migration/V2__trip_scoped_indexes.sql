@@ -0,0 +1,27 @@
+-- Indexes for the trip-scoped finders. Leading trip_id/user_id columns serve the plain equality
+-- finders; trailing (date, id) / (created_at, id) columns serve the ordered keyset pages.
+
+-- ExpenseRepository: findAllByTripId, existsByTripId, findPageByTripId[After]
+create index idx_expenses_trip_date on expenses (trip_id, date, id);
+
+-- ParticipantRepository: findByTripIdAndUserId, existsByTripIdAndUserId (one record per user and trip)
+alter table participants add constraint uk_participants_trip_user unique (trip_id, user_id);
+-- findByTripIdAndEmail, existsByTripIdAndEmail
+create index idx_participants_trip_email on participants (trip_id, email);
+-- findByUserIdAndStatus
+create index idx_participants_user_status on participants (user_id, status);
+-- TripRepository: trips of a user
+create index idx_participants_user_trip on participants (user_id, trip_id);
+-- findAllByTripId, findPageByTripId[After]
+create index idx_participants_trip_created on participants (trip_id, created_at, id);
+
+-- PointRepository: findByTripId, findPageByTripId[After]
+create index idx_point_trip_id on point (trip_id, id);
+
+-- NoteRepository: findSummariesByTripId, findSummaryPageByTripId[After]
+create index idx_note_trip_date on note (trip_id, date, id);
+-- findSummariesByPointId
+create index idx_note_point on note (point_id);
+
+-- PlaceCacheRepository: evicting the oldest entries
+create index idx_place_cache_created_at on place_cache (created_at);
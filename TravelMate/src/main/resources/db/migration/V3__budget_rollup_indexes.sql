@@ -0,0 +1,8 @@
+-- Indexes for the per-user budget roll-up (ExpenseRepository.findBudgetTotalsByUserId).
+-- Both cover the summed column, so the aggregates are answered from the index alone.
+
+-- expenses paid by a user, grouped by trip
+create index idx_expenses_payer_trip on expenses (payer_id, trip_id, amount);
+
+-- shares of a user; the primary key (expense_id, participant_id) cannot be searched by participant
+create index idx_expense_shares_participant on expense_participant_shares (participant_id, expense_id, share);
@@ -0,0 +1,5 @@
+-- AI itinerary plans are cached in place_cache next to the Google Places responses (PlaceCacheKind.PLAN).
+-- The inline check constraint from V1 got PostgreSQL's default name.
+alter table place_cache drop constraint place_cache_kind_check;
+alter table place_cache add constraint place_cache_kind_check
+    check (kind in ('AUTOCOMPLETE', 'PLACE_ID', 'DETAILS', 'PLAN'));
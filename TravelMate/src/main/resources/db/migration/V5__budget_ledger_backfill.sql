@@ -0,0 +1,18 @@
+-- Ledger rows for trips whose expenses predate budget_ledger (BudgetLedgerService).
+-- Expense changes only apply deltas to existing rows, so a trip without rows has to be filled in once,
+-- with the same sums as BudgetLedgerService.rebuild: paid = amounts paid, share = amount × share.
+insert into budget_ledger (id, trip_id, participant_id, paid, share, balance, payment_count, share_count, updated_at)
+select gen_random_uuid(), trip_id, participant_id,
+       sum(paid), sum(share), sum(paid) - sum(share),
+       sum(payment_count), sum(share_count), now()
+from (
+    select e.trip_id, e.payer_id as participant_id, e.amount as paid, 0 as share,
+           1 as payment_count, 0 as share_count
+    from expenses e
+    union all
+    select e.trip_id, s.participant_id, 0, e.amount * s.share, 0, 1
+    from expenses e
+    join expense_participant_shares s on s.expense_id = e.id
+) contribution
+where not exists (select 1 from budget_ledger l where l.trip_id = contribution.trip_id)
+group by trip_id, participant_id;
@@ -0,0 +1,59 @@
+package pl.sumatywny.travelmate;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assumptions.abort;
+
+/**
+ * Baza testów, które potrzebują prawdziwego PostgreSQL (schemat z migracji Flyway, blokady wierszy,
+ * {@code ON CONFLICT}). Każda klasa testowa uruchamia własny wbudowany serwer; jeśli nie może on wystartować
+ * (np. brak binariów dla danej platformy), testy klasy są pomijane.
+ */
+public abstract class EmbeddedPostgresTest {
+
+    private static EmbeddedPostgres postgres;
+
+    @BeforeAll
+    static void startPostgres() {
+        try {
+            postgres = EmbeddedPostgres.builder().start();
+        } catch (Exception | LinkageError e) {
+            abort("Embedded PostgreSQL unavailable: " + e.getMessage());
+        }
+    }
+
+    @AfterAll
+    static void stopPostgres() throws Exception {
+        if (postgres != null) {
+            postgres.close();
+            postgres = null;
+        }
+    }
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    // Czeka, aż inna sesja zacznie czekać na blokadę trzymaną przez bieżącą transakcję
+    protected static void awaitSessionWaitingForLock(JdbcTemplate jdbcTemplate) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (jdbcTemplate.queryForObject(
+                "select count(*) from pg_stat_activity where wait_event_type = 'Lock'", Long.class) == 0) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("No other session waited for a lock of the current transaction");
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package pl.sumatywny.travelmate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import pl.sumatywny.travelmate.budget.repository.ExpenseRepository;
+import pl.sumatywny.travelmate.budget.repository.TripBudgetTotals;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Migracje Flyway na prawdziwym PostgreSQL: Hibernate waliduje schemat, a plany zapytań
+ * dla najczęściej używanych finderów (po tripId / userId) muszą korzystać z indeksów z V2.
+ * Test jest pomijany, jeśli wbudowany PostgreSQL nie może wystartować (np. brak binariów dla danej platformy).
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class MigrationQueryPlanTest extends EmbeddedPostgresTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // JdbcTemplate dołącza do transakcji testu, więc SET LOCAL obowiązuje do jego końca.
+        // Przy pustych tabelach planner i tak wybrałby seq scan – wyłączamy go, żeby sprawdzić,
+        // czy dla zapytania w ogóle istnieje pasujący indeks.
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+    }
+
+    @Test
+    void shouldApplyAllMigrations() {
+        List<String> versions = jdbcTemplate.queryForList(
+                "select version from flyway_schema_history where success order by installed_rank", String.class);
+
+        assertThat(versions).containsExactly("1", "2", "3", "4", "5");
+    }
+
+    @Test
+    void shouldUseIndexesForExpenseFinders() {
+        UUID tripId = UUID.randomUUID();
+
+        assertUsesIndex("idx_expenses_trip_date",
+                "select * from expenses where trip_id = ? order by date, id limit 51", tripId);
+        assertUsesIndex("idx_expenses_trip_date",
+                "select * from expenses where trip_id = ? and (date > ? or (date = ? and id > ?)) order by date, id limit 51",
+                tripId, LocalDate.now(), LocalDate.now(), UUID.randomUUID());
+    }
+
+    @Test
+    void shouldUseIndexesForParticipantFinders() {
+        // Przy pustej tabeli wszystkie indeksy zaczynające się od trip_id / user_id kosztują tyle samo –
+        // dopiero statystyki (20 wycieczek po 100 uczestników, każdy użytkownik w 20 wycieczkach)
+        // pokazują, który indeks jest selektywny
+        jdbcTemplate.update("""
+                insert into participants (id, trip_id, user_id, email, role, status, created_at, updated_at)
+                select gen_random_uuid(), ('00000000-0000-0000-0000-' || lpad((n % 20)::text, 12, '0'))::uuid,
+                       ('00000000-0000-0000-0001-' || lpad((n / 20)::text, 12, '0'))::uuid,
+                       'user' || n || '@example.com', 'MEMBER',
+                       (array['PENDING', 'ACCEPTED', 'DECLINED'])[n % 3 + 1],
+                       now() - n * interval '1 minute', now()
+                from generate_series(0, 1999) n
+                """);
+        jdbcTemplate.execute("analyze participants");
+        UUID tripId = UUID.fromString("00000000-0000-0000-0000-000000000007");
+        UUID userId = UUID.fromString("00000000-0000-0000-0001-000000000042");
+
+        // (trip_id, user_id) i (user_id, trip_id) są równie dobre – ważne, żeby oba warunki trafiły do Index Cond
+        assertThat(explain("select * from participants where trip_id = ? and user_id = ?", tripId, userId))
+                .containsPattern("uk_participants_trip_user|idx_participants_user_trip")
+                .doesNotContain("Filter:");
+        assertUsesIndex("idx_participants_trip_email",
+                "select * from participants where trip_id = ? and email = ?", tripId, "user847@example.com");
+        assertUsesIndex("idx_participants_user_status",
+                "select * from participants where user_id = ? and status = ?", userId, "PENDING");
+    }
+
+    @Test
+    void shouldUseIndexesForBudgetRollup() {
+        UUID userId = UUID.randomUUID();
+
+        assertUsesIndex("idx_expenses_payer_trip",
+                "select trip_id, sum(amount) from expenses where payer_id = ? group by trip_id", userId);
+        assertUsesIndex("idx_expense_shares_participant",
+                "select expense_id, share from expense_participant_shares where participant_id = ?", userId);
+    }
+
+    @Test
+    void shouldRunBudgetRollupQueryOnPostgres() {
+        UUID tripId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        UUID expenseId = UUID.randomUUID();
+        jdbcTemplate.update("insert into trip (id, name, trip_budget) values (?, 'Kraków', 1000)", tripId);
+        jdbcTemplate.update("insert into participants (id, trip_id, user_id, role, status, created_at, updated_at) "
+                + "values (?, ?, ?, 'MEMBER', 'ACCEPTED', now(), now())", UUID.randomUUID(), tripId, userId);
+        jdbcTemplate.update("insert into expenses (id, trip_id, name, amount, category, date, payer_id, created_at, updated_at) "
+                + "values (?, ?, 'Obiad', 90.00, 'FOOD', current_date, ?, now(), now())", expenseId, tripId, userId);
+        jdbcTemplate.update("insert into expense_participant_shares (expense_id, participant_id, share) values (?, ?, 0.50)",
+                expenseId, userId);
+
+        List<TripBudgetTotals> totals = expenseRepository.findBudgetTotalsByUserId(userId);
+
+        assertThat(totals).singleElement().satisfies(trip -> {
+            assertThat(trip.getTripId()).isEqualTo(tripId);
+            assertThat(trip.getPaid()).isEqualByComparingTo("90.00");
+            assertThat(trip.getOwed()).isEqualByComparingTo("45.00");
+        });
+    }
+
+    @Test
+    void shouldBackfillLedgerOfTripsWithoutLedgerRows() {
+        UUID legacyTrip = UUID.randomUUID();
+        UUID trackedTrip = UUID.randomUUID();
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+        insertExpense(legacyTrip, alice, "90.00", alice, "0.33", bob, "0.67");
+        insertExpense(legacyTrip, bob, "10.00", bob, "1.00");
+        insertExpense(trackedTrip, alice, "50.00", alice, "1.00");
+        jdbcTemplate.update("insert into budget_ledger (id, trip_id, participant_id, paid, share, balance, "
+                + "payment_count, share_count, updated_at) values (?, ?, ?, 50, 50, 0, 1, 1, now())",
+                UUID.randomUUID(), trackedTrip, alice);
+
+        // migracja wykonana już przy starcie – uruchamiamy ją ponownie na danych sprzed ledgera
+        ResourceDatabasePopulator backfill =
+                new ResourceDatabasePopulator(new ClassPathResource("db/migration/V5__budget_ledger_backfill.sql"));
+        DatabasePopulatorUtils.execute(backfill, dataSource);
+
+        List<Map<String, Object>> legacy = jdbcTemplate.queryForList(
+                "select * from budget_ledger where trip_id = ? order by paid desc", legacyTrip);
+        assertThat(legacy).hasSize(2);
+        assertThat(legacy.get(0)).containsEntry("participant_id", alice)
+                .containsEntry("payment_count", 1).containsEntry("share_count", 1);
+        assertThat((BigDecimal) legacy.get(0).get("paid")).isEqualByComparingTo("90.00");
+        assertThat((BigDecimal) legacy.get(0).get("share")).isEqualByComparingTo("29.70");
+        assertThat((BigDecimal) legacy.get(0).get("balance")).isEqualByComparingTo("60.30");
+        assertThat(legacy.get(1)).containsEntry("participant_id", bob)
+                .containsEntry("payment_count", 1).containsEntry("share_count", 2);
+        assertThat((BigDecimal) legacy.get(1).get("share")).isEqualByComparingTo("70.30");
+        assertThat((BigDecimal) legacy.get(1).get("balance")).isEqualByComparingTo("-60.30");
+        assertThat(jdbcTemplate.queryForObject("select count(*) from budget_ledger where trip_id = ?",
+                Integer.class, trackedTrip)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldUseIndexesForPointAndNoteFinders() {
+        UUID tripId = UUID.randomUUID();
+
+        assertUsesIndex("idx_point_trip_id",
+                "select * from point where trip_id = ? order by id", tripId);
+        assertUsesIndex("idx_note_trip_date",
+                "select * from note where trip_id = ? order by date, id", tripId);
+        assertUsesIndex("idx_note_point",
+                "select * from note where point_id = ?", 1L);
+    }
+
+    @Test
+    void shouldAcceptCachedPlansInPlaceCache() {
+        String insert = "insert into place_cache (id, kind, cache_key, payload, created_at, expires_at) "
+                + "values (?, ?, 'kraków|3|pl', '{}', now(), now() + interval '7 days')";
+
+        jdbcTemplate.update(insert, UUID.randomUUID(), "PLAN");
+
+        assertThatThrownBy(() -> jdbcTemplate.update(insert, UUID.randomUUID(), "ITINERARY"))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void shouldRejectSecondParticipantRecordForSameUserAndTrip() {
+        UUID tripId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        String insert = "insert into participants (id, trip_id, user_id, role, status, created_at, updated_at) "
+                + "values (?, ?, ?, 'MEMBER', 'PENDING', now(), now())";
+
+        jdbcTemplate.update(insert, UUID.randomUUID(), tripId, userId);
+
+        assertThatThrownBy(() -> jdbcTemplate.update(insert, UUID.randomUUID(), tripId, userId))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private void insertExpense(UUID tripId, UUID payerId, String amount, Object... shares) {
+        UUID expenseId = UUID.randomUUID();
+        jdbcTemplate.update("insert into expenses (id, trip_id, name, amount, category, date, payer_id, created_at, updated_at) "
+                + "values (?, ?, 'Obiad', ?, 'FOOD', current_date, ?, now(), now())",
+                expenseId, tripId, new BigDecimal(amount), payerId);
+        for (int i = 0; i < shares.length; i += 2) {
+            jdbcTemplate.update("insert into expense_participant_shares (expense_id, participant_id, share) values (?, ?, ?)",
+                    expenseId, shares[i], new BigDecimal((String) shares[i + 1]));
+        }
+    }
+
+    private void assertUsesIndex(String index, String sql, Object... args) {
+        assertThat(explain(sql, args)).as(sql).contains(index).doesNotContain("Seq Scan");
+    }
+
+    private String explain(String sql, Object... args) {
+        return String.join("\n", jdbcTemplate.queryForList("explain " + sql, String.class, args));
+    }
+}
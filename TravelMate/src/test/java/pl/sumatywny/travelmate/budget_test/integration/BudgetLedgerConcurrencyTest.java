@@ -0,0 +1,137 @@
+package pl.sumatywny.travelmate.budget_test.integration;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.sumatywny.travelmate.EmbeddedPostgresTest;
+import pl.sumatywny.travelmate.budget.dto.ExpenseDTO;
+import pl.sumatywny.travelmate.budget.model.BudgetLedgerEntry;
+import pl.sumatywny.travelmate.budget.model.ExpenseCategory;
+import pl.sumatywny.travelmate.budget.repository.BudgetLedgerRepository;
+import pl.sumatywny.travelmate.budget.service.BudgetLedgerService;
+import pl.sumatywny.travelmate.budget.service.ExpenseMapper;
+import pl.sumatywny.travelmate.budget.service.ExpenseService;
+import pl.sumatywny.travelmate.participant.model.ParticipantRole;
+import pl.sumatywny.travelmate.participant.service.TripPermissionService;
+import pl.sumatywny.travelmate.security.service.UserService;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pierwsze wydatki nowego uczestnika dodawane równolegle: obie transakcje wstawiają ten sam wiersz ledgera.
+ * Druga czeka na unikalnym kluczu, aż pierwsza się zatwierdzi, i musi dopisać się do jej wiersza zamiast
+ * kończyć się naruszeniem uk_budget_ledger_trip_participant.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ExpenseService.class, ExpenseMapper.class, BudgetLedgerService.class})
+class BudgetLedgerConcurrencyTest extends EmbeddedPostgresTest {
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private BudgetLedgerRepository ledgerRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private TripPermissionService permissionService;
+
+    private final UUID tripId = UUID.randomUUID();
+    private final UUID anna = UUID.randomUUID();
+    private final UUID bartek = UUID.randomUUID();
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        when(permissionService.getUserRole(tripId, anna)).thenReturn(ParticipantRole.MEMBER);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        executor.shutdownNow();
+        jdbcTemplate.update("delete from expense_participant_payment_status");
+        jdbcTemplate.update("delete from expense_participant_shares");
+        jdbcTemplate.update("delete from expenses");
+        jdbcTemplate.update("delete from budget_ledger");
+    }
+
+    @Test
+    void shouldAddConcurrentFirstExpensesOfNewParticipants() throws Exception {
+        AtomicReference<Future<ExpenseDTO>> second = new AtomicReference<>();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            expenseService.addExpense(expense("Hotel", "100.00"), anna);
+            // wiersze ledgera pierwszej transakcji są już w bazie, ale niezatwierdzone
+            entityManager.flush();
+            second.set(executor.submit(() -> expenseService.addExpense(expense("Obiad", "40.00"), anna)));
+            // druga transakcja nie widzi jeszcze wierszy pierwszej i stoi na unikalnym kluczu ledgera
+            awaitSessionWaitingForLock(jdbcTemplate);
+        });
+        second.get().get(10, TimeUnit.SECONDS);
+
+        Map<UUID, BudgetLedgerEntry> ledger = ledgerRepository.findAllByTripId(tripId).stream()
+                .collect(Collectors.toMap(BudgetLedgerEntry::getParticipantId, entry -> entry));
+        assertThat(ledger).containsOnlyKeys(anna, bartek);
+        assertThat(ledger.get(anna).getPaid()).isEqualByComparingTo("140.00");
+        assertThat(ledger.get(anna).getPaymentCount()).isEqualTo(2);
+        assertThat(ledger.get(anna).getBalance()).isEqualByComparingTo("70.00");
+        assertThat(ledger.get(bartek).getShare()).isEqualByComparingTo("70.00");
+        assertThat(ledger.get(bartek).getShareCount()).isEqualTo(2);
+    }
+
+    private ExpenseDTO expense(String name, String amount) {
+        return ExpenseDTO.builder()
+                .tripId(tripId)
+                .name(name)
+                .amount(new BigDecimal(amount))
+                .category(ExpenseCategory.FOOD)
+                .date(LocalDate.of(2025, 5, 1))
+                .payerId(anna)
+                .participantShares(Map.of(anna, new BigDecimal("0.5"), bartek, new BigDecimal("0.5")))
+                .participantPaymentStatus(Map.of(anna, true, bartek, false))
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+package pl.sumatywny.travelmate.budget_test.integration;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import pl.sumatywny.travelmate.budget.dto.TripBudgetDTO;
+import pl.sumatywny.travelmate.budget.dto.UserBudgetSummaryDTO;
+import pl.sumatywny.travelmate.budget.model.Expense;
+import pl.sumatywny.travelmate.budget.model.ExpenseCategory;
+import pl.sumatywny.travelmate.budget.repository.ExpenseRepository;
+import pl.sumatywny.travelmate.budget.service.BudgetRollupService;
+import pl.sumatywny.travelmate.participant.model.InvitationStatus;
+import pl.sumatywny.travelmate.participant.model.Participant;
+import pl.sumatywny.travelmate.participant.model.ParticipantRole;
+import pl.sumatywny.travelmate.trip.model.Trip;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class BudgetRollupQueryTest {
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final UUID anna = UUID.randomUUID();
+    private final UUID bartek = UUID.randomUUID();
+    private Trip krakow;
+    private Trip gdansk;
+    private Trip wroclaw;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        krakow = trip("Kraków", LocalDate.of(2025, 5, 1));
+        gdansk = trip("Gdańsk", LocalDate.of(2025, 7, 1));
+        wroclaw = trip("Wrocław", null);
+        Trip zakopane = trip("Zakopane", LocalDate.of(2025, 1, 1));
+        Trip poznan = trip("Poznań", LocalDate.of(2025, 3, 1));
+        Trip sopot = trip("Sopot", LocalDate.of(2025, 4, 1));
+
+        participant(krakow, anna);
+        participant(krakow, bartek);
+        participant(gdansk, anna);
+        participant(gdansk, bartek);
+        participant(wroclaw, anna);
+        participant(zakopane, bartek);
+        participant(poznan, bartek);
+        participant(poznan, anna, InvitationStatus.PENDING);
+        participant(sopot, bartek);
+        participant(sopot, anna, InvitationStatus.DECLINED);
+
+        // Kraków: Anna płaci 100 dzielone po połowie, Bartek płaci 40 – Anna ma 25%
+        expense(krakow, anna, "100.00", Map.of(anna, "0.50", bartek, "0.50"));
+        expense(krakow, bartek, "40.00", Map.of(anna, "0.25", bartek, "0.75"));
+        // Gdańsk: tylko Bartek płaci, Anna ma połowę
+        expense(gdansk, bartek, "60.00", Map.of(anna, "0.50", bartek, "0.50"));
+        // Zakopane: Anna nie jest uczestnikiem
+        expense(zakopane, bartek, "500.00", Map.of(bartek, "1.00"));
+        // Poznań i Sopot: Anna nie przyjęła zaproszenia, choć ma już udziały w wydatkach
+        expense(poznan, bartek, "80.00", Map.of(anna, "0.50", bartek, "0.50"));
+        expense(sopot, anna, "20.00", Map.of(anna, "1.00"));
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void shouldAggregatePaidAndOwedPerTripInSingleStatement() {
+        UserBudgetSummaryDTO summary = new BudgetRollupService(expenseRepository).getUserSummary(anna);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(summary.getTrips()).extracting(TripBudgetDTO::getTripId)
+                .containsExactly(krakow.getId(), gdansk.getId(), wroclaw.getId());
+
+        TripBudgetDTO krakowTotals = summary.getTrips().get(0);
+        assertThat(krakowTotals.getTripName()).isEqualTo("Kraków");
+        assertThat(krakowTotals.getPaid()).isEqualByComparingTo("100.00");
+        assertThat(krakowTotals.getOwed()).isEqualByComparingTo("60.00");
+        assertThat(krakowTotals.getBalance()).isEqualByComparingTo("40.00");
+
+        TripBudgetDTO gdanskTotals = summary.getTrips().get(1);
+        assertThat(gdanskTotals.getPaid()).isEqualByComparingTo("0");
+        assertThat(gdanskTotals.getOwed()).isEqualByComparingTo("30.00");
+        assertThat(gdanskTotals.getBalance()).isEqualByComparingTo("-30.00");
+
+        TripBudgetDTO wroclawTotals = summary.getTrips().get(2);
+        assertThat(wroclawTotals.getPaid()).isEqualByComparingTo("0");
+        assertThat(wroclawTotals.getOwed()).isEqualByComparingTo("0");
+
+        assertThat(summary.getTotalPaid()).isEqualByComparingTo("100.00");
+        assertThat(summary.getTotalOwed()).isEqualByComparingTo("90.00");
+        assertThat(summary.getBalance()).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void shouldReturnEmptySummaryForUserWithoutTrips() {
+        UserBudgetSummaryDTO summary = new BudgetRollupService(expenseRepository).getUserSummary(UUID.randomUUID());
+
+        assertThat(summary.getTrips()).isEmpty();
+        assertThat(summary.getTotalPaid()).isEqualByComparingTo("0");
+        assertThat(summary.getBalance()).isEqualByComparingTo("0");
+    }
+
+    private Trip trip(String name, LocalDate startDate) {
+        Trip trip = Trip.builder().name(name).startDate(startDate).tripBudget(1000.0).build();
+        entityManager.persist(trip);
+        return trip;
+    }
+
+    private void participant(Trip trip, UUID userId) {
+        participant(trip, userId, InvitationStatus.ACCEPTED);
+    }
+
+    private void participant(Trip trip, UUID userId, InvitationStatus status) {
+        entityManager.persist(Participant.builder()
+                .tripId(trip.getId())
+                .userId(userId)
+                .role(ParticipantRole.MEMBER)
+                .status(status)
+                .build());
+    }
+
+    private void expense(Trip trip, UUID payer, String amount, Map<UUID, String> shares) {
+        Map<UUID, BigDecimal> participantShares = new HashMap<>();
+        shares.forEach((userId, share) -> participantShares.put(userId, new BigDecimal(share)));
+        entityManager.persist(Expense.builder()
+                .name("Wydatek")
+                .tripId(trip.getId())
+                .amount(new BigDecimal(amount))
+                .category(ExpenseCategory.FOOD)
+                .date(LocalDate.of(2025, 5, 2))
+                .payerId(payer)
+                .participantShares(participantShares)
+                .participantPaymentStatus(Map.of())
+                .build());
+    }
+}
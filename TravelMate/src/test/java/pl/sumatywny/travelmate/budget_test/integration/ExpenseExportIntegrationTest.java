@@ -0,0 +1,224 @@
+package pl.sumatywny.travelmate.budget_test.integration;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import pl.sumatywny.travelmate.budget.dto.ExpenseDTO;
+import pl.sumatywny.travelmate.budget.model.Expense;
+import pl.sumatywny.travelmate.budget.model.ExpenseCategory;
+import pl.sumatywny.travelmate.budget.service.ExpenseExportService;
+import pl.sumatywny.travelmate.budget.service.ExpenseImportService;
+import pl.sumatywny.travelmate.budget.service.ExpenseMapper;
+import pl.sumatywny.travelmate.participant.model.InvitationStatus;
+import pl.sumatywny.travelmate.participant.model.Participant;
+import pl.sumatywny.travelmate.participant.model.ParticipantRole;
+import pl.sumatywny.travelmate.participant.service.TripPermissionService;
+import pl.sumatywny.travelmate.security.model.User;
+import pl.sumatywny.travelmate.security.service.UserService;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({ExpenseExportService.class, ExpenseMapper.class})
+class ExpenseExportIntegrationTest {
+
+    private static final int EXPENSE_COUNT = 1_100;
+    private static final int WINDOW_SIZE = 500;
+
+    @Autowired
+    private ExpenseExportService exportService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private TripPermissionService permissionService;
+
+    private final UUID tripId = UUID.randomUUID();
+    private final UUID anna = UUID.randomUUID();
+    private final UUID bartek = UUID.randomUUID();
+    // były uczestnik – występuje w starych wydatkach, ale nie ma go już w wycieczce
+    private final UUID cezary = UUID.randomUUID();
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Map<UUID, User> users = Map.of(
+                anna, User.builder().id(anna).email("anna@example.com").firstName("Anna").lastName("Nowak").build(),
+                bartek, User.builder().id(bartek).email("bartek@example.com").firstName("Bartek").build(),
+                cezary, User.builder().id(cezary).email("cezary@example.com").build());
+        when(userService.findAllByIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<UUID> ids = invocation.getArgument(0);
+            return ids.stream().filter(users::containsKey).collect(Collectors.toMap(id -> id, users::get));
+        });
+        when(permissionService.isParticipant(tripId, anna)).thenReturn(true);
+
+        participant(anna);
+        participant(bartek);
+
+        // daty celowo nie po kolei, żeby sprawdzić sortowanie w bazie
+        for (int i = 0; i < EXPENSE_COUNT; i++) {
+            UUID payer = i % 2 == 0 ? anna : bartek;
+            Map<UUID, BigDecimal> shares = i % 100 == 0
+                    ? Map.of(anna, new BigDecimal("0.50"), cezary, new BigDecimal("0.50"))
+                    : Map.of(anna, new BigDecimal("0.50"), bartek, new BigDecimal("0.50"));
+            Map<UUID, Boolean> paid = new HashMap<>();
+            shares.keySet().forEach(userId -> paid.put(userId, userId.equals(payer)));
+            entityManager.persist(Expense.builder()
+                    .name("Wydatek " + i)
+                    .tripId(tripId)
+                    .amount(new BigDecimal("10.00").add(BigDecimal.valueOf(i)))
+                    .category(ExpenseCategory.FOOD)
+                    .description(i == 7 ? "Obiad, \"u Zośki\"" : null)
+                    .date(LocalDate.of(2025, 5, 1).plusDays((i * 7L) % 31))
+                    .payerId(payer)
+                    .participantShares(shares)
+                    .participantPaymentStatus(paid)
+                    .build());
+        }
+        // Wydatek innej wycieczki nie może trafić do eksportu
+        entityManager.persist(Expense.builder().name("Obcy").tripId(UUID.randomUUID()).amount(BigDecimal.ONE)
+                .category(ExpenseCategory.OTHER).date(LocalDate.of(2025, 5, 1)).payerId(anna)
+                .participantShares(Map.of(anna, BigDecimal.ONE)).participantPaymentStatus(Map.of(anna, true)).build());
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void shouldStreamCsvInWindowsWithFlatPersistenceContext() throws Exception {
+        ManagedEntitiesProbe out = new ManagedEntitiesProbe();
+
+        exportService.export(tripId, ExpenseImportService.TEXT_CSV, out);
+
+        // uczestnicy + kursor + po dwa zapytania o kolekcje na każde z trzech okien
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2 + 2 * 3);
+        // jeden flush na okno (nie na wiersz) i jeden przy zamknięciu writera
+        assertThat(out.flushes).isEqualTo(3 + 1);
+        // najwyżej jedno okno wydatków (plus dwaj uczestnicy wczytani do słownika imion przed pierwszym oknem)
+        assertThat(out.maxManagedEntities).isLessThanOrEqualTo(WINDOW_SIZE + 2);
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertThat(csv).startsWith("name,amount,category,date,payerId,shares,paid,description,payerName,participantNames\n");
+
+        List<Map<String, String>> rows = readCsv(csv);
+        assertThat(rows).hasSize(EXPENSE_COUNT);
+        assertThat(rows).extracting(row -> row.get("date")).isSorted();
+
+        Map<String, String> first = rows.stream().filter(row -> row.get("name").equals("Wydatek 0")).findFirst().orElseThrow();
+        assertThat(first.get("amount")).isEqualTo("10.00");
+        assertThat(first.get("payerName")).isEqualTo("Anna Nowak");
+        assertThat(first.get("paid")).isEqualTo(anna.toString());
+        assertThat(first.get("participantNames").split(";")).containsExactlyInAnyOrder("Anna Nowak", "cezary");
+        assertThat(first.get("shares").split(";"))
+                .containsExactlyInAnyOrder(anna + ":0.50", cezary + ":0.50");
+
+        Map<String, String> quoted = rows.stream().filter(row -> row.get("name").equals("Wydatek 7")).findFirst().orElseThrow();
+        assertThat(quoted.get("description")).isEqualTo("Obiad, \"u Zośki\"");
+        assertThat(quoted.get("payerName")).isEqualTo("Bartek");
+    }
+
+    @Test
+    void shouldStreamNdjson() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(tripId, ExpenseImportService.APPLICATION_NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(EXPENSE_COUNT);
+        ExpenseDTO expense = objectMapper.readValue(lines[0], ExpenseDTO.class);
+        assertThat(expense.getTripId()).isEqualTo(tripId);
+        assertThat(expense.getDate()).isEqualTo(LocalDate.of(2025, 5, 1));
+        assertThat(expense.getParticipantShares()).hasSize(2);
+        assertThat(expense.getParticipantPaymentStatus()).hasSize(2);
+        assertThat(expense.getParticipantNames()).hasSize(2);
+    }
+
+    @Test
+    void shouldWriteOnlyHeaderForTripWithoutExpenses() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export(UUID.randomUUID(), ExpenseImportService.TEXT_CSV, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .isEqualTo("name,amount,category,date,payerId,shares,paid,description,payerName,participantNames\n");
+    }
+
+    @Test
+    void shouldRejectNonParticipant() {
+        assertThatThrownBy(() -> exportService.checkCanExport(tripId, UUID.randomUUID()))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private List<Map<String, String>> readCsv(String csv) throws Exception {
+        try (MappingIterator<Map<String, String>> rows = new CsvMapper().readerForMapOf(String.class)
+                .with(CsvSchema.emptySchema().withHeader()).readValues(csv)) {
+            return rows.readAll();
+        }
+    }
+
+    private void participant(UUID userId) {
+        entityManager.persist(Participant.builder()
+                .tripId(tripId)
+                .userId(userId)
+                .role(ParticipantRole.MEMBER)
+                .status(InvitationStatus.ACCEPTED)
+                .build());
+    }
+
+    // Sprawdza przy każdym flushu okna, ile encji trzyma kontekst persystencji
+    private final class ManagedEntitiesProbe extends ByteArrayOutputStream {
+        private int flushes;
+        private int maxManagedEntities;
+
+        @Override
+        public void flush() {
+            flushes++;
+            int managed = entityManager.unwrap(SessionImplementor.class).getPersistenceContext().getNumberOfManagedEntities();
+            maxManagedEntities = Math.max(maxManagedEntities, managed);
+        }
+    }
+}
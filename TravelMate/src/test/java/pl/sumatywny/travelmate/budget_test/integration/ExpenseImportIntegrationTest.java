@@ -0,0 +1,326 @@
+package pl.sumatywny.travelmate.budget_test.integration;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.sumatywny.travelmate.EmbeddedPostgresTest;
+import pl.sumatywny.travelmate.budget.dto.ExpenseDTO;
+import pl.sumatywny.travelmate.budget.dto.ExpenseImportResultDTO;
+import pl.sumatywny.travelmate.budget.dto.ImportRowErrorDTO;
+import pl.sumatywny.travelmate.budget.model.BudgetLedgerEntry;
+import pl.sumatywny.travelmate.budget.model.ExpenseCategory;
+import pl.sumatywny.travelmate.budget.repository.BudgetLedgerRepository;
+import pl.sumatywny.travelmate.budget.service.BudgetLedgerService;
+import pl.sumatywny.travelmate.budget.service.ExpenseImportService;
+import pl.sumatywny.travelmate.budget.service.ExpenseMapper;
+import pl.sumatywny.travelmate.budget.service.ExpenseService;
+import pl.sumatywny.travelmate.participant.model.ParticipantRole;
+import pl.sumatywny.travelmate.participant.service.TripPermissionService;
+import pl.sumatywny.travelmate.security.service.UserService;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Import działa na prawdziwych transakcjach (paczki są commitowane przez TransactionTemplate),
+ * więc test nie jest transakcyjny i sprząta po sobie. Ledger dopisuje nowe wiersze przez
+ * {@code ON CONFLICT}, dlatego test idzie na PostgreSQL ze schematem z migracji.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never",
+        "travelmate.import.chunk-size=100"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, ValidationAutoConfiguration.class})
+@Import({ExpenseImportService.class, ExpenseService.class, ExpenseMapper.class, BudgetLedgerService.class})
+class ExpenseImportIntegrationTest extends EmbeddedPostgresTest {
+
+    private static final String CSV_HEADER = "name,amount,category,date,payerId,shares,paid,description\n";
+
+    @Autowired
+    private ExpenseImportService importService;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private BudgetLedgerRepository ledgerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private TripPermissionService permissionService;
+
+    private final UUID tripId = UUID.randomUUID();
+    private final UUID anna = UUID.randomUUID();
+    private final UUID bartek = UUID.randomUUID();
+    private final UUID guest = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        when(permissionService.getUserRole(tripId, anna)).thenReturn(ParticipantRole.ORGANIZER);
+        when(permissionService.getUserRole(tripId, guest)).thenReturn(ParticipantRole.GUEST);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from expense_participant_payment_status");
+        jdbcTemplate.update("delete from expense_participant_shares");
+        jdbcTemplate.update("delete from expenses");
+        jdbcTemplate.update("delete from budget_ledger");
+    }
+
+    @Test
+    void shouldImportValidCsvRowsAndReportInvalidOnes() throws Exception {
+        String csv = CSV_HEADER
+                + "Hotel,200.00,accommodation,2025-05-01," + anna + "," + anna + ":0.5;" + bartek + ":0.5,,\n"
+                + "Bilety,abc,TRANSPORT,2025-05-01," + anna + "," + anna + ":1,,\n"
+                + "Obiad,90.00,FOOD,2025-05-02," + bartek + "," + anna + ":0.5;" + bartek + ":0.4,,\n"
+                + "\"Kolacja, z winem\",60.00,FOOD,2025-05-02," + bartek + "," + anna + ":0.5;" + bartek + ":0.5,"
+                + anna + ";" + bartek + ",\"dwie\nlinie\"\n"
+                + "Pamiątki,10.00,SOUVENIRS,2025-05-03," + anna + "," + anna + ":1,,\n";
+
+        ExpenseImportResultDTO result = importService.importExpenses(tripId, ExpenseImportService.TEXT_CSV,
+                stream(csv), anna);
+
+        assertThat(result.getTotalRows()).isEqualTo(5);
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.isErrorsTruncated()).isFalse();
+        assertThat(result.getErrors()).extracting(ImportRowErrorDTO::getRow).containsExactly(2L, 3L, 5L);
+        assertThat(result.getErrors().get(1).getMessage()).isEqualTo("Sum of participant shares must equal 1.0");
+
+        assertThat(jdbcTemplate.queryForObject("select count(*) from expenses where trip_id = ?", Long.class, tripId))
+                .isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("select description from expenses where name = 'Kolacja, z winem'",
+                String.class)).isEqualTo("dwie\nlinie");
+        // domyślnie zapłacone ma tylko płacący, kolumna paid nadpisuje to dla wszystkich wymienionych
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from expense_participant_payment_status where is_paid", Long.class)).isEqualTo(3);
+
+        Map<UUID, BudgetLedgerEntry> ledger = ledger();
+        assertThat(ledger.get(anna).getPaid()).isEqualByComparingTo("200.00");
+        assertThat(ledger.get(anna).getShare()).isEqualByComparingTo("130.00");
+        assertThat(ledger.get(bartek).getPaid()).isEqualByComparingTo("60.00");
+        assertThat(ledger.get(bartek).getShare()).isEqualByComparingTo("130.00");
+    }
+
+    @Test
+    void shouldImportNdjsonAndSkipMalformedLines() throws Exception {
+        String ndjson = expenseJson("Taxi", "45.00", anna) + "\n"
+                + "{\"name\": \"Muzeum\", \"amount\": \n"
+                + "\n"
+                + expenseJson("Muzeum", "0.00", anna) + "\n"
+                + expenseJson("Muzeum", "30.00", anna) + "\n";
+
+        ExpenseImportResultDTO result = importService.importExpenses(tripId, ExpenseImportService.APPLICATION_NDJSON,
+                stream(ndjson), anna);
+
+        assertThat(result.getTotalRows()).isEqualTo(4);
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting(ImportRowErrorDTO::getRow).containsExactly(2L, 3L);
+        assertThat(result.getErrors().get(0).getMessage()).startsWith("Invalid JSON");
+        assertThat(result.getErrors().get(1).getMessage()).contains("amount");
+        assertThat(ledger().get(anna).getPaid()).isEqualByComparingTo("75.00");
+    }
+
+    @Test
+    void shouldReportWholeChunkWhenItsBatchIsRolledBack() throws Exception {
+        StringBuilder csv = new StringBuilder(CSV_HEADER);
+        for (int i = 0; i < 150; i++) {
+            // opis dłuższy niż 500 znaków przechodzi walidację DTO, ale nie mieści się w kolumnie
+            String description = i == 120 ? "x".repeat(501) : "";
+            csv.append("Wydatek ").append(i).append(",10.00,OTHER,2025-05-01,").append(anna).append(',')
+                    .append(anna).append(":1,,").append(description).append('\n');
+        }
+
+        ExpenseImportResultDTO result = importService.importExpenses(tripId, ExpenseImportService.TEXT_CSV,
+                stream(csv.toString()), anna);
+
+        // pierwsza paczka (wiersze 1-100) zapisana, druga (101-150) wycofana w całości
+        assertThat(result.getImported()).isEqualTo(100);
+        assertThat(result.getFailed()).isEqualTo(50);
+        assertThat(result.getErrors()).extracting(ImportRowErrorDTO::getRow).first().isEqualTo(101L);
+        // przyczyna (SQL, ograniczenie kolumny) trafia tylko do logu serwera
+        assertThat(result.getErrors()).extracting(ImportRowErrorDTO::getMessage)
+                .containsOnly("Not saved, batch rolled back");
+        assertThat(jdbcTemplate.queryForObject("select count(*) from expenses", Long.class)).isEqualTo(100);
+        assertThat(ledger().get(anna).getPaid()).isEqualByComparingTo("1000.00");
+    }
+
+    @Test
+    void shouldImportAlongsideConcurrentFirstExpense() throws Exception {
+        StringBuilder csv = new StringBuilder(CSV_HEADER);
+        for (int i = 0; i < 150; i++) {
+            csv.append("Wydatek ").append(i).append(",10.00,OTHER,2025-05-01,").append(anna).append(',')
+                    .append(anna).append(":0.5;").append(bartek).append(":0.5,,\n");
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicReference<Future<ExpenseImportResultDTO>> importRun = new AtomicReference<>();
+
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                expenseService.addExpense(ExpenseDTO.builder()
+                        .tripId(tripId)
+                        .name("Hotel")
+                        .amount(new BigDecimal("100.00"))
+                        .category(ExpenseCategory.ACCOMMODATION)
+                        .date(LocalDate.of(2025, 5, 1))
+                        .payerId(anna)
+                        .participantShares(Map.of(anna, new BigDecimal("0.5"), bartek, new BigDecimal("0.5")))
+                        .participantPaymentStatus(Map.of(anna, true, bartek, false))
+                        .build(), anna);
+                // wiersze ledgera są już w bazie, ale niezatwierdzone – pierwsza paczka importu na nich czeka
+                entityManager.flush();
+                importRun.set(executor.submit(() -> importService.importExpenses(tripId,
+                        ExpenseImportService.TEXT_CSV, stream(csv.toString()), anna)));
+                awaitSessionWaitingForLock(jdbcTemplate);
+            });
+            ExpenseImportResultDTO result = importRun.get().get(10, TimeUnit.SECONDS);
+
+            assertThat(result.getImported()).isEqualTo(150);
+            assertThat(result.getErrors()).isEmpty();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<UUID, BudgetLedgerEntry> ledger = ledger();
+        assertThat(ledger.get(anna).getPaid()).isEqualByComparingTo("1600.00");
+        assertThat(ledger.get(anna).getPaymentCount()).isEqualTo(151);
+        assertThat(ledger.get(bartek).getShare()).isEqualByComparingTo("800.00");
+        assertThat(ledger.get(bartek).getShareCount()).isEqualTo(151);
+    }
+
+    @Test
+    void shouldStreamLargeImportInChunks() throws Exception {
+        int rows = 5_000;
+        String header = CSV_HEADER;
+        String line = "Wydatek,12.34,FOOD,2025-05-01," + anna + "," + anna + ":0.5;" + bartek + ":0.5,,\n";
+
+        ExpenseImportResultDTO result = importService.importExpenses(tripId, ExpenseImportService.TEXT_CSV,
+                new RepeatingInputStream(header, line, rows), anna);
+
+        assertThat(result.getTotalRows()).isEqualTo(rows);
+        assertThat(result.getImported()).isEqualTo(rows);
+        assertThat(result.getErrors()).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("select count(*) from expense_participant_shares", Long.class))
+                .isEqualTo(2L * rows);
+        assertThat(ledger().get(anna).getPaid()).isEqualByComparingTo("61700.00");
+        assertThat(ledger().get(bartek).getShare()).isEqualByComparingTo("30850.00");
+    }
+
+    @Test
+    void shouldCapReportedErrors() throws Exception {
+        StringBuilder csv = new StringBuilder(CSV_HEADER);
+        for (int i = 0; i < 1500; i++) {
+            csv.append("Zły,-1,OTHER,2025-05-01,").append(anna).append(',').append(anna).append(":1,,\n");
+        }
+
+        ExpenseImportResultDTO result = importService.importExpenses(tripId, ExpenseImportService.TEXT_CSV,
+                stream(csv.toString()), anna);
+
+        assertThat(result.getFailed()).isEqualTo(1500);
+        assertThat(result.getErrors()).hasSize(1000);
+        assertThat(result.isErrorsTruncated()).isTrue();
+    }
+
+    @Test
+    void shouldRejectGuest() {
+        assertThatThrownBy(() -> importService.importExpenses(tripId, ExpenseImportService.TEXT_CSV,
+                stream(CSV_HEADER), guest))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldRejectUnsupportedFormat() {
+        assertThatThrownBy(() -> importService.importExpenses(tripId,
+                org.springframework.http.MediaType.APPLICATION_XML, stream(""), anna))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Map<UUID, BudgetLedgerEntry> ledger() {
+        return ledgerRepository.findAllByTripId(tripId).stream()
+                .collect(Collectors.toMap(BudgetLedgerEntry::getParticipantId, entry -> entry));
+    }
+
+    private String expenseJson(String name, String amount, UUID payer) {
+        return "{\"name\": \"" + name + "\", \"amount\": " + amount + ", \"category\": \"ACTIVITIES\", "
+                + "\"date\": \"2025-05-03\", \"payerId\": \"" + payer + "\", "
+                + "\"participantShares\": {\"" + anna + "\": 0.5, \"" + bartek + "\": 0.5}}";
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Generuje nagłówek i N kopii wiersza w locie – cały plik nigdy nie istnieje w pamięci
+    private static final class RepeatingInputStream extends InputStream {
+        private final byte[] line;
+        private byte[] current;
+        private int position;
+        private int remaining;
+
+        private RepeatingInputStream(String header, String line, int times) {
+            this.line = line.getBytes(StandardCharsets.UTF_8);
+            this.current = header.getBytes(StandardCharsets.UTF_8);
+            this.remaining = times;
+        }
+
+        @Override
+        public int read() {
+            if (position == current.length) {
+                if (remaining == 0) {
+                    return -1;
+                }
+                remaining--;
+                current = line;
+                position = 0;
+            }
+            return current[position++] & 0xff;
+        }
+    }
+}
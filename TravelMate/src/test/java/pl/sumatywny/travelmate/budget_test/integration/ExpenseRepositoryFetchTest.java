@@ -0,0 +1,130 @@
+package pl.sumatywny.travelmate.budget_test.integration;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import pl.sumatywny.travelmate.budget.model.Expense;
+import pl.sumatywny.travelmate.budget.model.ExpenseCategory;
+import pl.sumatywny.travelmate.budget.repository.ExpenseRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class ExpenseRepositoryFetchTest {
+
+    private static final int EXPENSE_COUNT = 500;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private UUID tripId;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        tripId = UUID.randomUUID();
+        List<UUID> participants = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+
+        for (int i = 0; i < EXPENSE_COUNT; i++) {
+            Map<UUID, BigDecimal> shares = new HashMap<>();
+            Map<UUID, Boolean> paymentStatus = new HashMap<>();
+            for (UUID participant : participants) {
+                shares.put(participant, new BigDecimal("0.3333333333"));
+                paymentStatus.put(participant, i % 2 == 0);
+            }
+            entityManager.persist(Expense.builder()
+                    .name("Expense " + i)
+                    .tripId(tripId)
+                    .amount(BigDecimal.valueOf(10 + i))
+                    .category(ExpenseCategory.FOOD)
+                    .date(LocalDate.now())
+                    .payerId(participants.get(i % participants.size()))
+                    .participantShares(shares)
+                    .participantPaymentStatus(paymentStatus)
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void shouldLoadExpensesWithBothCollectionsInBoundedStatements() {
+        List<Expense> expenses = expenseRepository.findAllWithCollectionsByTripId(tripId);
+
+        int touched = 0;
+        for (Expense expense : expenses) {
+            touched += expense.getParticipantShares().size();
+            touched += expense.getParticipantPaymentStatus().size();
+        }
+
+        assertThat(expenses).hasSize(EXPENSE_COUNT);
+        assertThat(touched).isEqualTo(EXPENSE_COUNT * 6);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void shouldLoadExpensesWithSharesInSingleStatement() {
+        List<Expense> expenses = expenseRepository.findAllWithSharesByTripId(tripId);
+
+        assertThat(expenses).hasSize(EXPENSE_COUNT);
+        assertThat(expenses).allMatch(expense -> Hibernate.isInitialized(expense.getParticipantShares()));
+        expenses.forEach(expense -> assertThat(expense.getParticipantShares()).hasSize(3));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldWalkAllExpensesByKeysetWithSameDates() {
+        int limit = 64;
+        Set<UUID> seen = new HashSet<>();
+        int pages = 0;
+
+        List<Expense> page = expenseRepository.findPageByTripId(tripId, PageRequest.of(0, limit));
+        while (!page.isEmpty()) {
+            pages++;
+            statistics.clear();
+            expenseRepository.fetchCollectionsOf(page);
+            page.forEach(expense -> assertThat(expense.getParticipantShares()).hasSize(3));
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+            page.forEach(expense -> assertThat(seen.add(expense.getId())).isTrue());
+            Expense last = page.get(page.size() - 1);
+            page = expenseRepository.findPageByTripIdAfter(tripId, last.getDate(), last.getId(), PageRequest.of(0, limit));
+        }
+
+        // wszystkie wydatki mają tę samą datę – o kolejności decyduje id
+        assertThat(seen).hasSize(EXPENSE_COUNT);
+        assertThat(pages).isEqualTo((EXPENSE_COUNT + limit - 1) / limit);
+    }
+}
@@ -0,0 +1,128 @@
+package pl.sumatywny.travelmate.budget_test.unit;
+
+import net.jqwik.api.*;
+import pl.sumatywny.travelmate.budget.service.BudgetAggregator;
+import pl.sumatywny.travelmate.budget.service.BudgetAggregator.Totals;
+import pl.sumatywny.travelmate.budget.service.BudgetLedgerService.Contribution;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Silnik stałoprzecinkowy musi dawać dokładnie to samo co sumowanie na BigDecimal,
+ * także dla kwot i udziałów spoza jego skali oraz wartości przekraczających zakres long.
+ */
+class BudgetAggregatorPropertyTest {
+
+    private static final List<UUID> PARTICIPANTS = List.of(
+            new UUID(0, 1), new UUID(0, 2), new UUID(0, 3), new UUID(0, 4), new UUID(0, 5), new UUID(0, 6));
+
+    @Property(tries = 500)
+    void shouldMatchBigDecimalFold(@ForAll("contributions") List<Contribution> added,
+                                   @ForAll("contributions") List<Contribution> removed) {
+        Map<UUID, Totals> actual = BudgetAggregator.aggregate(added, removed);
+        Map<UUID, Totals> expected = referenceFold(added, removed);
+
+        assertThat(actual.keySet()).isEqualTo(expected.keySet());
+        expected.forEach((participant, totals) -> {
+            Totals result = actual.get(participant);
+            assertThat(result.paid()).isEqualByComparingTo(totals.paid());
+            assertThat(result.share()).isEqualByComparingTo(totals.share());
+            assertThat(result.paymentCount()).isEqualTo(totals.paymentCount());
+            assertThat(result.shareCount()).isEqualTo(totals.shareCount());
+        });
+    }
+
+    @Property(tries = 200)
+    void shouldRevertToZeroWhenEverythingIsRemoved(@ForAll("contributions") List<Contribution> contributions) {
+        BudgetAggregator.aggregate(contributions, contributions).values().forEach(totals -> {
+            assertThat(totals.paid()).isZero();
+            assertThat(totals.share()).isZero();
+            assertThat(totals.paymentCount()).isZero();
+            assertThat(totals.shareCount()).isZero();
+        });
+    }
+
+    @Example
+    void shouldUseFixedPointScaleForRegularExpenses() {
+        Contribution contribution = new Contribution(UUID.randomUUID(), PARTICIPANTS.get(0), new BigDecimal("100.00"),
+                Map.of(PARTICIPANTS.get(0), new BigDecimal("0.3333333334"), PARTICIPANTS.get(1), new BigDecimal("0.6666666666")));
+
+        Totals payer = BudgetAggregator.aggregate(List.of(contribution), List.of()).get(PARTICIPANTS.get(0));
+
+        assertThat(payer.paid()).isEqualTo(new BigDecimal("100.00"));
+        assertThat(payer.share()).isEqualTo(new BigDecimal("33.333333340000"));
+    }
+
+    // Większość list to zwykłe wydatki (ścieżka long); reszta zawiera wartości wymuszające ścieżkę BigDecimal
+    @Provide
+    Arbitrary<List<Contribution>> contributions() {
+        return Arbitraries.frequencyOf(
+                Tuple.of(7, contribution(regularAmount(), Arbitraries.just(10)).list().ofMaxSize(40)),
+                Tuple.of(3, contribution(anyAmount(), Arbitraries.frequency(Tuple.of(9, 10), Tuple.of(1, 12))).list().ofMaxSize(40)));
+    }
+
+    private Arbitrary<Contribution> contribution(Arbitrary<BigDecimal> amount, Arbitrary<Integer> shareScale) {
+        Arbitrary<UUID> participant = Arbitraries.of(PARTICIPANTS);
+        return Combinators.combine(participant, amount, shares(participant, shareScale))
+                .as((payer, value, shares) -> new Contribution(UUID.randomUUID(), payer, value, shares));
+    }
+
+    // Również duże kwoty, których suma udziałów w skali 12 nie mieści się w jednym long
+    private Arbitrary<BigDecimal> regularAmount() {
+        return Arbitraries.frequencyOf(
+                Tuple.of(9, Arbitraries.longs().between(1, 10_000_000)),
+                Tuple.of(1, Arbitraries.longs().between(1, 1_000_000_000_000L)))
+                .map(cents -> BigDecimal.valueOf(cents, 2));
+    }
+
+    // Czasem ułamki groszy albo kwoty, których iloczyn z udziałem nie mieści się w long
+    private Arbitrary<BigDecimal> anyAmount() {
+        return Arbitraries.frequencyOf(
+                Tuple.of(8, regularAmount()),
+                Tuple.of(1, Arbitraries.longs().between(1, 1_000_000).map(units -> BigDecimal.valueOf(units, 3))),
+                Tuple.of(1, Arbitraries.longs().between(1_000_000_000L, Long.MAX_VALUE).map(cents -> BigDecimal.valueOf(cents, 2))));
+    }
+
+    // Udziały sumujące się do 1 jak w SyntheticTrips
+    private Arbitrary<Map<UUID, BigDecimal>> shares(Arbitrary<UUID> participant, Arbitrary<Integer> scale) {
+        return Combinators.combine(participant.set().ofMinSize(1), scale).as((sharers, shareScale) -> {
+            BigDecimal share = BigDecimal.ONE.divide(BigDecimal.valueOf(sharers.size()), shareScale, RoundingMode.DOWN);
+            BigDecimal remainder = BigDecimal.ONE.subtract(share.multiply(BigDecimal.valueOf(sharers.size())));
+            Map<UUID, BigDecimal> shares = new HashMap<>();
+            boolean first = true;
+            for (UUID sharer : sharers) {
+                shares.put(sharer, first ? share.add(remainder) : share);
+                first = false;
+            }
+            return shares;
+        });
+    }
+
+    // Dotychczasowe sumowanie z BudgetLedgerService – punkt odniesienia
+    private static Map<UUID, Totals> referenceFold(List<Contribution> added, List<Contribution> removed) {
+        Map<UUID, Totals> totals = new HashMap<>();
+        for (Contribution contribution : added) {
+            accumulate(totals, contribution, 1);
+        }
+        for (Contribution contribution : removed) {
+            accumulate(totals, contribution, -1);
+        }
+        return totals;
+    }
+
+    private static void accumulate(Map<UUID, Totals> totals, Contribution contribution, int sign) {
+        BigDecimal amount = sign > 0 ? contribution.amount() : contribution.amount().negate();
+        totals.merge(contribution.payerId(), new Totals(amount, BigDecimal.ZERO, sign, 0), BudgetAggregatorPropertyTest::sum);
+        contribution.participantShares().forEach((participant, share) -> totals.merge(participant,
+                new Totals(BigDecimal.ZERO, amount.multiply(share), 0, sign), BudgetAggregatorPropertyTest::sum));
+    }
+
+    private static Totals sum(Totals a, Totals b) {
+        return new Totals(a.paid().add(b.paid()), a.share().add(b.share()),
+                a.paymentCount() + b.paymentCount(), a.shareCount() + b.shareCount());
+    }
+}
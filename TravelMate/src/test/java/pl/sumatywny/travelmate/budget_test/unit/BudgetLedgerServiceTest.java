@@ -0,0 +1,219 @@
+package pl.sumatywny.travelmate.budget_test.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import pl.sumatywny.travelmate.budget.dto.BudgetSummaryDTO;
+import pl.sumatywny.travelmate.budget.model.BudgetLedgerEntry;
+import pl.sumatywny.travelmate.budget.model.Expense;
+import pl.sumatywny.travelmate.budget.model.ExpenseCategory;
+import pl.sumatywny.travelmate.budget.repository.BudgetLedgerRepository;
+import pl.sumatywny.travelmate.budget.repository.ExpenseRepository;
+import pl.sumatywny.travelmate.budget.service.BudgetLedgerService;
+import pl.sumatywny.travelmate.budget.service.BudgetLedgerService.Contribution;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BudgetLedgerServiceTest {
+
+    @Mock
+    private BudgetLedgerRepository ledgerRepository;
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @InjectMocks
+    private BudgetLedgerService ledgerService;
+
+    private UUID tripId;
+    private UUID alice;
+    private UUID bob;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        tripId = UUID.randomUUID();
+        alice = UUID.randomUUID();
+        bob = UUID.randomUUID();
+        when(ledgerRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void shouldCreateLedgerRowsForNewExpense() {
+        when(ledgerRepository.findAllForUpdate(eq(tripId), any())).thenReturn(List.of());
+
+        ledgerService.record(contribution(alice, "100", Map.of(alice, "0.5", bob, "0.5")));
+
+        // wierszy jeszcze nie ma – trafiają do bazy upsertem, nie przez saveAll
+        Map<UUID, BudgetLedgerEntry> saved = captureUpserted(2);
+        assertThat(captureSaved()).isEmpty();
+        assertThat(saved.get(alice).getPaid()).isEqualByComparingTo("100");
+        assertThat(saved.get(alice).getShare()).isEqualByComparingTo("50");
+        assertThat(saved.get(alice).getBalance()).isEqualByComparingTo("50");
+        assertThat(saved.get(bob).getPaid()).isEqualByComparingTo("0");
+        assertThat(saved.get(bob).getBalance()).isEqualByComparingTo("-50");
+        assertThat(saved.get(bob).getShareCount()).isEqualTo(1);
+        assertThat(saved.get(bob).getPaymentCount()).isZero();
+    }
+
+    @Test
+    void shouldApplyDifferenceWhenExpenseIsReplaced() {
+        BudgetLedgerEntry aliceRow = entry(alice, "100", "50", 1, 1);
+        BudgetLedgerEntry bobRow = entry(bob, "0", "50", 0, 1);
+        when(ledgerRepository.findAllForUpdate(eq(tripId), any())).thenReturn(List.of(aliceRow, bobRow));
+
+        ledgerService.replace(
+                contribution(alice, "100", Map.of(alice, "0.5", bob, "0.5")),
+                contribution(alice, "60", Map.of(alice, "0.5", bob, "0.5")));
+
+        assertThat(aliceRow.getPaid()).isEqualByComparingTo("60");
+        assertThat(aliceRow.getBalance()).isEqualByComparingTo("30");
+        assertThat(bobRow.getBalance()).isEqualByComparingTo("-30");
+        assertThat(aliceRow.getPaymentCount()).isEqualTo(1);
+        verify(ledgerRepository, times(1)).findAllForUpdate(eq(tripId), any());
+        verify(ledgerRepository, never()).upsert(any(BudgetLedgerEntry.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldDropRowsOfParticipantsWithoutExpenses() {
+        BudgetLedgerEntry aliceRow = entry(alice, "100", "50", 1, 1);
+        BudgetLedgerEntry bobRow = entry(bob, "0", "50", 0, 1);
+        when(ledgerRepository.findAllForUpdate(eq(tripId), any())).thenReturn(List.of(aliceRow, bobRow));
+
+        ledgerService.revert(contribution(alice, "100", Map.of(alice, "0.5", bob, "0.5")));
+
+        ArgumentCaptor<List<BudgetLedgerEntry>> deleted = ArgumentCaptor.forClass(List.class);
+        verify(ledgerRepository).deleteAll(deleted.capture());
+        assertThat(deleted.getValue()).containsExactlyInAnyOrder(aliceRow, bobRow);
+        assertThat(captureSaved()).isEmpty();
+    }
+
+    @Test
+    void shouldBuildSummaryFromLedgerRows() {
+        when(ledgerRepository.findAllByTripId(tripId)).thenReturn(List.of(
+                entry(alice, "100", "50", 1, 1),
+                entry(bob, "0", "50", 0, 1)));
+
+        BudgetSummaryDTO summary = ledgerService.getSummary(tripId);
+
+        assertThat(summary.getTotalTripCost()).isEqualByComparingTo("100.00");
+        assertThat(summary.getActualPaid()).containsOnlyKeys(alice);
+        assertThat(summary.getParticipantShare()).containsOnlyKeys(alice, bob);
+        assertThat(summary.getBalance().get(bob)).isEqualByComparingTo("-50");
+        verify(expenseRepository, never()).findAllByTripId(any());
+    }
+
+    @Test
+    void shouldRebuildLedgerFromExpenses() {
+        when(expenseRepository.findAllWithSharesByTripId(tripId)).thenReturn(List.of(expense(alice, "100", Map.of(alice, "1"))));
+
+        List<BudgetLedgerEntry> rows = ledgerService.rebuild(tripId);
+
+        verify(ledgerRepository).deleteAllByTripId(tripId);
+        assertThat(rows).singleElement().satisfies(row -> {
+            assertThat(row.getParticipantId()).isEqualTo(alice);
+            assertThat(row.getPaid()).isEqualByComparingTo("100");
+            assertThat(row.getShare()).isEqualByComparingTo("100");
+            assertThat(row.getBalance()).isEqualByComparingTo("0");
+        });
+    }
+
+    @Test
+    void shouldReturnEmptySummaryForTripWithoutLedgerRows() {
+        when(ledgerRepository.findAllByTripId(tripId)).thenReturn(List.of());
+
+        BudgetSummaryDTO summary = ledgerService.getSummary(tripId);
+
+        assertThat(summary.getTotalTripCost()).isEqualByComparingTo("0");
+        assertThat(summary.getBalance()).isEmpty();
+        // wiersze wycieczek sprzed ledgera uzupełnia migracja – odczyt niczego nie przebudowuje
+        verify(ledgerRepository, never()).deleteAllByTripId(any());
+        verifyNoInteractions(expenseRepository);
+    }
+
+    @Test
+    void shouldRecordSharesAsStoredInDatabase() {
+        Map<UUID, BigDecimal> shares = new HashMap<>();
+        shares.put(alice, new BigDecimal("0.3333333333"));
+        shares.put(bob, new BigDecimal("0.6666666667"));
+        Expense saved = expense(alice, "100", Map.of(alice, "1"));
+        saved.setParticipantShares(shares);
+        when(ledgerRepository.findAllForUpdate(eq(tripId), any())).thenReturn(List.of());
+
+        ledgerService.record(Contribution.of(saved));
+
+        // expense_participant_shares.share ma skalę 2 – przebudowa z bazy policzy z 0.33 i 0.67
+        Map<UUID, BudgetLedgerEntry> recorded = captureUpserted(2);
+        assertThat(recorded.get(alice).getShare()).isEqualByComparingTo("33.00");
+        assertThat(recorded.get(bob).getShare()).isEqualByComparingTo("67.00");
+
+        when(expenseRepository.findAllWithSharesByTripId(tripId))
+                .thenReturn(List.of(expense(alice, "100", Map.of(alice, "0.33", bob, "0.67"))));
+        Map<UUID, BudgetLedgerEntry> rebuilt = new HashMap<>();
+        ledgerService.rebuild(tripId).forEach(row -> rebuilt.put(row.getParticipantId(), row));
+        assertThat(rebuilt.get(alice).getShare()).isEqualByComparingTo(recorded.get(alice).getShare());
+        assertThat(rebuilt.get(bob).getShare()).isEqualByComparingTo(recorded.get(bob).getShare());
+    }
+
+    private Expense expense(UUID payer, String amount, Map<UUID, String> shares) {
+        Map<UUID, BigDecimal> parsed = new HashMap<>();
+        shares.forEach((id, value) -> parsed.put(id, new BigDecimal(value)));
+        return Expense.builder()
+                .id(UUID.randomUUID())
+                .tripId(tripId)
+                .amount(new BigDecimal(amount))
+                .category(ExpenseCategory.FOOD)
+                .date(LocalDate.now())
+                .payerId(payer)
+                .participantShares(parsed)
+                .build();
+    }
+
+    private Contribution contribution(UUID payer, String amount, Map<UUID, String> shares) {
+        Map<UUID, BigDecimal> parsed = new HashMap<>();
+        shares.forEach((id, value) -> parsed.put(id, new BigDecimal(value)));
+        return new Contribution(tripId, payer, new BigDecimal(amount), parsed);
+    }
+
+    private BudgetLedgerEntry entry(UUID participant, String paid, String share, int paymentCount, int shareCount) {
+        return BudgetLedgerEntry.builder()
+                .id(UUID.randomUUID())
+                .tripId(tripId)
+                .participantId(participant)
+                .paid(new BigDecimal(paid))
+                .share(new BigDecimal(share))
+                .balance(new BigDecimal(paid).subtract(new BigDecimal(share)))
+                .paymentCount(paymentCount)
+                .shareCount(shareCount)
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<UUID, BudgetLedgerEntry> captureSaved() {
+        ArgumentCaptor<List<BudgetLedgerEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(ledgerRepository).saveAll(captor.capture());
+        Map<UUID, BudgetLedgerEntry> byParticipant = new HashMap<>();
+        captor.getValue().forEach(entry -> byParticipant.put(entry.getParticipantId(), entry));
+        return byParticipant;
+    }
+
+    private Map<UUID, BudgetLedgerEntry> captureUpserted(int count) {
+        ArgumentCaptor<BudgetLedgerEntry> captor = ArgumentCaptor.forClass(BudgetLedgerEntry.class);
+        verify(ledgerRepository, times(count)).upsert(captor.capture());
+        Map<UUID, BudgetLedgerEntry> byParticipant = new HashMap<>();
+        captor.getAllValues().forEach(entry -> byParticipant.put(entry.getParticipantId(), entry));
+        return byParticipant;
+    }
+}
@@ -10,7 +10,9 @@ import pl.sumatywny.travelmate.budget.dto.ExpenseDTO;
 import pl.sumatywny.travelmate.budget.model.Expense;
 import pl.sumatywny.travelmate.budget.model.ExpenseCategory;
 import pl.sumatywny.travelmate.budget.repository.ExpenseRepository;
+import pl.sumatywny.travelmate.budget.service.BudgetLedgerService;
 import pl.sumatywny.travelmate.budget.service.ExpenseMapper;
+import pl.sumatywny.travelmate.security.model.User;
 import pl.sumatywny.travelmate.security.service.UserService;
 import pl.sumatywny.travelmate.participant.service.TripPermissionService;
 import pl.sumatywny.travelmate.participant.model.ParticipantRole;
@@ -38,6 +40,9 @@ public class ExpenseServiceTest {
     @Mock
     private TripPermissionService permissionService;
 
+    @Mock
+    private BudgetLedgerService budgetLedgerService;
+
     @InjectMocks
     private ExpenseService expenseService;
 
@@ -84,7 +89,7 @@ public class ExpenseServiceTest {
 
     @Test
     void shouldReturnExpensesForTrip() {
-        when(expenseRepository.findAllByTripId(tripId)).thenReturn(List.of(expense));
+        when(expenseRepository.findAllWithCollectionsByTripId(tripId)).thenReturn(List.of(expense));
         when(expenseMapper.toDTO(expense)).thenReturn(expenseDTO);
 
         List<ExpenseDTO> result = expenseService.getExpensesByTrip(tripId);
@@ -92,6 +97,36 @@ public class ExpenseServiceTest {
         assertThat(result).containsExactly(expenseDTO);
     }
 
+    @Test
+    void shouldResolveParticipantNamesWithSingleBulkLookup() {
+        UUID otherUserId = UUID.randomUUID();
+        Map<UUID, BigDecimal> splitShares = new HashMap<>();
+        splitShares.put(userId, new BigDecimal("0.5"));
+        splitShares.put(otherUserId, new BigDecimal("0.5"));
+        Expense secondExpense = Expense.builder()
+                .id(UUID.randomUUID())
+                .tripId(tripId)
+                .amount(BigDecimal.valueOf(50))
+                .category(ExpenseCategory.FOOD)
+                .date(LocalDate.now())
+                .payerId(otherUserId)
+                .participantShares(splitShares)
+                .build();
+
+        User alice = User.builder().id(userId).firstName("Alice").lastName("Smith").email("alice@example.com").build();
+
+        when(expenseRepository.findAllWithCollectionsByTripId(tripId)).thenReturn(List.of(expense, secondExpense));
+        when(expenseMapper.toDTO(any())).thenAnswer(invocation -> new ExpenseDTO());
+        when(userService.findAllByIds(Set.of(userId, otherUserId))).thenReturn(Map.of(userId, alice));
+
+        List<ExpenseDTO> result = expenseService.getExpensesByTrip(tripId);
+
+        assertThat(result.get(0).getParticipantNames()).containsExactly("Alice Smith");
+        assertThat(result.get(1).getParticipantNames()).containsExactlyInAnyOrder("Alice Smith", "Unknown");
+        verify(userService, times(1)).findAllByIds(any());
+        verify(userService, never()).findById(any());
+    }
+
     @Test
     void shouldAddExpenseWithValidShares() {
         when(expenseMapper.toEntity(expenseDTO)).thenReturn(expense);
@@ -101,6 +136,7 @@ public class ExpenseServiceTest {
         ExpenseDTO result = expenseService.addExpense(expenseDTO, userId);
 
         assertThat(result).isEqualTo(expenseDTO);
+        verify(budgetLedgerService).record(BudgetLedgerService.Contribution.of(expense));
     }
 
     @Test
@@ -122,21 +158,22 @@ public class ExpenseServiceTest {
         expenseService.deleteExpense(expenseId, userId);
 
         verify(expenseRepository).deleteById(expenseId);
+        verify(budgetLedgerService).revert(BudgetLedgerService.Contribution.of(expense));
     }
 
     @Test
-    void shouldReturnBudgetSummary() {
-        when(expenseRepository.findAllByTripId(tripId)).thenReturn(List.of(expense));
+    void shouldReturnBudgetSummaryFromLedger() {
+        BudgetSummaryDTO summary = new BudgetSummaryDTO(
+                new BigDecimal("100.00"),
+                Map.of(userId, new BigDecimal("100.00")),
+                Map.of(userId, new BigDecimal("100.00")),
+                Map.of(userId, new BigDecimal("0.00")));
+        when(budgetLedgerService.getSummary(tripId)).thenReturn(summary);
 
         BudgetSummaryDTO result = expenseService.getBudgetSummary(tripId);
 
-        assertThat(result.getTotalTripCost()).isEqualByComparingTo("100.00");
-        assertThat(result.getParticipantShare())
-                .containsEntry(userId, new BigDecimal("100")); // albo...
-        assertThat(result.getParticipantShare().get(userId)).isEqualByComparingTo("100.00");
-
-        assertThat(result.getActualPaid().get(userId)).isEqualByComparingTo("100.00");
-        assertThat(result.getBalance().get(userId)).isEqualByComparingTo("0.00");
+        assertThat(result).isSameAs(summary);
+        verify(expenseRepository, never()).findAllByTripId(any());
     }
 
     @Test
@@ -145,9 +182,14 @@ public class ExpenseServiceTest {
         when(expenseRepository.save(expense)).thenReturn(expense);
         when(expenseMapper.toDTO(expense)).thenReturn(expenseDTO);
 
+        BudgetLedgerService.Contribution previous = BudgetLedgerService.Contribution.of(expense);
+        expenseDTO.setAmount(BigDecimal.valueOf(150));
+
         ExpenseDTO updated = expenseService.updateExpense(expenseId, expenseDTO, userId);
 
         assertThat(updated).isEqualTo(expenseDTO);
+        verify(budgetLedgerService).replace(previous, BudgetLedgerService.Contribution.of(expense));
+        assertThat(previous.amount()).isEqualByComparingTo("100");
     }
 
 @Test
@@ -12,6 +12,7 @@ import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import pl.sumatywny.travelmate.config.GlobalExceptionHandler;
 import pl.sumatywny.travelmate.config.NotFoundException;
+import pl.sumatywny.travelmate.config.ReportGenerationException;
 
 import java.util.*;
 
@@ -76,4 +77,14 @@ public class GlobalExceptionHandlerTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
         assertThat(response.getBody()).containsEntry("message", "Resource not found");
     }
-}
\ No newline at end of file
+
+    @Test
+    void handleReportGeneration_shouldReturnBadGatewayWithErrorMessage() {
+        ReportGenerationException ex = new ReportGenerationException("Report generation failed: timeout", new RuntimeException());
+
+        ResponseEntity<Map<String, String>> response = handler.handleReportGeneration(ex);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_GATEWAY);
+        assertThat(response.getBody()).containsEntry("message", "Report generation failed: timeout");
+    }
+}
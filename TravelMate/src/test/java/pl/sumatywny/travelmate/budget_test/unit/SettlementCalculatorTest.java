@@ -0,0 +1,151 @@
+package pl.sumatywny.travelmate.budget_test.unit;
+
+import org.junit.jupiter.api.Test;
+import pl.sumatywny.travelmate.budget.dto.BudgetSummaryDTO;
+import pl.sumatywny.travelmate.budget.dto.SettlementDTO;
+import pl.sumatywny.travelmate.budget.dto.TransferDTO;
+import pl.sumatywny.travelmate.budget.service.SettlementCalculator;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SettlementCalculatorTest {
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID carol = UUID.randomUUID();
+    private final UUID dave = UUID.randomUUID();
+
+    @Test
+    void shouldReturnNoTransfersWhenEveryoneIsSettled() {
+        List<TransferDTO> transfers = SettlementCalculator.transfers(Map.of(
+                alice, new BigDecimal("0.00"), bob, BigDecimal.ZERO));
+
+        assertThat(transfers).isEmpty();
+    }
+
+    @Test
+    void shouldLetLargestDebtorPayLargestCreditorFirst() {
+        List<TransferDTO> transfers = SettlementCalculator.transfers(Map.of(
+                alice, new BigDecimal("90"),
+                bob, new BigDecimal("-60"),
+                carol, new BigDecimal("-30")));
+
+        assertThat(transfers).containsExactly(
+                new TransferDTO(bob, alice, new BigDecimal("60.00")),
+                new TransferDTO(carol, alice, new BigDecimal("30.00")));
+    }
+
+    @Test
+    void shouldPairEqualAmountsBeforeGreedyMatching() {
+        // Sam algorytm zachłanny potrzebuje tu 5 przelewów; para 8/8 rozliczona od razu daje 4
+        UUID erin = UUID.randomUUID();
+        UUID frank = UUID.randomUUID();
+        List<TransferDTO> transfers = SettlementCalculator.transfers(Map.of(
+                alice, new BigDecimal("10"),
+                bob, new BigDecimal("8"),
+                carol, new BigDecimal("9"),
+                dave, new BigDecimal("-2"),
+                erin, new BigDecimal("-17"),
+                frank, new BigDecimal("-8")));
+
+        assertThat(transfers).hasSize(4)
+                .contains(new TransferDTO(frank, bob, new BigDecimal("8.00")));
+    }
+
+    @Test
+    void shouldRoundThirdsToCentsWithoutLosingMoney() {
+        // 100 zapłacone przez Alice, dzielone na trzy osoby: bilanse 66.666…, -33.333…, -33.333…
+        BudgetSummaryDTO summary = BudgetSummaryDTO.builder()
+                .actualPaid(Map.of(alice, new BigDecimal("100.00")))
+                .participantShare(Map.of(
+                        alice, new BigDecimal("33.3333333334"),
+                        bob, new BigDecimal("33.3333333333"),
+                        carol, new BigDecimal("33.3333333333")))
+                .build();
+
+        SettlementDTO settlement = SettlementCalculator.settle(summary);
+
+        // Ułamki groszy trafiają do największych reszt, więc suma przelewów zgadza się z bilansem Alice po zaokrągleniu
+        assertThat(settlement.getTransfers()).containsExactlyInAnyOrder(
+                new TransferDTO(bob, alice, new BigDecimal("33.33")),
+                new TransferDTO(carol, alice, new BigDecimal("33.33")));
+        assertThat(settlement.getTotalTransferred()).isEqualByComparingTo("66.66");
+    }
+
+    @Test
+    void shouldTakeExcessCentFromSmallestRemainderWhenBalancesRoundUp() {
+        // 0.0067 + 0.0067 - 0.0134 = 0, ale zaokrąglone do groszy daje 0.01 + 0.01 - 0.01 = 0.01
+        List<TransferDTO> transfers = SettlementCalculator.transfers(Map.of(
+                alice, new BigDecimal("0.0067"),
+                bob, new BigDecimal("0.0067"),
+                carol, new BigDecimal("-0.0134")));
+
+        // nadmiarowy grosz zabieramy Carol, której bilans najmocniej zaokrąglono w górę
+        assertThat(transfers).containsExactlyInAnyOrder(
+                new TransferDTO(carol, alice, new BigDecimal("0.01")),
+                new TransferDTO(carol, bob, new BigDecimal("0.01")));
+    }
+
+    @Test
+    void shouldBalanceTransfersWhenManyBalancesRoundUp() {
+        // 7 osób po +x.xx5 (każdy bilans zaokrąglony w górę) i jedna osoba pokrywająca całą sumę
+        Map<UUID, BigDecimal> balances = new HashMap<>();
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int i = 0; i < 7; i++) {
+            BigDecimal balance = new BigDecimal("1.005").add(BigDecimal.valueOf(i));
+            balances.put(new UUID(0, i), balance);
+            sum = sum.add(balance);
+        }
+        balances.put(new UUID(0, 7), sum.negate());
+
+        List<TransferDTO> transfers = SettlementCalculator.transfers(balances);
+
+        // 28.035 do zapłaty: dłużnik płaci kwotę zaokrągloną, a każdy wierzyciel dostaje swój bilans z dokładnością do grosza
+        assertThat(transfers).hasSize(7)
+                .allSatisfy(transfer -> {
+                    assertThat(transfer.getFromParticipantId()).isEqualTo(new UUID(0, 7));
+                    assertThat(transfer.getAmount().subtract(balances.get(transfer.getToParticipantId())).abs())
+                            .isLessThan(new BigDecimal("0.01"));
+                });
+        assertThat(transfers.stream().map(TransferDTO::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add))
+                .isEqualByComparingTo("28.04");
+    }
+
+    @Test
+    void shouldIncludePayersWhoDoNotShareAnyExpense() {
+        BudgetSummaryDTO summary = BudgetSummaryDTO.builder()
+                .actualPaid(Map.of(alice, new BigDecimal("50.00")))
+                .participantShare(Map.of(bob, new BigDecimal("50.00")))
+                .build();
+
+        assertThat(SettlementCalculator.settle(summary).getTransfers())
+                .containsExactly(new TransferDTO(bob, alice, new BigDecimal("50.00")));
+    }
+
+    @Test
+    void shouldSettleLargeGroupWithAtMostOneTransferLessThanParticipants() {
+        Random random = new Random(42);
+        Map<UUID, BigDecimal> balances = new HashMap<>();
+        long sum = 0;
+        for (int i = 0; i < 999; i++) {
+            long cents = random.nextInt(200_001) - 100_000;
+            balances.put(new UUID(0, i), BigDecimal.valueOf(cents, 2));
+            sum += cents;
+        }
+        balances.put(new UUID(0, 999), BigDecimal.valueOf(-sum, 2));
+
+        List<TransferDTO> transfers = SettlementCalculator.transfers(balances);
+
+        assertThat(transfers.size()).isLessThan(balances.size());
+        Map<UUID, BigDecimal> remaining = new HashMap<>(balances);
+        for (TransferDTO transfer : transfers) {
+            assertThat(transfer.getAmount()).isPositive();
+            remaining.merge(transfer.getFromParticipantId(), transfer.getAmount(), BigDecimal::add);
+            remaining.merge(transfer.getToParticipantId(), transfer.getAmount().negate(), BigDecimal::add);
+        }
+        assertThat(remaining.values()).allMatch(balance -> balance.signum() == 0);
+    }
+}
@@ -11,6 +11,8 @@ import pl.sumatywny.travelmate.participant.model.Participant;
 import pl.sumatywny.travelmate.participant.model.ParticipantRole;
 import pl.sumatywny.travelmate.participant.repository.ParticipantRepository;
 import pl.sumatywny.travelmate.participant.service.TripPermissionService;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -475,4 +477,88 @@ class TripPermissionServiceTest {
         // Then
         assertFalse(result);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getUserRole_ShouldHitRepositoryOnce_WhenCalledRepeatedly() {
+        // Given
+        when(participantRepository.findByTripIdAndUserId(tripId, userId))
+                .thenReturn(Optional.of(memberParticipant));
+
+        // When
+        tripPermissionService.getUserRole(tripId, userId);
+        tripPermissionService.canManagePoints(tripId, userId);
+        tripPermissionService.isAcceptedParticipant(tripId, userId);
+
+        // Then
+        verify(participantRepository, times(1)).findByTripIdAndUserId(tripId, userId);
+    }
+
+    @Test
+    void getUserRole_ShouldCacheMissingParticipant() {
+        // Given
+        when(participantRepository.findByTripIdAndUserId(tripId, userId)).thenReturn(Optional.empty());
+
+        // When
+        assertNull(tripPermissionService.getUserRole(tripId, userId));
+        assertFalse(tripPermissionService.isParticipant(tripId, userId));
+
+        // Then
+        verify(participantRepository, times(1)).findByTripIdAndUserId(tripId, userId);
+    }
+
+    @Test
+    void evict_ShouldReloadRoleAfterChange() {
+        // Given
+        when(participantRepository.findByTripIdAndUserId(tripId, userId))
+                .thenReturn(Optional.of(guestParticipant))
+                .thenReturn(Optional.of(organizerParticipant));
+        assertEquals(ParticipantRole.GUEST, tripPermissionService.getUserRole(tripId, userId));
+
+        // When
+        tripPermissionService.evict(tripId, userId);
+
+        // Then
+        assertEquals(ParticipantRole.ORGANIZER, tripPermissionService.getUserRole(tripId, userId));
+        verify(participantRepository, times(2)).findByTripIdAndUserId(tripId, userId);
+    }
+
+    @Test
+    void evictTrip_ShouldDropAllEntriesOfTrip() {
+        // Given
+        when(participantRepository.findByTripIdAndUserId(tripId, userId))
+                .thenReturn(Optional.of(memberParticipant));
+        tripPermissionService.getUserRole(tripId, userId);
+
+        // When
+        tripPermissionService.evictTrip(tripId);
+        tripPermissionService.getUserRole(tripId, userId);
+
+        // Then
+        verify(participantRepository, times(2)).findByTripIdAndUserId(tripId, userId);
+    }
+
+    @Test
+    void evict_ShouldWaitForCommitInsideTransaction() {
+        // Given
+        when(participantRepository.findByTripIdAndUserId(tripId, userId))
+                .thenReturn(Optional.of(memberParticipant))
+                .thenReturn(Optional.empty());
+        tripPermissionService.getUserRole(tripId, userId);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            tripPermissionService.evict(tripId, userId);
+            tripPermissionService.evictTrip(tripId);
+
+            // Then – przed commitem zostaje wpis z cache
+            assertEquals(ParticipantRole.MEMBER, tripPermissionService.getUserRole(tripId, userId));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertNull(tripPermissionService.getUserRole(tripId, userId));
+        verify(participantRepository, times(2)).findByTripIdAndUserId(tripId, userId);
+    }
+}
@@ -0,0 +1,157 @@
+package pl.sumatywny.travelmate.reports_test;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import pl.sumatywny.travelmate.reports.entity.Note;
+import pl.sumatywny.travelmate.reports.repository.NoteRepository;
+import pl.sumatywny.travelmate.reports.repository.NoteSummary;
+import pl.sumatywny.travelmate.trip.model.Point;
+import pl.sumatywny.travelmate.trip.model.Trip;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class NoteRepositoryProjectionTest {
+
+    private static final int NOTE_COUNT = 1000;
+    private static final int POINT_COUNT = 20;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Trip trip;
+    private List<Point> points;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        trip = Trip.builder().name("Kraków").tripBudget(1000.0).build();
+        entityManager.persist(trip);
+
+        points = new ArrayList<>();
+        for (int i = 0; i < POINT_COUNT; i++) {
+            Point point = Point.builder()
+                    .title("Miejsce " + i)
+                    .date(LocalDate.of(2025, 5, 1).plusDays(i))
+                    .trip(trip)
+                    .build();
+            entityManager.persist(point);
+            points.add(point);
+        }
+
+        // daty celowo nie po kolei, żeby sprawdzić sortowanie w bazie
+        for (int i = 0; i < NOTE_COUNT; i++) {
+            Note note = new Note();
+            note.setTrip(trip);
+            note.setPoint(points.get(i % POINT_COUNT));
+            note.setContent("Notatka " + i);
+            note.setDate(LocalDate.of(2025, 5, 1).plusDays((i * 7L) % 31));
+            entityManager.persist(note);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void shouldLoadAllTripNotesWithPointsInOneQuery() {
+        List<NoteSummary> notes = noteRepository.findSummariesByTripId(trip.getId());
+
+        assertThat(notes).hasSize(NOTE_COUNT);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(notes).isSortedAccordingTo(Comparator.comparing(NoteSummary::getDate));
+
+        NoteSummary first = notes.get(0);
+        Point point = points.stream().filter(p -> p.getId().equals(first.getPointId())).findFirst().orElseThrow();
+        assertThat(first.getPointName()).isEqualTo(point.getTitle());
+        assertThat(first.getPointDate()).isEqualTo(point.getDate());
+    }
+
+    @Test
+    void shouldWalkAllPagesByKeysetInOneQueryPerPage() {
+        List<NoteSummary> all = new ArrayList<>();
+        List<NoteSummary> page = noteRepository.findSummaryPageByTripId(trip.getId(), PageRequest.of(0, 100));
+        int queries = 1;
+        while (!page.isEmpty()) {
+            all.addAll(page);
+            NoteSummary last = page.get(page.size() - 1);
+            page = noteRepository.findSummaryPageByTripIdAfter(trip.getId(), last.getDate(), last.getId(),
+                    PageRequest.of(0, 100));
+            queries++;
+        }
+
+        assertThat(queries).isEqualTo(NOTE_COUNT / 100 + 1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(queries);
+        assertThat(all).hasSize(NOTE_COUNT);
+        assertThat(all).extracting(NoteSummary::getId).doesNotHaveDuplicates();
+        assertThat(all).isSortedAccordingTo(Comparator.comparing(NoteSummary::getDate));
+    }
+
+    @Test
+    void shouldPageUndatedNotesAfterDatedOnes() {
+        for (int i = 0; i < 150; i++) {
+            Note note = new Note();
+            note.setTrip(entityManager.getReference(Trip.class, trip.getId()));
+            note.setContent("Bez daty " + i);
+            entityManager.persist(note);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<NoteSummary> all = new ArrayList<>();
+        List<NoteSummary> page = noteRepository.findSummaryPageByTripId(trip.getId(), PageRequest.of(0, 100));
+        while (!page.isEmpty()) {
+            all.addAll(page);
+            NoteSummary last = page.get(page.size() - 1);
+            page = last.getDate() != null
+                    ? noteRepository.findSummaryPageByTripIdAfter(trip.getId(), last.getDate(), last.getId(),
+                            PageRequest.of(0, 100))
+                    : noteRepository.findUndatedSummaryPageByTripIdAfter(trip.getId(), last.getId(),
+                            PageRequest.of(0, 100));
+        }
+
+        assertThat(all).hasSize(NOTE_COUNT + 150);
+        assertThat(all).extracting(NoteSummary::getId).doesNotHaveDuplicates();
+        assertThat(all).isSortedAccordingTo(Comparator.comparing(NoteSummary::getDate,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        assertThat(all).extracting(NoteSummary::getId)
+                .containsExactlyElementsOf(noteRepository.findSummariesByTripId(trip.getId()).stream()
+                        .map(NoteSummary::getId).toList());
+    }
+
+    @Test
+    void shouldLoadPointNotes() {
+        List<NoteSummary> notes = noteRepository.findSummariesByPointId(points.get(3).getId());
+
+        assertThat(notes).hasSize(NOTE_COUNT / POINT_COUNT)
+                .allSatisfy(n -> assertThat(n.getPointName()).isEqualTo("Miejsce 3"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
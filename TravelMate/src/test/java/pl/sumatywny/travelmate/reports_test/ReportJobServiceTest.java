@@ -0,0 +1,183 @@
+package pl.sumatywny.travelmate.reports_test;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.sumatywny.travelmate.config.NotFoundException;
+import pl.sumatywny.travelmate.config.ReportGenerationException;
+import pl.sumatywny.travelmate.reports.model.ReportJob;
+import pl.sumatywny.travelmate.reports.model.ReportJobStatus;
+import pl.sumatywny.travelmate.reports.service.ReportJobService;
+import pl.sumatywny.travelmate.reports.service.ReportPdfRenderer;
+import pl.sumatywny.travelmate.reports.service.ReportService;
+import pl.sumatywny.travelmate.trip.model.Trip;
+import pl.sumatywny.travelmate.trip.service.OpenAiService;
+import pl.sumatywny.travelmate.trip.service.TripService;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class ReportJobServiceTest {
+
+    @TempDir
+    Path storageDir;
+
+    private ReportService reportService;
+    private TripService tripService;
+    private OpenAiService openAiService;
+    private final List<Runnable> queued = new ArrayList<>();
+
+    private UUID tripId;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        reportService = mock(ReportService.class);
+        tripService = mock(TripService.class);
+        openAiService = mock(OpenAiService.class);
+
+        tripId = UUID.randomUUID();
+        userId = UUID.randomUUID();
+        when(tripService.canUserAccessTrip(tripId, userId)).thenReturn(true);
+        when(tripService.findById(tripId)).thenReturn(Trip.builder().id(tripId).name("Kraków").build());
+        when(reportService.buildReportPrompt(tripId)).thenReturn("Notatka o Wawel: Piękna architektura");
+        when(openAiService.askChatGptNote(anyString())).thenReturn("Odwiedziliśmy Wawel.");
+    }
+
+    private ReportJobService service(Executor executor) {
+        return service(executor, Duration.ofHours(1));
+    }
+
+    private ReportJobService service(Executor executor, Duration jobRetention) {
+        return new ReportJobService(reportService, tripService, openAiService, new ReportPdfRenderer(),
+                executor, storageDir, jobRetention);
+    }
+
+    @Test
+    void shouldGeneratePdfAndServeUnchangedReportFromStorage() throws Exception {
+        ReportJobService service = service(Runnable::run);
+
+        ReportJob first = service.submit(tripId, userId);
+        Path pdf = service.awaitReport(first, Duration.ofSeconds(1));
+
+        assertThat(first.getStatus()).isEqualTo(ReportJobStatus.DONE);
+        assertThat(pdf).startsWith(storageDir.resolve(tripId.toString()));
+        assertThat(new String(Files.readAllBytes(pdf), 0, 5, StandardCharsets.US_ASCII)).isEqualTo("%PDF-");
+
+        ReportJob second = service.submit(tripId, userId);
+
+        assertThat(second.getStatus()).isEqualTo(ReportJobStatus.DONE);
+        assertThat(second.getResult().join()).isEqualTo(pdf);
+        verify(openAiService, times(1)).askChatGptNote(anyString());
+        assertThat(service.getJob(second.getId(), userId)).isSameAs(second);
+    }
+
+    @Test
+    void shouldRegenerateWhenNotesChangeAndDropUnreferencedOldVersion() throws Exception {
+        ReportJobService service = service(Runnable::run, Duration.ZERO);
+        Path oldPdf = service.submit(tripId, userId).getResult().join();
+        Thread.sleep(5);
+        service.evictFinishedJobs();
+
+        when(reportService.buildReportPrompt(tripId)).thenReturn("Notatka o Wawel: Zmieniona");
+        Path newPdf = service.submit(tripId, userId).getResult().join();
+
+        assertThat(newPdf).isNotEqualTo(oldPdf).exists();
+        assertThat(oldPdf).doesNotExist();
+        verify(openAiService, times(2)).askChatGptNote(anyString());
+    }
+
+    @Test
+    void shouldKeepOldVersionWhileRetainedJobPointsAtIt() throws Exception {
+        ReportJobService service = service(Runnable::run, Duration.ofMillis(200));
+        ReportJob oldJob = service.submit(tripId, userId);
+        Path oldPdf = oldJob.getResult().join();
+
+        when(reportService.buildReportPrompt(tripId)).thenReturn("Notatka o Wawel: Zmieniona");
+        Path newPdf = service.submit(tripId, userId).getResult().join();
+
+        // zadanie wciąż jest DONE, więc jego PDF musi dać się pobrać
+        assertThat(service.getJob(oldJob.getId(), userId).getStatus()).isEqualTo(ReportJobStatus.DONE);
+        assertThat(oldPdf).exists();
+
+        Thread.sleep(250);
+        service.evictFinishedJobs();
+
+        assertThat(oldPdf).doesNotExist();
+        assertThat(newPdf).exists();
+        assertThatThrownBy(() -> service.getJob(oldJob.getId(), userId)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void shouldRefuseReportsOfTripsUserDoesNotTakePartIn() {
+        ReportJobService service = service(Runnable::run);
+        UUID stranger = UUID.randomUUID();
+        ReportJob job = service.submit(tripId, userId);
+
+        assertThatThrownBy(() -> service.getJob(job.getId(), stranger)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> service.submit(tripId, stranger)).isInstanceOf(IllegalStateException.class);
+        verify(openAiService, times(1)).askChatGptNote(anyString());
+    }
+
+    @Test
+    void shouldShareRunningJobForIdenticalSubmissions() {
+        ReportJobService service = service(queued::add);
+
+        ReportJob first = service.submit(tripId, userId);
+        ReportJob second = service.submit(tripId, userId);
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.getStatus()).isEqualTo(ReportJobStatus.QUEUED);
+        assertThat(queued).hasSize(1);
+
+        queued.get(0).run();
+
+        assertThat(first.getStatus()).isEqualTo(ReportJobStatus.DONE);
+    }
+
+    @Test
+    void shouldMarkJobFailedWhenGenerationFails() {
+        when(openAiService.askChatGptNote(anyString())).thenThrow(new RuntimeException("OpenAI unavailable"));
+        ReportJobService service = service(Runnable::run);
+
+        ReportJob job = service.submit(tripId, userId);
+
+        assertThat(job.getStatus()).isEqualTo(ReportJobStatus.FAILED);
+        assertThat(job.getError()).isEqualTo("OpenAI unavailable");
+        assertThatThrownBy(() -> service.awaitReport(job, Duration.ofSeconds(1)))
+                .isInstanceOf(ReportGenerationException.class)
+                .hasMessageContaining("OpenAI unavailable");
+        assertThat(storageDir.resolve(tripId.toString())).doesNotExist();
+    }
+
+    @Test
+    void shouldRejectWhenQueueIsFullAndForgetJob() {
+        ReportJobService service = service(task -> {
+            throw new RejectedExecutionException("queue full");
+        });
+
+        assertThatThrownBy(() -> service.submit(tripId, userId)).isInstanceOf(RejectedExecutionException.class);
+
+        // kolejne zlecenie nie może utknąć na nieistniejącym zadaniu w toku
+        ReportJobService retry = service(queued::add);
+        assertThat(retry.submit(tripId, userId).getStatus()).isEqualTo(ReportJobStatus.QUEUED);
+    }
+
+    @Test
+    void shouldThrowNotFoundForUnknownJob() {
+        ReportJobService service = service(Runnable::run);
+
+        assertThatThrownBy(() -> service.getJob(UUID.randomUUID(), userId)).isInstanceOf(NotFoundException.class);
+    }
+}
@@ -0,0 +1,67 @@
+package pl.sumatywny.travelmate.security_test;
+
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.sumatywny.travelmate.security.model.AuthenticatedUser;
+import pl.sumatywny.travelmate.security.model.Role;
+import pl.sumatywny.travelmate.security.model.User;
+import pl.sumatywny.travelmate.security.service.JwtService;
+
+import java.util.HashMap;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "dGVzdC1zZWNyZXQta2V5LXRoYXQtaXMtbG9uZy1lbm91Z2gtZm9yLWhzMjU2LXNpZ25pbmc=";
+
+    private JwtService jwtService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService(SECRET, 60_000L);
+
+        user = User.builder()
+                .id(UUID.randomUUID())
+                .email("alice@example.com")
+                .password("hash")
+                .role(Role.USER)
+                .build();
+    }
+
+    @Test
+    void shouldBuildPrincipalFromTokenClaims() {
+        String token = jwtService.generateToken(user);
+
+        Claims claims = jwtService.extractAllClaims(token);
+        AuthenticatedUser principal = jwtService.toAuthenticatedUser(claims);
+
+        assertThat(principal).isNotNull();
+        assertThat(principal.getId()).isEqualTo(user.getId());
+        assertThat(principal.getUsername()).isEqualTo("alice@example.com");
+        assertThat(principal.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_USER");
+        assertThat(jwtService.isTokenValid(token, user)).isTrue();
+        assertThat(jwtService.isTokenValid(claims, user)).isTrue();
+    }
+
+    @Test
+    void shouldRejectTokenOfAnotherUser() {
+        String token = jwtService.generateToken(user);
+        User other = User.builder().id(UUID.randomUUID()).email("bob@example.com").role(Role.USER).build();
+
+        assertThat(jwtService.isTokenValid(token, other)).isFalse();
+    }
+
+    @Test
+    void shouldReturnNullPrincipalForLegacyToken() {
+        String token = jwtService.generateToken(new HashMap<>(), user);
+
+        Claims claims = jwtService.extractAllClaims(token);
+
+        assertThat(jwtService.toAuthenticatedUser(claims)).isNull();
+        assertThat(jwtService.extractUsername(token)).isEqualTo("alice@example.com");
+    }
+}
@@ -7,6 +7,7 @@ import jakarta.servlet.ServletResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -14,7 +15,10 @@ import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
-import pl.sumatywny.travelmate.reports.dto.NoteDTO;
+import org.springframework.test.web.servlet.MvcResult;
+import pl.sumatywny.travelmate.config.ReportGenerationException;
+import pl.sumatywny.travelmate.reports.model.ReportJob;
+import pl.sumatywny.travelmate.reports.service.ReportJobService;
 import pl.sumatywny.travelmate.reports.service.ReportService;
 import pl.sumatywny.travelmate.security.config.JwtAuthenticationFilter;
 import pl.sumatywny.travelmate.security.model.User;
@@ -25,20 +29,27 @@ import pl.sumatywny.travelmate.trip.dto.ChatNoteRequestDto;
 import pl.sumatywny.travelmate.trip.dto.ChatRequestDto;
 import pl.sumatywny.travelmate.trip.dto.PlaceVisitDto;
 import pl.sumatywny.travelmate.trip.model.Point;
-import pl.sumatywny.travelmate.trip.model.Trip;
 import pl.sumatywny.travelmate.trip.service.OpenAiService;
 import pl.sumatywny.travelmate.trip.service.PointService;
-import pl.sumatywny.travelmate.trip.service.TripService;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
@@ -52,7 +63,7 @@ class ChatControllerTest {
     @MockBean private OpenAiService openAiService;
     @MockBean private PointService pointService;
     @MockBean private ReportService reportService;
-    @MockBean private TripService tripService;
+    @MockBean private ReportJobService reportJobService;
 
     @MockBean private JwtService jwtService;
     @MockBean private JwtAuthenticationFilter jwtAuthenticationFilter;
@@ -64,6 +75,10 @@ class ChatControllerTest {
     private static final UUID TRIP_ID = UUID.randomUUID();
     private static final UUID USER_ID = UUID.randomUUID();
     private static final String USER_EMAIL = "user@example.com";
+    private static final byte[] PDF_BYTES = "%PDF-1.4 test".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir
+    Path tempDir;
 
     @BeforeEach
     void setUpFilter() throws Exception {
@@ -76,6 +91,11 @@ class ChatControllerTest {
         }).when(jwtAuthenticationFilter).doFilter(any(), any(), any());
     }
 
+    @BeforeEach
+    void setUpUser() {
+        when(userService.findByEmail(USER_EMAIL)).thenReturn(Optional.of(mockUser()));
+    }
+
     private User mockUser() {
         User user = new User();
         user.setId(USER_ID);
@@ -99,7 +119,6 @@ class ChatControllerTest {
         );
 
         when(userService.findByEmail(USER_EMAIL)).thenReturn(Optional.of(mockUser()));
-        when(tripService.canUserAccessTrip(TRIP_ID, USER_ID)).thenReturn(true);
         when(openAiService.askChatGpt("Co warto zobaczyć w Gdańsku?")).thenReturn(List.of(place));
 
         mockMvc.perform(post("/api/chat").with(csrf())
@@ -113,45 +132,242 @@ class ChatControllerTest {
                 .andExpect(jsonPath("$[0].lng").value(18.6466))
                 .andExpect(jsonPath("$[0].date").value("2025-08-12"));
 
-        verify(pointService, times(1)).create(eq(TRIP_ID), any(Point.class));
+        verify(pointService, times(1)).createAll(eq(TRIP_ID), argThat(points -> points.size() == 1));
+        verify(pointService, never()).create(any(), any());
+    }
+
+    @Test
+    @WithMockUser(username = USER_EMAIL)
+    void shouldServeStructuredRequestFromPlanCache() throws Exception {
+        ChatRequestDto request = new ChatRequestDto();
+        request.setTripId(TRIP_ID);
+        request.setDestination("Gdańsk");
+        request.setStartDate(LocalDate.of(2025, 8, 12));
+        request.setEndDate(LocalDate.of(2025, 8, 14));
+        request.setRefresh(true);
+
+        PlaceVisitDto place = new PlaceVisitDto("Stare Miasto", "ul. Długa, Gdańsk", 54.3520, 18.6466, "2025-08-12");
+        when(openAiService.planTrip("Gdańsk", LocalDate.of(2025, 8, 12), LocalDate.of(2025, 8, 14), null, true))
+                .thenReturn(List.of(place));
+
+        mockMvc.perform(post("/api/chat").with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Stare Miasto"));
+
+        verify(openAiService, never()).askChatGpt(any());
+        verify(pointService).createAll(eq(TRIP_ID), argThat(points -> points.size() == 1));
     }
 
     @Test
     @WithMockUser(username = USER_EMAIL)
     void shouldGeneratePdfFromNotes() throws Exception {
         ChatNoteRequestDto request = new ChatNoteRequestDto(TRIP_ID);
+        ReportJob job = finishedJob();
 
-        NoteDTO note = NoteDTO.builder()
-                .id(UUID.randomUUID())
-                .date(LocalDateTime.of(2025, 5, 10, 12, 0))
-                .pointName("Wawel")
-                .pointId(1L)
-                .content("Piękna architektura")
-                .author(USER_EMAIL)
-                .build();
-
-        Point point = Point.builder()
-                .id(1L)
-                .title("Wawel")
-                .date(LocalDate.of(2025, 5, 10))
-                .build();
-
-        Trip trip = Trip.builder()
-                .id(TRIP_ID)
-                .name("Kraków trip")
-                .build();
+        when(reportJobService.submit(TRIP_ID, USER_ID)).thenReturn(job);
+        when(reportJobService.awaitReport(eq(job), any())).thenReturn(job.getResult().join());
 
-        when(userService.findByEmail(USER_EMAIL)).thenReturn(Optional.of(mockUser()));
-        when(tripService.canUserAccessTrip(TRIP_ID, USER_ID)).thenReturn(true);
-        when(reportService.getTripNotes(TRIP_ID)).thenReturn(List.of(note));
-        when(pointService.findByTripId(TRIP_ID)).thenReturn(List.of(point));
-        when(tripService.findById(TRIP_ID)).thenReturn(trip);
-        when(openAiService.askChatGptNote(anyString())).thenReturn("Odwiedziliśmy Wawel...");
+        mockMvc.perform(post("/api/chat/note").with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/pdf"))
+                .andExpect(content().bytes(PDF_BYTES));
+    }
+
+    @Test
+    @WithMockUser(username = USER_EMAIL)
+    void shouldReturnJobStateWhenSynchronousReportTakesTooLong() throws Exception {
+        ReportJob job = new ReportJob(TRIP_ID, "key");
+
+        when(reportJobService.submit(TRIP_ID, USER_ID)).thenReturn(job);
+        when(reportJobService.awaitReport(eq(job), any())).thenReturn(null);
+
+        mockMvc.perform(post("/api/chat/note").with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ChatNoteRequestDto(TRIP_ID))))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/chat/note/jobs/" + job.getId()))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    @WithMockUser(username = USER_EMAIL)
+    void shouldAnswerBadGatewayWhenReportGenerationFails() throws Exception {
+        ReportJob job = new ReportJob(TRIP_ID, "key");
+        job.fail(new RuntimeException("OpenAI unavailable"));
+
+        when(reportJobService.submit(TRIP_ID, USER_ID)).thenReturn(job);
+        when(reportJobService.awaitReport(eq(job), any())).thenThrow(
+                new ReportGenerationException("Report generation failed: OpenAI unavailable", new RuntimeException()));
 
         mockMvc.perform(post("/api/chat/note").with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ChatNoteRequestDto(TRIP_ID))))
+                .andExpect(status().isBadGateway())
+                .andExpect(jsonPath("$.message").value("Report generation failed: OpenAI unavailable"));
+    }
+
+    @Test
+    @WithMockUser(username = USER_EMAIL)
+    void shouldEnqueueReportJob() throws Exception {
+        ReportJob job = new ReportJob(TRIP_ID, "key");
+        when(reportJobService.submit(TRIP_ID, USER_ID)).thenReturn(job);
+
+        mockMvc.perform(post("/api/chat/note/jobs").with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ChatNoteRequestDto(TRIP_ID))))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/chat/note/jobs/" + job.getId()))
+                .andExpect(jsonPath("$.id").value(job.getId().toString()))
+                .andExpect(jsonPath("$.status").value("QUEUED"))
+                .andExpect(jsonPath("$.downloadUrl").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(username = USER_EMAIL)
+    void shouldRefuseDownloadOfUnfinishedReport() throws Exception {
+        ReportJob job = new ReportJob(TRIP_ID, "key");
+        job.markRunning();
+        when(reportJobService.getJob(job.getId(), USER_ID)).thenReturn(job);
+
+        mockMvc.perform(get("/api/chat/note/jobs/{jobId}/pdf", job.getId()))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.status").value("RUNNING"));
+    }
+
+    @Test
+    @WithMockUser(username = USER_EMAIL)
+    void shouldDownloadFinishedReport() throws Exception {
+        ReportJob job = finishedJob();
+        when(reportJobService.getJob(job.getId(), USER_ID)).thenReturn(job);
+
+        mockMvc.perform(get("/api/chat/note/jobs/{jobId}", job.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("DONE"))
+                .andExpect(jsonPath("$.downloadUrl").value("/api/chat/note/jobs/" + job.getId() + "/pdf"));
+
+        mockMvc.perform(get("/api/chat/note/jobs/{jobId}/pdf", job.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/pdf"))
+                .andExpect(content().bytes(PDF_BYTES));
+    }
+
+    @Test
+    @WithMockUser(username = USER_EMAIL)
+    void shouldRefuseReportJobOfTripUserDoesNotTakePartIn() throws Exception {
+        UUID jobId = UUID.randomUUID();
+        when(reportJobService.getJob(jobId, USER_ID))
+                .thenThrow(new IllegalStateException("Nie masz dostępu do raportu tej wycieczki."));
+
+        mockMvc.perform(get("/api/chat/note/jobs/{jobId}", jobId))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/chat/note/jobs/{jobId}/pdf", jobId))
+                .andExpect(status().isForbidden());
+    }
+
+    private ReportJob finishedJob() throws IOException {
+        Path pdf = tempDir.resolve("report.pdf");
+        Files.write(pdf, PDF_BYTES);
+        ReportJob job = new ReportJob(TRIP_ID, "key");
+        job.complete(pdf);
+        return job;
+    }
+
+    @Test
+    @WithMockUser(username = USER_EMAIL)
+    void shouldStreamRecommendedPlacesAndSavePoints() throws Exception {
+        ChatRequestDto request = new ChatRequestDto();
+        request.setPrompt("Co warto zobaczyć w Gdańsku?");
+        request.setTripId(TRIP_ID);
+
+        PlaceVisitDto place = new PlaceVisitDto("Stare Miasto", "ul. Długa, Gdańsk", 54.3520, 18.6466, "2025-08-12");
+
+        when(openAiService.streamChatGpt("Co warto zobaczyć w Gdańsku?")).thenReturn(Flux.just(place));
+
+        MvcResult result = mockMvc.perform(post("/api/chat/stream").with(csrf())
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
-                .andExpect(header().string("Content-Type", "application/pdf"));
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(containsString("event:place")))
+                .andExpect(content().string(containsString("\"name\":\"Stare Miasto\"")))
+                .andExpect(content().string(containsString("event:done")));
+
+        verify(pointService, times(1)).create(eq(TRIP_ID), any(Point.class));
+    }
+
+    @Test
+    @WithMockUser(username = USER_EMAIL)
+    void shouldPlanReactivelyAndSavePointsInBatches() throws Exception {
+        ChatRequestDto request = new ChatRequestDto();
+        request.setPrompt("Co warto zobaczyć w Gdańsku?");
+        request.setTripId(TRIP_ID);
+
+        List<PlaceVisitDto> places = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            places.add(new PlaceVisitDto("Miejsce " + i, "Gdańsk", 54.35, 18.64, "2025-08-12"));
+        }
+        when(openAiService.planItinerary("Co warto zobaczyć w Gdańsku?")).thenReturn(Flux.fromIterable(places));
+
+        MvcResult result = mockMvc.perform(post("/api/chat/plan").with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(12))
+                .andExpect(jsonPath("$[0].name").value("Miejsce 0"))
+                .andExpect(jsonPath("$[11].name").value("Miejsce 11"));
+
+        // 12 miejsc = batch 10 + batch 2
+        verify(pointService).createAll(eq(TRIP_ID), argThat(points -> points.size() == 10));
+        verify(pointService).createAll(eq(TRIP_ID), argThat(points -> points.size() == 2));
+        verify(pointService, never()).create(any(), any());
+    }
+
+    @Test
+    @WithMockUser(username = USER_EMAIL)
+    void shouldStreamReportText() throws Exception {
+        ChatNoteRequestDto request = new ChatNoteRequestDto(TRIP_ID);
+
+        when(reportService.buildReportPrompt(TRIP_ID)).thenReturn("Notatka o Wawel: Piękna architektura");
+        when(openAiService.streamChatGptNote("Notatka o Wawel: Piękna architektura")).thenReturn(Flux.just("Odwiedziliśmy ", "Wawel."));
+
+        MvcResult result = mockMvc.perform(post("/api/chat/note/stream").with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // SSE jest zawsze w UTF-8, a nagłówek nie zawiera charsetu – dekodujemy jawnie
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        assertThat(body).contains("event:token\ndata:Odwiedziliśmy ", "data:Wawel.", "event:done");
+    }
+
+    @Test
+    @WithMockUser(username = USER_EMAIL)
+    void shouldRefuseReportStreamOfTripUserDoesNotTakePartIn() throws Exception {
+        doThrow(new IllegalStateException("Nie masz dostępu do raportu tej wycieczki."))
+                .when(reportJobService).checkCanAccess(TRIP_ID, USER_ID);
+
+        mockMvc.perform(post("/api/chat/note/stream").with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ChatNoteRequestDto(TRIP_ID))))
+                .andExpect(status().isForbidden());
+
+        verify(reportService, never()).buildReportPrompt(any());
+        verify(openAiService, never()).streamChatGptNote(any());
     }
 }
@@ -1,6 +1,7 @@
 package pl.sumatywny.travelmate.trip_test;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.AfterEach;
@@ -8,9 +9,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.reactive.function.client.WebClient;
+import pl.sumatywny.travelmate.trip.repository.PlaceCacheRepository;
 import pl.sumatywny.travelmate.trip.service.GooglePlacesService;
+import pl.sumatywny.travelmate.trip.service.PlaceCache;
+
+import java.time.Duration;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 
 class GooglePlacesServiceTest {
 
@@ -22,10 +29,10 @@ class GooglePlacesServiceTest {
         mockWebServer = new MockWebServer();
         mockWebServer.start();
 
-        googlePlacesService = new GooglePlacesService();
-
+        PlaceCache placeCache = new PlaceCache(mock(PlaceCacheRepository.class), new SimpleMeterRegistry(),
+                100, Duration.ofMinutes(1), 1_000, Set.of());
         WebClient testClient = WebClient.create(mockWebServer.url("/maps/api").toString());
-        ReflectionTestUtils.setField(googlePlacesService, "webClient", testClient);
+        googlePlacesService = new GooglePlacesService(placeCache, testClient, new ObjectMapper());
         ReflectionTestUtils.setField(googlePlacesService, "apiKey", "FAKE_API_KEY");
     }
 
@@ -75,6 +82,15 @@ class GooglePlacesServiceTest {
         assertThat(placeId).isNull();
     }
 
+    @Test
+    void shouldReturnNullForMalformedAutocompleteResponse() {
+        mockWebServer.enqueue(new MockResponse()
+                .setBody("<html>502 Bad Gateway</html>")
+                .addHeader("Content-Type", "application/json"));
+
+        assertThat(googlePlacesService.getPlaceId("Wawel")).isNull();
+    }
+
     @Test
     void shouldReturnPlaceDetailsJson() {
         String mockResponse = """
@@ -124,4 +140,44 @@ class GooglePlacesServiceTest {
 
         assertThat(json).contains("place_id");
     }
+
+    @Test
+    void shouldServeRepeatedLookupsFromCache() {
+        mockWebServer.enqueue(new MockResponse()
+                .setBody("""
+                    { "predictions": [ { "place_id": "test_place_id" } ], "status": "OK" }
+                    """)
+                .addHeader("Content-Type", "application/json"));
+        mockWebServer.enqueue(new MockResponse()
+                .setBody("""
+                    { "result": { "name": "Wawel" }, "status": "OK" }
+                    """)
+                .addHeader("Content-Type", "application/json"));
+
+        assertThat(googlePlacesService.getPlaceId("Wawel")).isEqualTo("test_place_id");
+        assertThat(googlePlacesService.getPlaceId(" wawel ")).isEqualTo("test_place_id");
+        assertThat(googlePlacesService.getPlaceDetails("test_place_id")).contains("Wawel");
+        assertThat(googlePlacesService.getPlaceDetails("test_place_id")).contains("Wawel");
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotCacheDetailsErrorResponse() {
+        mockWebServer.enqueue(new MockResponse()
+                .setBody("""
+                    { "status": "OVER_QUERY_LIMIT" }
+                    """)
+                .addHeader("Content-Type", "application/json"));
+        mockWebServer.enqueue(new MockResponse()
+                .setBody("""
+                    { "result": { "name": "Wawel" }, "status": "OK" }
+                    """)
+                .addHeader("Content-Type", "application/json"));
+
+        assertThat(googlePlacesService.getPlaceDetails("test_place_id")).contains("OVER_QUERY_LIMIT");
+        assertThat(googlePlacesService.getPlaceDetails("test_place_id")).contains("Wawel");
+
+        assertThat(mockWebServer.getRequestCount()).isEqualTo(2);
+    }
 }
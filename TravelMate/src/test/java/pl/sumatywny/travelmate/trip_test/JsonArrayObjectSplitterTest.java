@@ -0,0 +1,47 @@
+package pl.sumatywny.travelmate.trip_test;
+
+import org.junit.jupiter.api.Test;
+import pl.sumatywny.travelmate.trip.service.JsonArrayObjectSplitter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonArrayObjectSplitterTest {
+
+    @Test
+    void shouldEmitObjectsAsSoonAsTheyAreComplete() {
+        JsonArrayObjectSplitter splitter = new JsonArrayObjectSplitter();
+
+        assertThat(splitter.feed("```json\n[\n  {\"Nazwa miejsca\": \"Wa")).isEmpty();
+        assertThat(splitter.feed("wel\", \"Data odwiedzin\": \"2025-05-08\"}")).containsExactly(
+                "{\"Nazwa miejsca\": \"Wawel\", \"Data odwiedzin\": \"2025-05-08\"}");
+        assertThat(splitter.feed(",\n  {\"Nazwa miejsca\": \"Sukiennice\"")).isEmpty();
+        assertThat(splitter.feed("}\n]\n```")).containsExactly("{\"Nazwa miejsca\": \"Sukiennice\"}");
+    }
+
+    @Test
+    void shouldIgnoreBracesAndEscapedQuotesInsideStrings() {
+        JsonArrayObjectSplitter splitter = new JsonArrayObjectSplitter();
+
+        List<String> objects = splitter.feed("[{\"a\": \"}{ \\\" }\", \"b\": {\"c\": 1}}, {\"d\": \"\\\\\"}]");
+
+        assertThat(objects).containsExactly(
+                "{\"a\": \"}{ \\\" }\", \"b\": {\"c\": 1}}",
+                "{\"d\": \"\\\\\"}");
+    }
+
+    @Test
+    void shouldProduceSameResultRegardlessOfChunking() {
+        String json = "[{\"x\": \"1,2\"}, {\"y\": [1, {\"z\": \"}\"}]}]";
+        JsonArrayObjectSplitter splitter = new JsonArrayObjectSplitter();
+
+        List<String> objects = new ArrayList<>();
+        for (char c : json.toCharArray()) {
+            objects.addAll(splitter.feed(String.valueOf(c)));
+        }
+
+        assertThat(objects).containsExactly("{\"x\": \"1,2\"}", "{\"y\": [1, {\"z\": \"}\"}]}");
+    }
+}
@@ -1,26 +1,67 @@
 package pl.sumatywny.travelmate.trip_test;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
 import pl.sumatywny.travelmate.trip.dto.PlaceVisitDto;
+import pl.sumatywny.travelmate.trip.model.PlaceCacheKind;
+import pl.sumatywny.travelmate.trip.repository.PlaceCacheRepository;
 import pl.sumatywny.travelmate.trip.service.GooglePlacesService;
 import pl.sumatywny.travelmate.trip.service.OpenAiService;
+import pl.sumatywny.travelmate.trip.service.PlaceCache;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.mockito.Mockito.*;
 
 class OpenAiServiceTest {
 
+    private static final int EXECUTOR_THREADS = 4;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private PlaceCache placeCache;
+
     private GooglePlacesService googlePlacesService;
     private OpenAiService openAiService;
+    private ExecutorService executor;
 
     @BeforeEach
     void setUp() {
         googlePlacesService = mock(GooglePlacesService.class);
-        openAiService = new OpenAiService(googlePlacesService);
+        executor = Executors.newFixedThreadPool(EXECUTOR_THREADS);
+        placeCache = new PlaceCache(mock(PlaceCacheRepository.class), new SimpleMeterRegistry(),
+                100, Duration.ofMinutes(1), 100, Set.of());
+        openAiService = new OpenAiService(googlePlacesService, executor, WebClient.create("http://localhost"), objectMapper, placeCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
     }
 
     @Test
@@ -95,4 +136,397 @@ class OpenAiServiceTest {
         assertThat(result).isEmpty(); // lub .hasSize(0)
     }
 
+    @Test
+    void shouldLookUpPlacesConcurrentlyAndKeepPlanOrder() {
+        List<Map<String, Object>> gptOutput = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            gptOutput.add(Map.of("Nazwa miejsca", "Miejsce " + i, "Data odwiedzin", "2025-05-0" + (i + 1)));
+        }
+
+        // Każde wyszukiwanie czeka, aż wystartują wszystkie – przy wykonaniu sekwencyjnym latch by nie doszedł do zera
+        CountDownLatch allStarted = new CountDownLatch(4);
+        when(googlePlacesService.getPlaceId(anyString())).thenAnswer(invocation -> {
+            allStarted.countDown();
+            if (!allStarted.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("lookups did not run concurrently");
+            }
+            return "id-" + invocation.getArgument(0);
+        });
+        when(googlePlacesService.getPlaceDetails(anyString())).thenAnswer(invocation -> """
+                { "result": { "name": "%s", "geometry": { "location": { "lat": 1.0, "lng": 2.0 } } } }
+                """.formatted(((String) invocation.getArgument(0)).substring(3)));
+
+        List<PlaceVisitDto> result = openAiService.getDetails(gptOutput);
+
+        assertThat(result).extracting(PlaceVisitDto::getName)
+                .containsExactly("Miejsce 0", "Miejsce 1", "Miejsce 2", "Miejsce 3");
+        assertThat(result).extracting(PlaceVisitDto::getDate)
+                .containsExactly("2025-05-01", "2025-05-02", "2025-05-03", "2025-05-04");
+    }
+
+    @Test
+    void shouldSkipPlaceWhenLookupFails() {
+        List<Map<String, Object>> gptOutput = List.of(
+                Map.of("Nazwa miejsca", "Awaria", "Data odwiedzin", "2025-05-08")
+        );
+
+        when(googlePlacesService.getPlaceId("Awaria")).thenThrow(new RuntimeException("503"));
+
+        List<PlaceVisitDto> result = openAiService.getDetails(gptOutput);
+
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    void shouldDecodeCompletionIntoPlanAndSkipPlacesWithoutDetails() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(completionResponse(plan(2)));
+            useServer(server);
+
+            when(googlePlacesService.getPlaceId("Miejsce 0")).thenReturn("id-0");
+            when(googlePlacesService.getPlaceDetails("id-0")).thenReturn("""
+                    { "result": { "name": "Wawel", "formatted_address": "Kraków", "place_id": "id-0",
+                      "geometry": { "location": { "lat": 50.054, "lng": 19.936 }, "viewport": {} } }, "status": "OK" }
+                    """);
+            when(googlePlacesService.getPlaceId("Miejsce 1")).thenReturn("id-1");
+            when(googlePlacesService.getPlaceDetails("id-1")).thenReturn("{ \"status\": \"NOT_FOUND\" }");
+
+            List<PlaceVisitDto> result = openAiService.askChatGpt("Kraków");
+
+            assertThat(result).hasSize(1);
+            assertThat(result.get(0).getName()).isEqualTo("Wawel");
+            assertThat(result.get(0).getAddress()).isEqualTo("Kraków");
+            assertThat(result.get(0).getLat()).isEqualTo(50.054);
+            assertThat(result.get(0).getDate()).isEqualTo("2025-05-01");
+        }
+    }
+
+    @Test
+    void shouldReturnReportTextFromCompletion() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(completionResponse("Odwiedziliśmy \"Wawel\"."));
+            useServer(server);
+
+            assertThat(openAiService.askChatGptNote("notatki")).isEqualTo("Odwiedziliśmy \"Wawel\".");
+        }
+    }
+
+    @Test
+    void shouldReuseCachedPlanForSameDestinationAndLengthAndRedateIt() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(completionResponse(plan(2)));
+            useServer(server);
+            stubPlacesForPlan();
+
+            List<PlaceVisitDto> first = openAiService.planTrip("Kraków",
+                    LocalDate.of(2025, 5, 1), LocalDate.of(2025, 5, 2), null, false);
+            List<PlaceVisitDto> second = openAiService.planTrip("  kraków ",
+                    LocalDate.of(2025, 7, 10), LocalDate.of(2025, 7, 11), "PL", false);
+
+            assertThat(first).extracting(PlaceVisitDto::getDate).containsExactly("2025-05-01", "2025-05-02");
+            assertThat(second).extracting(PlaceVisitDto::getName).containsExactly("Miejsce 0", "Miejsce 1");
+            assertThat(second).extracting(PlaceVisitDto::getDate).containsExactly("2025-07-10", "2025-07-11");
+            assertThat(server.getRequestCount()).isEqualTo(1);
+            assertThat(server.takeRequest().getBody().readUtf8()).contains("Miasto: Kraków. Pobyt od 2025-05-01 do 2025-05-02.");
+            verify(googlePlacesService, times(1)).getPlaceId("Miejsce 0");
+        }
+    }
+
+    @Test
+    void shouldAskAgainForOtherLengthOtherLocaleOrRefresh() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            for (int i = 0; i < 4; i++) {
+                server.enqueue(completionResponse(plan(2)));
+            }
+            useServer(server);
+            stubPlacesForPlan();
+            LocalDate start = LocalDate.of(2025, 5, 1);
+
+            openAiService.planTrip("Kraków", start, start.plusDays(2), "pl", false);
+            openAiService.planTrip("Kraków", start, start.plusDays(3), "pl", false);
+            openAiService.planTrip("Kraków", start, start.plusDays(2), "en_GB", false);
+            openAiService.planTrip("Kraków", start, start.plusDays(2), "en-gb", false);
+            openAiService.planTrip("Kraków", start, start.plusDays(2), "pl", true);
+
+            assertThat(server.getRequestCount()).isEqualTo(4);
+            server.takeRequest();
+            server.takeRequest();
+            assertThat(server.takeRequest().getBody().readUtf8()).contains("Nazwy miejsc podaj w języku: en-gb.");
+        }
+    }
+
+    @Test
+    void shouldNotCacheEmptyPlan() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(completionResponse("[]"));
+            server.enqueue(completionResponse("[]"));
+            useServer(server);
+            LocalDate start = LocalDate.of(2025, 5, 1);
+
+            assertThat(openAiService.planTrip("Atlantyda", start, start, null, false)).isEmpty();
+            assertThat(openAiService.planTrip("Atlantyda", start, start, null, false)).isEmpty();
+            assertThat(server.getRequestCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void shouldDiscardCorruptCachedPlanAndGenerateItAgain() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(completionResponse(plan(2)));
+            useServer(server);
+            stubPlacesForPlan();
+            LocalDate start = LocalDate.of(2025, 5, 1);
+            placeCache.get(PlaceCacheKind.PLAN, PlaceCache.normalize("Kraków") + "|2|pl", k -> "{\"startDate\": ", json -> true);
+
+            List<PlaceVisitDto> first = openAiService.planTrip("Kraków", start, start.plusDays(1), null, false);
+            List<PlaceVisitDto> second = openAiService.planTrip("Kraków", start, start.plusDays(1), null, false);
+
+            assertThat(first).extracting(PlaceVisitDto::getName).containsExactly("Miejsce 0", "Miejsce 1");
+            assertThat(second).extracting(PlaceVisitDto::getName).containsExactly("Miejsce 0", "Miejsce 1");
+            // nowy plan zastąpił uszkodzony wpis, więc drugie wywołanie nie pyta modelu
+            assertThat(server.getRequestCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void shouldReturnPlanWithoutCachingItWhenItCannotBeSerialized() throws Exception {
+        ObjectMapper failingMapper = spy(new ObjectMapper());
+        doThrow(new JsonProcessingException("boom") {
+        }).when(failingMapper).writeValueAsString(argThat(value -> value.getClass().getSimpleName().equals("CachedPlan")));
+
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(completionResponse(plan(2)));
+            server.enqueue(completionResponse(plan(2)));
+            openAiService = new OpenAiService(googlePlacesService, executor,
+                    WebClient.create(server.url("/v1").toString()), failingMapper, placeCache);
+            ReflectionTestUtils.setField(openAiService, "apiKey", "FAKE_API_KEY");
+            stubPlacesForPlan();
+            LocalDate start = LocalDate.of(2025, 5, 1);
+
+            assertThat(openAiService.planTrip("Kraków", start, start.plusDays(1), null, false)).hasSize(2);
+            assertThat(openAiService.planTrip("Kraków", start, start.plusDays(1), null, false)).hasSize(2);
+            assertThat(server.getRequestCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void shouldRejectPlanEndingBeforeItStarts() {
+        assertThatIllegalArgumentException().isThrownBy(() -> openAiService.planTrip("Kraków",
+                LocalDate.of(2025, 5, 2), LocalDate.of(2025, 5, 1), null, false));
+    }
+
+    @Test
+    void shouldStreamPlacesAsTheirObjectsComplete() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(sseResponse(
+                    "[{\"Nazwa miejsca\": \"Wa",
+                    "wel\", \"Data odwiedzin\": \"2025-05-08\"},",
+                    " {\"Nazwa miejsca\": \"Nigdzie\", \"Data odwiedzin\": \"2025-05-08\"}]"));
+            useServer(server);
+
+            when(googlePlacesService.getPlaceId("Wawel")).thenReturn("abc123");
+            when(googlePlacesService.getPlaceDetails("abc123")).thenReturn("""
+                    { "result": { "name": "Wawel", "geometry": { "location": { "lat": 50.054, "lng": 19.936 } } } }
+                    """);
+            when(googlePlacesService.getPlaceId("Nigdzie")).thenReturn(null);
+
+            List<PlaceVisitDto> result = openAiService.streamChatGpt("Kraków")
+                    .collectList()
+                    .block(Duration.ofSeconds(5));
+
+            assertThat(result).extracting(PlaceVisitDto::getName).containsExactly("Wawel");
+            assertThat(result.get(0).getDate()).isEqualTo("2025-05-08");
+            assertThat(server.takeRequest().getBody().readUtf8()).contains("\"stream\":true");
+        }
+    }
+
+    @Test
+    void shouldStreamReportTextFragments() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(sseResponse("Odwiedziliśmy ", "Wawel."));
+            useServer(server);
+
+            List<String> fragments = openAiService.streamChatGptNote("notatki")
+                    .collectList()
+                    .block(Duration.ofSeconds(5));
+
+            assertThat(fragments).containsExactly("Odwiedziliśmy ", "Wawel.");
+        }
+    }
+
+    @Test
+    void shouldPlanItineraryWithoutBlockingAndKeepPlanOrder() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(completionResponse(plan(3)));
+            useServer(server);
+
+            // Późniejsze miejsca odpowiadają szybciej, a "Miejsce 1" nie istnieje
+            when(googlePlacesService.getPlaceIdAsync(anyString())).thenAnswer(invocation -> {
+                String name = invocation.getArgument(0);
+                if (name.equals("Miejsce 1")) {
+                    return Mono.empty();
+                }
+                return Mono.delay(Duration.ofMillis(name.equals("Miejsce 0") ? 300 : 10)).thenReturn("id-" + name);
+            });
+            when(googlePlacesService.getPlaceDetailsAsync(anyString()))
+                    .thenAnswer(invocation -> Mono.just(detailsJson(((String) invocation.getArgument(0)).substring(3))));
+
+            List<PlaceVisitDto> result = openAiService.planItinerary("Kraków")
+                    .collectList()
+                    .block(Duration.ofSeconds(5));
+
+            assertThat(result).extracting(PlaceVisitDto::getName).containsExactly("Miejsce 0", "Miejsce 2");
+            assertThat(result).extracting(PlaceVisitDto::getDate).containsExactly("2025-05-01", "2025-05-03");
+            assertThat(server.takeRequest().getBody().readUtf8()).doesNotContain("\"stream\"");
+            verify(googlePlacesService, never()).getPlaceId(anyString());
+            verify(googlePlacesService, never()).getPlaceDetails(anyString());
+        }
+    }
+
+    @Test
+    void shouldSkipPlaceWhoseLookupTimesOut() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(completionResponse(plan(2)));
+            useServer(server);
+            ReflectionTestUtils.setField(openAiService, "placeLookupTimeout", Duration.ofMillis(200));
+
+            when(googlePlacesService.getPlaceIdAsync("Miejsce 0")).thenReturn(Mono.never());
+            when(googlePlacesService.getPlaceIdAsync("Miejsce 1")).thenReturn(Mono.just("id-Miejsce 1"));
+            when(googlePlacesService.getPlaceDetailsAsync("id-Miejsce 1")).thenReturn(Mono.just(detailsJson("Miejsce 1")));
+
+            List<PlaceVisitDto> result = openAiService.planItinerary("Kraków")
+                    .collectList()
+                    .block(Duration.ofSeconds(5));
+
+            assertThat(result).extracting(PlaceVisitDto::getName).containsExactly("Miejsce 1");
+        }
+    }
+
+    @Test
+    void shouldFailPlanWhenCompletionTimesOut() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(completionResponse(plan(1)).setHeadersDelay(2, TimeUnit.SECONDS));
+            useServer(server);
+            ReflectionTestUtils.setField(openAiService, "planCompletionTimeout", Duration.ofMillis(200));
+
+            assertThatThrownBy(() -> openAiService.planItinerary("Kraków").collectList().block(Duration.ofSeconds(5)))
+                    .hasCauseInstanceOf(TimeoutException.class);
+            verifyNoInteractions(googlePlacesService);
+        }
+    }
+
+    @Test
+    void shouldBoundConcurrentLookupsOfOnePlan() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(completionResponse(plan(9)));
+            useServer(server);
+
+            AtomicInteger inFlight = new AtomicInteger();
+            AtomicInteger maxInFlight = new AtomicInteger();
+            when(googlePlacesService.getPlaceIdAsync(anyString())).thenAnswer(invocation -> Mono.defer(() -> {
+                        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        return Mono.delay(Duration.ofMillis(100))
+                                .doOnTerminate(inFlight::decrementAndGet)
+                                .thenReturn("id-" + invocation.getArgument(0));
+                    }));
+            when(googlePlacesService.getPlaceDetailsAsync(anyString()))
+                    .thenAnswer(invocation -> Mono.just(detailsJson(((String) invocation.getArgument(0)).substring(3))));
+
+            List<PlaceVisitDto> result = openAiService.planItinerary("Kraków")
+                    .collectList()
+                    .block(Duration.ofSeconds(5));
+
+            assertThat(result).hasSize(9);
+            assertThat(maxInFlight.get()).isEqualTo(8);
+        }
+    }
+
+    @Test
+    void shouldServeManyConcurrentPlansWithoutDedicatedThreads() throws Exception {
+        int plans = 100;
+        try (MockWebServer server = new MockWebServer()) {
+            server.setDispatcher(new Dispatcher() {
+                @Override
+                public MockResponse dispatch(RecordedRequest request) {
+                    return completionResponse(plan(3));
+                }
+            });
+            useServer(server);
+
+            // Każde wyszukiwanie "trwa" 500 ms, ale nie zajmuje przy tym żadnego wątku
+            AtomicInteger inFlight = new AtomicInteger();
+            AtomicInteger maxInFlight = new AtomicInteger();
+            when(googlePlacesService.getPlaceIdAsync(anyString())).thenAnswer(invocation -> Mono.defer(() -> {
+                        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        return Mono.delay(Duration.ofMillis(500))
+                                .doOnTerminate(inFlight::decrementAndGet)
+                                .thenReturn("id-" + invocation.getArgument(0));
+                    }));
+            when(googlePlacesService.getPlaceDetailsAsync(anyString()))
+                    .thenAnswer(invocation -> Mono.just(detailsJson(((String) invocation.getArgument(0)).substring(3))));
+
+            long start = System.nanoTime();
+            List<List<PlaceVisitDto>> results = Flux.range(0, plans)
+                    .flatMap(i -> openAiService.planItinerary("Kraków " + i).collectList(), plans)
+                    .collectList()
+                    .block(Duration.ofSeconds(30));
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+            assertThat(results).hasSize(plans).allSatisfy(result -> assertThat(result).hasSize(3));
+            // 300 wyszukiwań po 500 ms: sekwencyjnie 150 s, na puli 4 wątków blokujących ~38 s
+            assertThat(maxInFlight.get()).isGreaterThan(EXECUTOR_THREADS * 10);
+            assertThat(elapsed).isLessThan(Duration.ofSeconds(10));
+        }
+    }
+
+    private void stubPlacesForPlan() {
+        when(googlePlacesService.getPlaceId(anyString()))
+                .thenAnswer(invocation -> "id-" + invocation.getArgument(0));
+        when(googlePlacesService.getPlaceDetails(anyString()))
+                .thenAnswer(invocation -> detailsJson(((String) invocation.getArgument(0)).substring(3)));
+    }
+
+    private static String plan(int places) {
+        StringBuilder plan = new StringBuilder("[");
+        for (int i = 0; i < places; i++) {
+            plan.append(i == 0 ? "" : ",")
+                    .append("{\"Data odwiedzin\": \"2025-05-0").append(i + 1)
+                    .append("\", \"Nazwa miejsca\": \"Miejsce ").append(i).append("\"}");
+        }
+        return plan.append("]").toString();
+    }
+
+    private static String detailsJson(String name) {
+        return """
+                { "result": { "name": "%s", "geometry": { "location": { "lat": 1.0, "lng": 2.0 } } } }
+                """.formatted(name);
+    }
+
+    // Zwykła (niestrumieniowa) odpowiedź chat/completions z podaną treścią; pola spoza modelu (id, usage) są ignorowane
+    private static MockResponse completionResponse(String content) {
+        String escaped = content.replace("\\", "\\\\").replace("\"", "\\\"");
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"id\":\"chatcmpl-1\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\""
+                        + escaped + "\"},\"finish_reason\":\"stop\"}],\"usage\":{\"total_tokens\":42}}");
+    }
+
+    private void useServer(MockWebServer server) {
+        openAiService = new OpenAiService(googlePlacesService, executor, WebClient.create(server.url("/v1").toString()), objectMapper,
+                placeCache);
+        ReflectionTestUtils.setField(openAiService, "apiKey", "FAKE_API_KEY");
+    }
+
+    // Odpowiedź w formacie SSE: pierwszy fragment bez treści (tylko rola), potem treść i znacznik końca
+    private static MockResponse sseResponse(String... fragments) {
+        StringBuilder body = new StringBuilder("data: {\"choices\":[{\"delta\":{\"role\":\"assistant\"}}]}\n\n");
+        for (String fragment : fragments) {
+            String escaped = fragment.replace("\\", "\\\\").replace("\"", "\\\"");
+            body.append("data: {\"choices\":[{\"delta\":{\"content\":\"").append(escaped).append("\"}}]}\n\n");
+        }
+        body.append("data: [DONE]\n\n");
+        return new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(body.toString());
+    }
 }
@@ -0,0 +1,273 @@
+package pl.sumatywny.travelmate.trip_test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import pl.sumatywny.travelmate.trip.model.PlaceCacheEntry;
+import pl.sumatywny.travelmate.trip.model.PlaceCacheKind;
+import pl.sumatywny.travelmate.trip.repository.PlaceCacheRepository;
+import pl.sumatywny.travelmate.trip.service.PlaceCache;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PlaceCacheTest {
+
+    @Mock
+    private PlaceCacheRepository repository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PlaceCache placeCache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        placeCache = new PlaceCache(repository, meterRegistry, 100, Duration.ofMinutes(1), 2, Set.of());
+        loads = new AtomicInteger();
+    }
+
+    private String load(String key) {
+        loads.incrementAndGet();
+        return "value-" + key;
+    }
+
+    private double count(String tier, String result) {
+        return meterRegistry.get(PlaceCache.METRIC_NAME)
+                .tag("kind", PlaceCacheKind.DETAILS.name())
+                .tag("tier", tier)
+                .tag("result", result)
+                .counter()
+                .count();
+    }
+
+    @Test
+    void shouldLoadOnMissAndStoreInBothTiers() {
+        String first = placeCache.get(PlaceCacheKind.DETAILS, "abc", this::load, value -> true);
+        String second = placeCache.get(PlaceCacheKind.DETAILS, "abc", this::load, value -> true);
+
+        assertThat(first).isEqualTo("value-abc");
+        assertThat(second).isEqualTo("value-abc");
+        assertThat(loads).hasValue(1);
+
+        ArgumentCaptor<PlaceCacheEntry> saved = ArgumentCaptor.forClass(PlaceCacheEntry.class);
+        verify(repository).save(saved.capture());
+        assertThat(saved.getValue().getCacheKey()).isEqualTo("abc");
+        assertThat(saved.getValue().getExpiresAt()).isAfter(LocalDateTime.now());
+
+        assertThat(count("memory", "hit")).isEqualTo(1);
+        assertThat(count("memory", "miss")).isEqualTo(1);
+        assertThat(count("database", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldServeFromDatabaseTierAfterRestart() {
+        when(repository.findByKindAndCacheKeyAndExpiresAtAfter(eq(PlaceCacheKind.DETAILS), eq("abc"), any()))
+                .thenReturn(Optional.of(PlaceCacheEntry.builder().payload("stored").build()));
+
+        String value = placeCache.get(PlaceCacheKind.DETAILS, "abc", this::load, v -> true);
+
+        assertThat(value).isEqualTo("stored");
+        assertThat(loads).hasValue(0);
+        assertThat(count("database", "hit")).isEqualTo(1);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void shouldNotCacheRejectedValues() {
+        placeCache.get(PlaceCacheKind.DETAILS, "abc", this::load, value -> false);
+        placeCache.get(PlaceCacheKind.DETAILS, "abc", this::load, value -> false);
+
+        assertThat(loads).hasValue(2);
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void shouldFallBackToLoaderWhenDatabaseFails() {
+        when(repository.findByKindAndCacheKeyAndExpiresAtAfter(any(), any(), any()))
+                .thenThrow(new IllegalStateException("connection refused"));
+
+        String value = placeCache.get(PlaceCacheKind.DETAILS, "abc", this::load, v -> true);
+
+        assertThat(value).isEqualTo("value-abc");
+    }
+
+    @Test
+    void shouldLoadAsynchronouslyAndServeMemoryHitWithoutDatabase() {
+        String first = placeCache.getAsync(PlaceCacheKind.DETAILS, "abc",
+                key -> Mono.fromSupplier(() -> load(key)), value -> true).block(Duration.ofSeconds(5));
+        Mono<String> second = placeCache.getAsync(PlaceCacheKind.DETAILS, "abc",
+                key -> Mono.fromSupplier(() -> load(key)), value -> true);
+
+        assertThat(first).isEqualTo("value-abc");
+        assertThat(second.block(Duration.ofSeconds(5))).isEqualTo("value-abc");
+        assertThat(loads).hasValue(1);
+        verify(repository, times(1)).findByKindAndCacheKeyAndExpiresAtAfter(any(), any(), any());
+        verify(repository).save(any());
+        assertThat(count("memory", "hit")).isEqualTo(1);
+        assertThat(count("database", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCacheEmptyAsyncResult() {
+        String value = placeCache.getAsync(PlaceCacheKind.DETAILS, "abc", key -> Mono.empty(), v -> true)
+                .block(Duration.ofSeconds(5));
+
+        assertThat(value).isNull();
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void shouldCoalesceConcurrentMissesOfSameKey() throws Exception {
+        CountDownLatch loaderEntered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<String, String> slowLoader = key -> {
+            loaderEntered.countDown();
+            awaitQuietly(release);
+            return load(key);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> placeCache.get(PlaceCacheKind.DETAILS, "abc", slowLoader, v -> true)));
+            assertThat(loaderEntered.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> placeCache.get(PlaceCacheKind.DETAILS, "abc", slowLoader, v -> true)));
+            }
+            // synchroniczne get i getAsync czekają na to samo wczytanie
+            Mono<String> async = placeCache.getAsync(PlaceCacheKind.DETAILS, "abc",
+                    key -> Mono.fromSupplier(() -> load(key)), v -> true);
+            CompletableFuture<String> asyncResult = async.toFuture();
+
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("value-abc");
+            }
+            assertThat(asyncResult.get(5, TimeUnit.SECONDS)).isEqualTo("value-abc");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(loads).hasValue(1);
+        verify(repository, times(1)).findByKindAndCacheKeyAndExpiresAtAfter(any(), any(), any());
+        verify(repository, times(1)).save(any());
+    }
+
+    @Test
+    void shouldCoalesceConcurrentAsyncMissesAndShareFailure() {
+        Sinks.One<String> google = Sinks.one();
+        AtomicInteger calls = new AtomicInteger();
+        Function<String, Mono<String>> loader = key -> {
+            calls.incrementAndGet();
+            return google.asMono();
+        };
+
+        CompletableFuture<List<String>> values = Flux.range(0, 10)
+                .flatMap(i -> placeCache.getAsync(PlaceCacheKind.DETAILS, "abc", loader, v -> true))
+                .collectList()
+                .toFuture();
+        google.tryEmitValue("details");
+
+        assertThat(values.join()).hasSize(10).containsOnly("details");
+        assertThat(calls).hasValue(1);
+        verify(repository, times(1)).save(any());
+
+        // błąd trafia do wszystkich oczekujących, a kolejne chybienie wczytuje klucz od nowa
+        Sinks.One<String> failing = Sinks.one();
+        CompletableFuture<List<String>> failed = Flux.range(0, 3)
+                .flatMap(i -> placeCache.getAsync(PlaceCacheKind.AUTOCOMPLETE, "wawel", key -> failing.asMono(), v -> true))
+                .collectList()
+                .toFuture();
+        failing.tryEmitError(new IllegalStateException("OVER_QUERY_LIMIT"));
+
+        assertThat(failed).failsWithin(Duration.ofSeconds(5));
+        String retried = placeCache.getAsync(PlaceCacheKind.AUTOCOMPLETE, "wawel", key -> Mono.just("ok"), v -> true)
+                .block(Duration.ofSeconds(5));
+        assertThat(retried).isEqualTo("ok");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void shouldKeepMemoryOnlyKindsOutOfDatabase() {
+        PlaceCache memoryOnly = new PlaceCache(repository, meterRegistry, 100, Duration.ofMinutes(1), 2,
+                Set.of(PlaceCacheKind.PLAN));
+
+        memoryOnly.get(PlaceCacheKind.PLAN, "kraków|3|pl", this::load, value -> true);
+        String cached = memoryOnly.get(PlaceCacheKind.PLAN, "kraków|3|pl", this::load, value -> true);
+
+        assertThat(cached).isEqualTo("value-kraków|3|pl");
+        assertThat(loads).hasValue(1);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void shouldEvictEntryFromBothTiers() {
+        PlaceCacheEntry stored = PlaceCacheEntry.builder().kind(PlaceCacheKind.DETAILS).cacheKey("abc").payload("old").build();
+        when(repository.findByKindAndCacheKey(PlaceCacheKind.DETAILS, "abc")).thenReturn(Optional.of(stored));
+        placeCache.get(PlaceCacheKind.DETAILS, "abc", this::load, value -> true);
+
+        placeCache.evict(PlaceCacheKind.DETAILS, "abc");
+        placeCache.get(PlaceCacheKind.DETAILS, "abc", this::load, value -> true);
+
+        assertThat(loads).hasValue(2);
+        verify(repository).delete(stored);
+    }
+
+    @Test
+    void shouldNormalizeFreeTextKeys() {
+        assertThat(PlaceCache.normalize("  Zamek  Królewski w Warszawie "))
+                .isEqualTo("zamek królewski w warszawie");
+    }
+
+    @Test
+    void shouldTrimDatabaseToMaximumSize() {
+        List<UUID> oldest = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        when(repository.deleteExpired(any())).thenReturn(1);
+        when(repository.count()).thenReturn(5L);
+        when(repository.findOldestIds(any(Pageable.class))).thenReturn(oldest);
+
+        placeCache.evictDatabase();
+
+        ArgumentCaptor<Pageable> page = ArgumentCaptor.forClass(Pageable.class);
+        verify(repository).findOldestIds(page.capture());
+        assertThat(page.getValue().getPageSize()).isEqualTo(3);
+        verify(repository).deleteAllByIdInBatch(oldest);
+    }
+}
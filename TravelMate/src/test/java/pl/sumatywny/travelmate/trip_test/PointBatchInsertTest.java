@@ -0,0 +1,79 @@
+package pl.sumatywny.travelmate.trip_test;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import pl.sumatywny.travelmate.trip.model.Point;
+import pl.sumatywny.travelmate.trip.model.Trip;
+import pl.sumatywny.travelmate.trip.repository.PointRepository;
+import pl.sumatywny.travelmate.trip.service.PointService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@Import(PointService.class)
+class PointBatchInsertTest {
+
+    private static final int POINT_COUNT = 30;
+
+    @Autowired
+    private PointService pointService;
+
+    @Autowired
+    private PointRepository pointRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void shouldInsertWholePlanInOneJdbcBatch() {
+        Trip trip = Trip.builder().name("Gdańsk").tripBudget(1000.0).build();
+        entityManager.persist(trip);
+        // pierwszy punkt inicjalizuje optymalizator sekwencji (świeża sekwencja jest odczytywana dwukrotnie)
+        entityManager.persist(Point.builder().title("Start").trip(trip).build());
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < POINT_COUNT; i++) {
+            points.add(Point.builder()
+                    .title("Miejsce " + i)
+                    .date(LocalDate.of(2025, 8, 12).plusDays(i / 3))
+                    .latitude(54.35)
+                    .longitude(18.64)
+                    .build());
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        pointService.createAll(trip.getId(), points);
+        entityManager.flush();
+
+        // zapytanie o wycieczkę + batch INSERT-ów (+ ewentualnie kolejna pula z sekwencji) – niezależnie od liczby punktów
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(POINT_COUNT);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+        assertThat(pointRepository.findByTripId(trip.getId())).hasSize(POINT_COUNT + 1);
+    }
+}
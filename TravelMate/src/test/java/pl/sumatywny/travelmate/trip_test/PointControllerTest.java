@@ -19,6 +19,8 @@ import pl.sumatywny.travelmate.security.model.User;
 import pl.sumatywny.travelmate.security.service.JwtService;
 import pl.sumatywny.travelmate.security.service.UserService;
 import pl.sumatywny.travelmate.trip.controller.PointController;
+import pl.sumatywny.travelmate.config.KeysetPage;
+import pl.sumatywny.travelmate.config.Pagination;
 import pl.sumatywny.travelmate.trip.model.Point;
 import pl.sumatywny.travelmate.trip.model.Trip;
 import pl.sumatywny.travelmate.trip.service.PointService;
@@ -30,12 +32,14 @@ import java.util.Optional;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -126,6 +130,32 @@ class PointControllerTest {
                 .andExpect(jsonPath("$[0].title").value("Test Point"));
     }
 
+    @Test
+    @WithMockUser(username = USER_EMAIL)
+    void shouldReturnPageOfPointsWithNextCursor() throws Exception {
+        Point point = samplePoint(sampleTrip());
+        when(userService.findByEmail(USER_EMAIL)).thenReturn(Optional.of(mockUser()));
+        when(tripService.canUserAccessTrip(TRIP_ID, USER_ID)).thenReturn(true);
+        when(pointService.findByTripId(TRIP_ID, 1, null)).thenReturn(new KeysetPage<>(List.of(point), "next-token"));
+
+        mockMvc.perform(get("/api/trips/{TRIP_ID}/points", TRIP_ID).param("limit", "1").with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(Pagination.NEXT_CURSOR_HEADER, "next-token"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].title").value("Test Point"));
+    }
+
+    @Test
+    @WithMockUser(username = USER_EMAIL)
+    void shouldRejectLimitOutOfRange() throws Exception {
+        when(userService.findByEmail(USER_EMAIL)).thenReturn(Optional.of(mockUser()));
+        when(tripService.canUserAccessTrip(TRIP_ID, USER_ID)).thenReturn(true);
+
+        mockMvc.perform(get("/api/trips/{TRIP_ID}/points", TRIP_ID).param("limit", "0").with(csrf()))
+                .andExpect(status().isBadRequest());
+        verify(pointService, never()).findByTripId(any(), anyInt(), any());
+    }
+
     @Test
     @WithMockUser(username = USER_EMAIL)
     void shouldReturnOnePoint() throws Exception {
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import pl.sumatywny.travelmate.config.KeysetPage;
 import pl.sumatywny.travelmate.trip.model.Point;
 import pl.sumatywny.travelmate.trip.model.Trip;
 import pl.sumatywny.travelmate.trip.repository.PointRepository;
@@ -16,6 +17,8 @@ import java.util.*;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -73,6 +76,33 @@ class PointServiceTest {
         verifyNoMoreInteractions(pointRepo);
     }
 
+    @Test
+    void findByTripIdPage_returnsCursorThatContinuesAfterLastPoint() {
+        Point second = Point.builder().id(2L).trip(trip).build();
+        Point third = Point.builder().id(3L).trip(trip).build();
+        when(tripRepo.existsById(tripId)).thenReturn(true);
+        when(pointRepo.findPageByTripId(eq(tripId), any())).thenReturn(List.of(point, second, third));
+
+        KeysetPage<Point> firstPage = service.findByTripId(tripId, 2, null);
+
+        assertThat(firstPage.items()).containsExactly(point, second);
+        assertThat(firstPage.nextCursor()).isNotNull();
+
+        when(pointRepo.findPageByTripIdAfter(eq(tripId), eq(2L), any())).thenReturn(List.of(third));
+
+        KeysetPage<Point> secondPage = service.findByTripId(tripId, 2, firstPage.nextCursor());
+
+        assertThat(secondPage.items()).containsExactly(third);
+        assertThat(secondPage.nextCursor()).isNull();
+    }
+
+    @Test
+    void findByTripIdPage_whenCursorIsInvalid_throwsIllegalArgument() {
+        when(tripRepo.existsById(tripId)).thenReturn(true);
+
+        assertThrows(IllegalArgumentException.class, () -> service.findByTripId(tripId, 2, "not-a-cursor"));
+    }
+
     @Test
     void findById_whenTripExistsAndPointMatches_returnsPoint() {
         when(tripRepo.existsById(tripId)).thenReturn(true);
@@ -131,6 +161,27 @@ class PointServiceTest {
         verifyNoMoreInteractions(pointRepo);
     }
 
+    @Test
+    void createAll_whenTripFound_resolvesTripOnceAndSavesAllAtOnce() {
+        List<Point> toCreate = List.of(new Point(), new Point(), new Point());
+        when(tripRepo.findById(tripId)).thenReturn(Optional.of(trip));
+        when(pointRepo.saveAll(toCreate)).thenReturn(toCreate);
+
+        List<Point> created = service.createAll(tripId, toCreate);
+
+        assertThat(created).hasSize(3).allSatisfy(p -> assertThat(p.getTrip()).isSameAs(trip));
+        verify(tripRepo, times(1)).findById(tripId);
+        verify(pointRepo).saveAll(toCreate);
+        verify(pointRepo, never()).save(any());
+    }
+
+    @Test
+    void createAll_whenTripNotFound_throws() {
+        when(tripRepo.findById(tripId)).thenReturn(Optional.empty());
+        assertThrows(RuntimeException.class, () -> service.createAll(tripId, List.of(new Point())));
+        verifyNoMoreInteractions(pointRepo);
+    }
+
     @Test
     void update_whenExists_updatesFieldsAndSaves() {
         Point updatedInfo = new Point();
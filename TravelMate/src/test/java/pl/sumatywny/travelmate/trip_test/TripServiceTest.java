@@ -8,7 +8,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import pl.sumatywny.travelmate.participant.model.InvitationStatus;
 import pl.sumatywny.travelmate.participant.model.ParticipantRole;
-import pl.sumatywny.travelmate.participant.repository.ParticipantRepository;
+import pl.sumatywny.travelmate.participant.service.TripPermissionService;
 import pl.sumatywny.travelmate.participant.service.ParticipantService;
 import pl.sumatywny.travelmate.security.service.UserService;
 import pl.sumatywny.travelmate.trip.model.Trip;
@@ -29,7 +29,7 @@ class TripServiceTest {
     private TripRepository tripRepo;
 
     @Mock
-    private ParticipantRepository participantRepo;
+    private TripPermissionService permissionService;
 
     @Mock
     private UserService userService;
@@ -154,19 +154,19 @@ class TripServiceTest {
     @Test
     void canUserAccessTrip_returnsTrueIfExists() {
         UUID userId = UUID.randomUUID();
-        when(participantRepo.existsByTripIdAndUserId(tripId, userId)).thenReturn(true);
+        when(permissionService.isParticipant(tripId, userId)).thenReturn(true);
 
         assertTrue(tripService.canUserAccessTrip(tripId, userId));
-        verify(participantRepo).existsByTripIdAndUserId(tripId, userId);
+        verify(permissionService).isParticipant(tripId, userId);
     }
 
     @Test
     void canUserAccessTrip_returnsFalseIfNotExists() {
         UUID userId = UUID.randomUUID();
-        when(participantRepo.existsByTripIdAndUserId(tripId, userId)).thenReturn(false);
+        when(permissionService.isParticipant(tripId, userId)).thenReturn(false);
 
         assertFalse(tripService.canUserAccessTrip(tripId, userId));
-        verify(participantRepo).existsByTripIdAndUserId(tripId, userId);
+        verify(permissionService).isParticipant(tripId, userId);
     }
 
     @Test
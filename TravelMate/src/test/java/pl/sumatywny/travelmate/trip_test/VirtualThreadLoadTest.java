@@ -0,0 +1,174 @@
+package pl.sumatywny.travelmate.trip_test;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.embedded.EmbeddedWebServerFactoryCustomizerAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.reactive.function.client.WebClient;
+import pl.sumatywny.travelmate.config.VirtualThreadConfig;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test obciążeniowy na prawdziwym Tomcacie z pulą 4 wątków: kilkanaście wolnych wywołań "AI"
+ * (WebClient + {@code .block()} na odpowiedzi opóźnionej o 2 s) i jedno szybkie {@code GET /api/trips}.
+ * Na wątkach platformy szybkie żądanie czeka w kolejce na wolne wątki, na wirtualnych – nie.
+ */
+class VirtualThreadLoadTest {
+
+    private static final int SLOW_REQUESTS = 16;
+    private static final Duration AI_LATENCY = Duration.ofSeconds(2);
+
+    private static MockWebServer openAi;
+
+    @BeforeAll
+    static void startOpenAi() throws Exception {
+        openAi = new MockWebServer();
+        openAi.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody("[]").setHeadersDelay(AI_LATENCY.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        });
+        openAi.start();
+    }
+
+    @AfterAll
+    static void stopOpenAi() throws Exception {
+        openAi.shutdown();
+    }
+
+    @Nested
+    @SpringBootTest(classes = LoadTestApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            properties = {"server.tomcat.threads.max=4", VirtualThreadConfig.ENABLED_PROPERTY + "=true"})
+    class VirtualThreads {
+
+        @LocalServerPort
+        private int port;
+
+        @Test
+        void slowAiCallsShouldNotStarveTripTraffic() throws Exception {
+            Duration tripLatency = tripLatencyUnderSlowAiLoad(port);
+
+            assertThat(requestThreadIsVirtual(port)).isTrue();
+            assertThat(tripLatency).isLessThan(AI_LATENCY.dividedBy(2));
+        }
+    }
+
+    @Nested
+    @SpringBootTest(classes = LoadTestApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            properties = {"server.tomcat.threads.max=4", VirtualThreadConfig.ENABLED_PROPERTY + "=false"})
+    class PlatformThreads {
+
+        @LocalServerPort
+        private int port;
+
+        @Test
+        void slowAiCallsStarveTripTrafficWithoutVirtualThreads() throws Exception {
+            Duration tripLatency = tripLatencyUnderSlowAiLoad(port);
+
+            assertThat(requestThreadIsVirtual(port)).isFalse();
+            // punkt odniesienia: wszystkie 4 wątki czekają na AI, więc /api/trips stoi w kolejce
+            assertThat(tripLatency).isGreaterThan(AI_LATENCY.dividedBy(2));
+        }
+    }
+
+    private static Duration tripLatencyUnderSlowAiLoad(int port) throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + port;
+
+        List<CompletableFuture<HttpResponse<String>>> slow = new ArrayList<>();
+        for (int i = 0; i < SLOW_REQUESTS; i++) {
+            slow.add(client.sendAsync(HttpRequest.newBuilder(URI.create(base + "/api/chat/plan")).build(),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        // dajemy wolnym żądaniom czas, żeby zajęły wątki serwera
+        while (openAi.getRequestCount() < Math.min(SLOW_REQUESTS, 4)) {
+            Thread.sleep(10);
+        }
+
+        long start = System.nanoTime();
+        HttpResponse<String> trips = client.send(HttpRequest.newBuilder(URI.create(base + "/api/trips")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        Duration latency = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(trips.statusCode()).isEqualTo(200);
+        for (CompletableFuture<HttpResponse<String>> response : slow) {
+            assertThat(response.get(30, TimeUnit.SECONDS).statusCode()).isEqualTo(200);
+        }
+        return latency;
+    }
+
+    private static boolean requestThreadIsVirtual(int port) throws Exception {
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/thread")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        return Boolean.parseBoolean(response.body());
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration({
+            PropertyPlaceholderAutoConfiguration.class,
+            ServletWebServerFactoryAutoConfiguration.class,
+            EmbeddedWebServerFactoryCustomizerAutoConfiguration.class,
+            DispatcherServletAutoConfiguration.class,
+            WebMvcAutoConfiguration.class,
+            HttpMessageConvertersAutoConfiguration.class,
+            JacksonAutoConfiguration.class,
+            TaskExecutionAutoConfiguration.class
+    })
+    @Import({VirtualThreadConfig.class, LoadTestController.class})
+    static class LoadTestApplication {
+    }
+
+    // Odwzorowuje wzorzec z OpenAiService: WebClient i blokujące .block() na wątku żądania
+    @RestController
+    static class LoadTestController {
+
+        private final WebClient openAiClient = WebClient.create(openAi.url("/v1").toString());
+
+        @GetMapping("/api/chat/plan")
+        String plan() {
+            return openAiClient.get().retrieve().bodyToMono(String.class).block();
+        }
+
+        @GetMapping("/api/thread")
+        boolean thread() {
+            return Thread.currentThread().isVirtual();
+        }
+
+        @GetMapping("/api/trips")
+        List<String> trips() {
+            return List.of("Kraków");
+        }
+    }
+}
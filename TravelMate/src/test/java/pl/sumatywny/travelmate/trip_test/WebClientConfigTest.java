@@ -0,0 +1,139 @@
+package pl.sumatywny.travelmate.trip_test;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.timeout.ReadTimeoutException;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.web.reactive.function.client.WebClientAutoConfiguration;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.web.reactive.function.client.WebClient;
+import pl.sumatywny.travelmate.config.WebClientConfig;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WebClientConfigTest {
+
+    private MockWebServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private ApplicationContextRunner contextRunner;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        // metryki puli Reactor Netty trafiają do globalnego rejestru Micrometera
+        meterRegistry = new SimpleMeterRegistry();
+        Metrics.addRegistry(meterRegistry);
+
+        // jak w aplikacji: konwersja "PT5S" / "2MB" na Duration / DataSize
+        contextRunner = new ApplicationContextRunner()
+                .withInitializer(context -> context.getBeanFactory()
+                        .setConversionService(ApplicationConversionService.getSharedInstance()))
+                .withConfiguration(AutoConfigurations.of(WebClientAutoConfiguration.class))
+                .withUserConfiguration(WebClientConfig.class)
+                .withPropertyValues(
+                        "travelmate.http.google.base-url=" + server.url("/maps/api"),
+                        "travelmate.http.google.read-timeout=PT0.3S",
+                        "travelmate.http.max-in-memory-size=1KB");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        Metrics.removeRegistry(meterRegistry);
+        server.shutdown();
+    }
+
+    @Test
+    void shouldFailHungUpstreamCallAfterReadTimeout() {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+        contextRunner.run(context -> {
+            WebClient client = context.getBean(WebClientConfig.GOOGLE_PLACES_WEB_CLIENT, WebClient.class);
+
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> get(client).block(Duration.ofSeconds(5)))
+                    .hasRootCauseInstanceOf(ReadTimeoutException.class);
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(3));
+        });
+    }
+
+    @Test
+    void shouldRequestAndDecompressGzip() {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Encoding", "gzip")
+                .setBody(gzip("{\"status\":\"OK\"}")));
+
+        contextRunner.run(context -> {
+            WebClient client = context.getBean(WebClientConfig.GOOGLE_PLACES_WEB_CLIENT, WebClient.class);
+
+            assertThat(get(client).block(Duration.ofSeconds(5))).isEqualTo("{\"status\":\"OK\"}");
+            RecordedRequest request = server.takeRequest(1, TimeUnit.SECONDS);
+            assertThat(request.getHeader("Accept-Encoding")).contains("gzip");
+        });
+    }
+
+    @Test
+    void shouldRejectResponsesOverMaxInMemorySize() {
+        server.enqueue(new MockResponse().setBody("x".repeat(4 * 1024)));
+
+        contextRunner.run(context -> {
+            WebClient client = context.getBean(WebClientConfig.GOOGLE_PLACES_WEB_CLIENT, WebClient.class);
+
+            assertThatThrownBy(() -> get(client).block(Duration.ofSeconds(5)))
+                    .hasCauseInstanceOf(DataBufferLimitException.class);
+        });
+    }
+
+    @Test
+    void shouldReportConnectionPoolMetricsPerHost() {
+        server.enqueue(new MockResponse().setBody("{}"));
+
+        contextRunner.run(context -> {
+            WebClient client = context.getBean(WebClientConfig.GOOGLE_PLACES_WEB_CLIENT, WebClient.class);
+            get(client).block(Duration.ofSeconds(5));
+
+            assertThat(meterRegistry.find("reactor.netty.connection.provider.max.connections")
+                    .tag("name", "google-places")
+                    .gauge())
+                    .isNotNull();
+            assertThat(meterRegistry.find("reactor.netty.connection.provider.pending.connections")
+                    .tag("name", "google-places")
+                    .gauge())
+                    .isNotNull();
+        });
+    }
+
+    private static Mono<String> get(WebClient client) {
+        return client.get().uri("/place/details/json").retrieve().bodyToMono(String.class);
+    }
+
+    private static Buffer gzip(String body) {
+        Buffer compressed = new Buffer();
+        try (BufferedSink sink = Okio.buffer(new GzipSink(compressed))) {
+            sink.writeString(body, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return compressed;
+    }
+}